@@ -0,0 +1,70 @@
+package org.osumm.apiv2.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osumm.apiv2.AuthHandler;
+import org.osumm.apiv2.OsuApi;
+
+/**
+ * Cost of reading valid auth token, which happens on every API call, with and without contention.
+ * @author Master-chan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthBenchmark
+{
+	
+	private OsuApi api;
+	private AuthHandler authHandler;
+	
+	@Setup
+	public void setup() throws IOException
+	{
+		api = OsuApi.builder()
+				.clientId(1)
+				.clientSecret("benchmark")
+				.httpClientProvider(new InMemoryHttpClientProvider(Payloads.USER))
+				.build();
+		authHandler = new AuthHandler();
+		authHandler.updateAuthToken(api);
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public String singleThread() throws IOException
+	{
+		return authHandler.getAuthToken(api);
+	}
+	
+	@Benchmark
+	@Threads(4)
+	public String fourThreads() throws IOException
+	{
+		return authHandler.getAuthToken(api);
+	}
+	
+	@Benchmark
+	@Threads(Threads.MAX)
+	public String allThreads() throws IOException
+	{
+		return authHandler.getAuthToken(api);
+	}
+	
+}
@@ -0,0 +1,88 @@
+package org.osumm.apiv2.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.OsuApi;
+import org.osumm.apiv2.endpoints.Endpoint;
+import org.osumm.apiv2.endpoints.EndpointNotRegisteredException;
+import org.osumm.apiv2.endpoints.EndpointRegistrationException;
+
+/**
+ * Overhead of {@link OsuApi#request(Class, Object) OsuApi.request} itself: endpoint lookup, auth token read and request coalescing. 
+ * Endpoint doesn't touch http provider, so result is pure dispatch cost. Run with <code>-t</code> to check how it scales with threads.
+ * @author Master-chan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark
+{
+	
+	@Param({"true", "false"})
+	public boolean coalesce;
+	
+	private OsuApi api;
+	
+	@Setup
+	public void setup() throws EndpointRegistrationException, IOException
+	{
+		api = OsuApi.builder()
+				.clientId(1)
+				.clientSecret("benchmark")
+				.httpClientProvider(new InMemoryHttpClientProvider(Payloads.USER))
+				.rateLimiter(null)
+				.coalesceRequests(coalesce)
+				.build();
+		api.registerEndpoint(EchoEndpoint.class, EchoEndpoint::new);
+		api.regenerateAuthToken();
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public Long singleThread() throws EndpointNotRegisteredException, IOException
+	{
+		return api.request(EchoEndpoint.class, 2L);
+	}
+	
+	@Benchmark
+	@Threads(Threads.MAX)
+	public Long allThreads() throws EndpointNotRegisteredException, IOException
+	{
+		return api.request(EchoEndpoint.class, 2L);
+	}
+	
+	public static class EchoEndpoint extends Endpoint<Long, Long>
+	{
+		
+		public EchoEndpoint(String baseUrl, HttpClientProviderBase httpClientProvider, JsonSerializationProviderBase jsonProvider)
+		{
+			super(baseUrl, httpClientProvider, jsonProvider);
+		}
+
+		@Override
+		public Long request(Long paramHolder, String authToken) throws IOException
+		{
+			return paramHolder;
+		}
+	}
+	
+}
@@ -0,0 +1,43 @@
+package org.osumm.apiv2.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+
+/**
+ * Cold start: creating json provider and parsing first user profile in fresh JVM, 
+ * which is what first request of short-lived application pays for.
+ * @author Master-chan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class FirstParseBenchmark
+{
+	
+	@Param({"jackson", "gson", "compiled"})
+	public String provider;
+	
+	@Benchmark
+	public GetUserResponse firstParse() throws IOException
+	{
+		return Payloads.jsonProvider(provider).fromJson(new ByteArrayInputStream(Payloads.USER), GetUserResponse.class);
+	}
+	
+}
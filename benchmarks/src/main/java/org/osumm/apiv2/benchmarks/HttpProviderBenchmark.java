@@ -0,0 +1,123 @@
+package org.osumm.apiv2.benchmarks;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.ResponseReader;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.impl.JacksonSerializationProvider;
+import org.osumm.apiv2.impl.JavaHttpClientProvider;
+import org.osumm.apiv2.impl.OkHttpClientProvider;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * End-to-end GET of full user profile (request, transfer, gzip, json parsing) with each http provider 
+ * against embedded local HTTP server, so it runs offline. <code>java11</code> provider requires Java 11+ runtime.
+ * @author Master-chan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpProviderBenchmark
+{
+	
+	@Param({"java", "okhttp", "java11"})
+	public String provider;
+	
+	@Param({"true", "false"})
+	public boolean gzip;
+	
+	private HttpServer server;
+	private ExecutorService serverExecutor;
+	private HttpClientProviderBase http;
+	private ResponseReader<GetUserResponse> reader;
+	private URL url;
+	
+	@Setup
+	public void setup() throws Exception
+	{
+		// Otherwise Nagle's algorithm on stub server adds ~40ms to every response
+		System.setProperty("sun.net.httpserver.nodelay", "true");
+		serverExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 128);
+		server.setExecutor(serverExecutor);
+		server.createContext("/api/v2/users", exchange -> 
+		{
+			boolean compress = gzip && "gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+			byte[] body = compress ? Payloads.USER_GZIP : Payloads.USER;
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			if(compress)
+			{
+				exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+			}
+			exchange.sendResponseHeaders(200, body.length);
+			try(OutputStream outputStream = exchange.getResponseBody())
+			{
+				outputStream.write(body);
+			}
+		});
+		server.start();
+		url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/api/v2/users/2/osu?key=id");
+		
+		switch(provider)
+		{
+			case "okhttp":
+				http = new OkHttpClientProvider();
+				break;
+			case "java11":
+				// Lives in META-INF/versions/11 of connector jar
+				http = (HttpClientProviderBase) Class.forName("org.osumm.apiv2.impl.Java11HttpClientProvider").getConstructor().newInstance();
+				break;
+			default:
+				http = new JavaHttpClientProvider();
+		}
+		JacksonSerializationProvider json = new JacksonSerializationProvider();
+		reader = body -> json.fromJson(body, GetUserResponse.class);
+	}
+	
+	@TearDown
+	public void tearDown()
+	{
+		server.stop(0);
+		serverExecutor.shutdownNow();
+	}
+	
+	@Benchmark
+	@Threads(1)
+	public GetUserResponse singleThread() throws IOException
+	{
+		return http.get(url, 5000, "benchmark-token", reader);
+	}
+	
+	@Benchmark
+	@Threads(8)
+	public GetUserResponse eightThreads() throws IOException
+	{
+		return http.get(url, 5000, "benchmark-token", reader);
+	}
+	
+}
@@ -0,0 +1,50 @@
+package org.osumm.apiv2.benchmarks;
+
+import java.io.IOException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import org.osumm.apiv2.HttpClientProviderBase;
+
+/**
+ * Http provider answering from memory, so benchmarks measure library overhead without network.
+ * POST calls return auth token, GET calls return provided body.
+ * @author Master-chan
+ *
+ */
+class InMemoryHttpClientProvider implements HttpClientProviderBase
+{
+	
+	private final String token = new String(Payloads.TOKEN, StandardCharsets.UTF_8);
+	private final String body;
+	
+	InMemoryHttpClientProvider(byte[] body)
+	{
+		this.body = new String(body, StandardCharsets.UTF_8);
+	}
+
+	@Override
+	public String post(URL url, String params, int timeout) throws IOException
+	{
+		return token;
+	}
+
+	@Override
+	public String post(URL url, String params, int timeout, String authToken) throws IOException
+	{
+		return token;
+	}
+
+	@Override
+	public String get(URL url, int timeout) throws IOException
+	{
+		return body;
+	}
+
+	@Override
+	public String get(URL url, int timeout, String authToken) throws IOException
+	{
+		return body;
+	}
+	
+}
@@ -0,0 +1,81 @@
+package org.osumm.apiv2.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.impl.CompiledJsonSerializationProvider;
+import org.osumm.apiv2.impl.GsonSerializationProvider;
+import org.osumm.apiv2.impl.JacksonSerializationProvider;
+
+/**
+ * Canned API responses used by benchmarks.
+ * @author Master-chan
+ *
+ */
+final class Payloads
+{
+	
+	/**
+	 * Full profile of heavily decorated player: statistics, badges, 250 achievements, monthly playcounts and profile page.
+	 */
+	static final byte[] USER = resource("/user.json");
+	static final byte[] USER_GZIP = gzip(USER);
+	static final byte[] TOKEN = "{\"token_type\":\"Bearer\",\"expires_in\":86400,\"access_token\":\"benchmark-token\"}".getBytes();
+	
+	private Payloads()
+	{
+	}
+	
+	/**
+	 * @param name - jackson, gson or compiled
+	 */
+	static JsonSerializationProviderBase jsonProvider(String name)
+	{
+		switch(name)
+		{
+			case "gson":
+				return new GsonSerializationProvider();
+			case "compiled":
+				return new CompiledJsonSerializationProvider();
+			default:
+				return new JacksonSerializationProvider();
+		}
+	}
+	
+	private static byte[] resource(String name)
+	{
+		try(InputStream inputStream = Payloads.class.getResourceAsStream(name))
+		{
+			byte[] buf = new byte[8192];
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			for(int len; (len = inputStream.read(buf)) > 0;)
+			{
+				outputStream.write(buf, 0, len);
+			}
+			return outputStream.toByteArray();
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+	}
+	
+	private static byte[] gzip(byte[] data)
+	{
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try(GZIPOutputStream gzip = new GZIPOutputStream(outputStream))
+		{
+			gzip.write(data);
+		}
+		catch(IOException e)
+		{
+			throw new UncheckedIOException(e);
+		}
+		return outputStream.toByteArray();
+	}
+	
+}
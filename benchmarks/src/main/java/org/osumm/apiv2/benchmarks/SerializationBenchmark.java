@@ -0,0 +1,69 @@
+package org.osumm.apiv2.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserRequest;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+
+/**
+ * Deserialization cost of full user profile with each shipped json provider, from String (legacy path), from stream 
+ * and from stream projected to statistics fields.
+ * @author Master-chan
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark
+{
+	
+	@Param({"jackson", "gson", "compiled"})
+	public String provider;
+	
+	private JsonSerializationProviderBase json;
+	private String userString;
+	
+	@Setup
+	public void setup()
+	{
+		json = Payloads.jsonProvider(provider);
+		userString = new String(Payloads.USER, StandardCharsets.UTF_8);
+	}
+	
+	@Benchmark
+	public GetUserResponse fromString() throws IOException
+	{
+		return json.fromJson(userString, GetUserResponse.class);
+	}
+	
+	@Benchmark
+	public GetUserResponse fromStream() throws IOException
+	{
+		return json.fromJson(new ByteArrayInputStream(Payloads.USER), GetUserResponse.class);
+	}
+	
+	@Benchmark
+	public GetUserResponse fromStreamProjected() throws IOException
+	{
+		return json.fromJson(new ByteArrayInputStream(Payloads.USER), GetUserResponse.class, GetUserRequest.STATISTICS_FIELDS);
+	}
+	
+}
@@ -1,76 +1,368 @@
 package org.osumm.apiv2;
 
 import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
+import org.osumm.apiv2.auth.StoredToken;
+import org.osumm.apiv2.auth.TokenStore;
+import org.osumm.apiv2.concurrent.DaemonScheduler;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.concurrent.IoExecutor;
 import org.osumm.apiv2.endpoints.impl.GetClientCredentialsToken;
 import org.osumm.apiv2.endpoints.impl.GetClientCredentialsToken.ClientCredentialsRequest;
 import org.osumm.apiv2.endpoints.impl.GetClientCredentialsToken.ClientCredentialsResponse;
 
-import com.googlecode.concurentlocks.ReadWriteUpdateLock;
-import com.googlecode.concurentlocks.ReentrantReadWriteUpdateLock;
-
 /**
  * Auth tokens handler.
+ * Current token is kept as immutable snapshot, so reading it doesn't take any locks.
+ * Token is refreshed in background {@link OsuApi#getTokenRefreshMarginMillis() tokenRefreshMarginMillis} before it expires,
+ * callers only wait for refresh if background one failed and token has already expired.
+ * Background refresh stops once {@link OsuApi#close() API is closed} or becomes unreachable, tokens are then refreshed by requests on expiration.
+ * Concurrent refreshes (background, blocking and async) share single in-flight token request.
+ * <br/>
+ * Before requesting token handler checks {@link OsuApi#getTokenStore() tokenStore}, which might hold token requested 
+ * by another API instance or process (or before restart) that isn't due for refresh yet. Requested tokens are saved into it.
+ * Token rejected by API with 401 (e.g. revoked) is {@link #invalidateAuthToken(OsuApi, String) invalidated}: 
+ * it is removed from store and next caller requests new one.
  * @author Master-chan
  *
  */
 public class AuthHandler
 {
-	
+
+	/**
+	 * Delay between attempts of failed background refresh.
+	 */
+	private static final long RETRY_DELAY = TimeUnit.SECONDS.toMillis(30);
+	/**
+	 * Failed background refreshes retried in a row before leaving refresh to callers.
+	 */
+	private static final int MAX_BACKGROUND_RETRIES = 5;
+
+	private final Lock lock = new ReentrantLock();
+	private volatile StoredToken token;
+	// Written only on completion of token request, at most one of which is in flight
+	private volatile int consecutiveFailures;
+
+	// Guarded by lock
 	private GetClientCredentialsToken authEndpoint;
-	private final ReadWriteUpdateLock lock = new ReentrantReadWriteUpdateLock();
-	
-	private String authToken;
-	private long expire;
-	
+	private CompletableFuture<String> pendingUpdate;
+	private ScheduledFuture<?> scheduledUpdate;
+	private boolean closed;
+	/**
+	 * Last token rejected by API, never taken from token store again even if store couldn't remove it.
+	 */
+	private String rejectedToken;
+
+	/**
+	 * Requests new token regardless of current one, waiting for refresh which is already in progress if there is any.
+	 */
 	public String updateAuthToken(OsuApi api) throws IOException
 	{
-		lock.writeLock().lock();
+		return Futures.await(startUpdate(api, true));
+	}
+
+	public String getAuthToken(OsuApi api) throws IOException
+	{
+		StoredToken current = token;
+		if(current != null && current.isValid())
+		{
+			return current.getAccessToken();
+		}
+		return Futures.await(startUpdate(api, false));
+	}
+
+	/**
+	 * Non-blocking variant of {@link #getAuthToken(OsuApi) getAuthToken}.
+	 */
+	public CompletableFuture<String> getAuthTokenAsync(OsuApi api)
+	{
+		StoredToken current = token;
+		if(current != null && current.isValid())
+		{
+			return CompletableFuture.completedFuture(current.getAccessToken());
+		}
+		return startUpdate(api, false);
+	}
+
+	/**
+	 * Drops token which API rejected as unauthorized, so next {@link #getAuthToken(OsuApi) getAuthToken} requests new one. 
+	 * Does nothing if token was already replaced, e.g. by concurrent caller which got it rejected too.
+	 * @param rejected - access token the request was made with
+	 */
+	public void invalidateAuthToken(OsuApi api, String rejected)
+	{
+		lock.lock();
 		try
 		{
-			if(authEndpoint == null)
+			StoredToken current = token;
+			if(current == null || !current.getAccessToken().equals(rejected))
 			{
-				authEndpoint = new GetClientCredentialsToken(api.getBaseUrl(), api.getHttpClientProvider(), api.getJsonSerializationProvider());
+				return;
+			}
+			token = null;
+			rejectedToken = rejected;
+			if(api.getTokenStore() != null)
+			{
+				try
+				{
+					api.getTokenStore().invalidate(api.getClientId(), rejected);
+				}
+				catch(IOException | RuntimeException e)
+				{
+					// Store keeps the token, but this handler won't load it again
+				}
 			}
-			// Grab new token
-			ClientCredentialsResponse token = authEndpoint.request(new ClientCredentialsRequest(api.getClientId(), api.getClientSecret()), null);
-			expire = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(token.getExpiresIn()) - TimeUnit.SECONDS.toMillis(5);
-			authToken = token.getAccessToken();
-			return authToken;
 		}
 		finally
 		{
-			lock.writeLock().unlock();
+			lock.unlock();
 		}
 	}
-	
-	public String getAuthToken(OsuApi api) throws IOException
+
+	/**
+	 * @return number of token requests failed in a row since last successful one
+	 */
+	public int getConsecutiveFailures()
+	{
+		return consecutiveFailures;
+	}
+
+	/**
+	 * Cancels scheduled background refresh and stops scheduling new ones.
+	 */
+	public void close()
 	{
-		lock.updateLock().lock();
+		lock.lock();
 		try
 		{
-			if(authToken == null || System.currentTimeMillis() >= expire)
+			closed = true;
+			if(scheduledUpdate != null)
 			{
-				lock.writeLock().lock();
-				try
+				scheduledUpdate.cancel(false);
+				scheduledUpdate = null;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts token request unless one is already in progress.
+	 * @param force - request new token even if current one is still valid
+	 */
+	private CompletableFuture<String> startUpdate(OsuApi api, boolean force)
+	{
+		CompletableFuture<String> update;
+		GetClientCredentialsToken endpoint;
+		lock.lock();
+		try
+		{
+			StoredToken current = token;
+			if(!force && current != null && current.isValid())
+			{
+				return CompletableFuture.completedFuture(current.getAccessToken());
+			}
+			if(pendingUpdate != null)
+			{
+				return pendingUpdate;
+			}
+			if(!force)
+			{
+				StoredToken stored = loadStoredToken(api, current);
+				if(stored != null)
 				{
-					if(authToken == null || System.currentTimeMillis() >= expire)
-					{
-						return updateAuthToken(api);
-					}
+					return CompletableFuture.completedFuture(useToken(api, stored));
 				}
-				finally
+			}
+			if(authEndpoint == null)
+			{
+				authEndpoint = new GetClientCredentialsToken(api.getBaseUrl(), api.getHttpClientProvider(), api.getJsonSerializationProvider());
+			}
+			endpoint = authEndpoint;
+			// Published before request is sent, so concurrent callers join it instead of waiting on lock
+			update = new CompletableFuture<>();
+			pendingUpdate = update;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		// Blocking providers make whole token request here, it doesn't hold lock
+		long start = System.nanoTime();
+		CompletableFuture<String> request;
+		try
+		{
+			request = endpoint.requestAsync(new ClientCredentialsRequest(api.getClientId(), api.getClientSecret()), null)
+					.thenApply(response -> storeAuthToken(api, response));
+		}
+		catch(RuntimeException e)
+		{
+			request = Futures.failed(e);
+		}
+		request.whenComplete((value, e) -> 
+		{
+			consecutiveFailures = e == null ? 0 : consecutiveFailures + 1;
+			// Cleared before completion, so callers reacting to failure start new request
+			clearPendingUpdate(update);
+			if(api.getMetricsListener() != null)
+			{
+				api.getMetricsListener().onTokenRefresh(System.nanoTime() - start, e == null ? null : Futures.unwrap(e));
+			}
+			if(e == null)
+			{
+				update.complete(value);
+			}
+			else
+			{
+				update.completeExceptionally(Futures.unwrap(e));
+			}
+		});
+		return update;
+	}
+
+	private String storeAuthToken(OsuApi api, ClientCredentialsResponse response)
+	{
+		long lifetime = TimeUnit.SECONDS.toMillis(response.getExpiresIn()) - TimeUnit.SECONDS.toMillis(5);
+		StoredToken requested = new StoredToken(response.getAccessToken(), System.currentTimeMillis() + lifetime);
+		if(api.getTokenStore() != null)
+		{
+			try
+			{
+				api.getTokenStore().store(api.getClientId(), requested);
+			}
+			catch(IOException | RuntimeException e)
+			{
+				// Store only saves token requests of others, this token is used regardless
+			}
+		}
+		return useToken(api, requested);
+	}
+
+	/**
+	 * @param current - token used now, stored token is only taken if it is newer
+	 * @return stored token which isn't due for refresh yet, null if there is none
+	 */
+	private StoredToken loadStoredToken(OsuApi api, StoredToken current)
+	{
+		if(api.getTokenStore() == null)
+		{
+			return null;
+		}
+		StoredToken stored;
+		try
+		{
+			stored = api.getTokenStore().load(api.getClientId());
+		}
+		catch(IOException | RuntimeException e)
+		{
+			return null;
+		}
+		if(stored == null || stored.getRemainingMillis() <= api.getTokenRefreshMarginMillis() 
+				|| (current != null && stored.getExpiresAt() <= current.getExpiresAt()) || stored.getAccessToken().equals(rejectedToken))
+		{
+			return null;
+		}
+		return stored;
+	}
+
+	private String useToken(OsuApi api, StoredToken newToken)
+	{
+		token = newToken;
+		long lifetime = newToken.getRemainingMillis();
+		// Refresh margin before expiration, but never sooner than in half of token lifetime
+		scheduleUpdate(api, Math.max(lifetime - api.getTokenRefreshMarginMillis(), lifetime / 2), 0);
+		return newToken.getAccessToken();
+	}
+
+	/**
+	 * @param retry - number of background refreshes failed in a row
+	 */
+	private void scheduleUpdate(OsuApi api, long delay, int retry)
+	{
+		lock.lock();
+		try
+		{
+			if(scheduledUpdate != null)
+			{
+				scheduledUpdate.cancel(false);
+				scheduledUpdate = null;
+			}
+			if(closed)
+			{
+				return;
+			}
+			// Scheduler queue shouldn't keep API instance which isn't used anymore alive
+			WeakReference<OsuApi> apiReference = new WeakReference<>(api);
+			// Token request might block on synchronous http providers, so it is not run on scheduler thread
+			scheduledUpdate = DaemonScheduler.get().schedule(() -> 
+			{
+				OsuApi target = apiReference.get();
+				if(target != null)
 				{
-					lock.writeLock().unlock();
+					IoExecutor.get().execute(() -> backgroundUpdate(target, retry));
 				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	private void backgroundUpdate(OsuApi api, int retry)
+	{
+		// Token might have been refreshed by another instance sharing token store
+		lock.lock();
+		try
+		{
+			if(closed)
+			{
+				return;
+			}
+			StoredToken stored = loadStoredToken(api, token);
+			if(stored != null)
+			{
+				useToken(api, stored);
+				return;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		startUpdate(api, true).whenComplete((value, e) ->
+		{
+			StoredToken current = token;
+			// Keep trying for a while if current token is alive, once it expires callers will refresh it themselves
+			if(e != null && retry < MAX_BACKGROUND_RETRIES && current != null && current.getRemainingMillis() > RETRY_DELAY)
+			{
+				scheduleUpdate(api, RETRY_DELAY, retry + 1);
+			}
+		});
+	}
+
+	private void clearPendingUpdate(CompletableFuture<String> update)
+	{
+		lock.lock();
+		try
+		{
+			if(pendingUpdate == update)
+			{
+				pendingUpdate = null;
 			}
-			return authToken;
 		}
 		finally
 		{
-			lock.updateLock().unlock();
+			lock.unlock();
 		}
 	}
-	
+
 }
@@ -1,7 +1,10 @@
 package org.osumm.apiv2;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
 
 import org.osumm.apiv2.impl.JavaHttpClientProvider;
 
@@ -45,4 +48,116 @@ public interface HttpClientProviderBase
 	 */
 	public String get(URL url, int timeout, String authToken) throws IOException;
 	
+	/**
+	 * Makes POST call to specific URL and passes response body stream to provided reader. 
+	 * Default implementation reads body with {@link #post(URL, String, int, String) post} first, 
+	 * providers should override it to avoid intermediate String copy.
+	 * @param url - destination
+	 * @param params - POST parameters body
+	 * @param timeout - connection timeout
+	 * @param authToken - authentication token
+	 * @param reader - response body reader
+	 */
+	public default <T> T post(URL url, String params, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		return reader.read(new ByteArrayInputStream(post(url, params, timeout, authToken).getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Makes GET call to specific URL and passes response body stream to provided reader. 
+	 * Default implementation reads body with {@link #get(URL, int, String) get} first, 
+	 * providers should override it to avoid intermediate String copy.
+	 * @param url - destination (with parameters)
+	 * @param timeout - connection timeout
+	 * @param authToken - authentication token
+	 * @param reader - response body reader
+	 */
+	public default <T> T get(URL url, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		return reader.read(new ByteArrayInputStream(get(url, timeout, authToken).getBytes(StandardCharsets.UTF_8)));
+	}
+	
+	/**
+	 * Registers listener which will be notified about every response received by this provider. 
+	 * Default implementation ignores listeners, so response headers based features (like rate limit adjustments) are disabled.
+	 * @param listener - response listener
+	 */
+	public default void addResponseListener(HttpResponseListener listener)
+	{
+	}
+	
+	/**
+	 * Makes asynchronous POST call to specific URL. 
+	 * @param url - destination
+	 * @param params - POST parameters body
+	 * @param timeout - connection timeout
+	 * @param authToken - authentication token
+	 * @return future completed with response body or exceptionally with {@link IOException}
+	 */
+	public default CompletableFuture<String> postAsync(URL url, String params, int timeout, String authToken)
+	{
+		return postAsync(url, params, timeout, authToken, ResponseReader.utf8String());
+	}
+	
+	/**
+	 * Makes asynchronous GET call to specific URL with provided authentication token. 
+	 * @param url - destination (with parameters)
+	 * @param timeout - connection timeout
+	 * @param authToken - authentication token
+	 * @return future completed with response body or exceptionally with {@link IOException}
+	 */
+	public default CompletableFuture<String> getAsync(URL url, int timeout, String authToken)
+	{
+		return getAsync(url, timeout, authToken, ResponseReader.utf8String());
+	}
+	
+	/**
+	 * Makes asynchronous POST call to specific URL and passes response body stream to provided reader. 
+	 * Default implementation performs blocking {@link #post(URL, String, int, String, ResponseReader) post} on calling thread, 
+	 * providers capable of non-blocking IO should override it.
+	 * @param url - destination
+	 * @param params - POST parameters body
+	 * @param timeout - connection timeout
+	 * @param authToken - authentication token
+	 * @param reader - response body reader
+	 * @return future completed with reader result or exceptionally with {@link IOException}
+	 */
+	public default <T> CompletableFuture<T> postAsync(URL url, String params, int timeout, String authToken, ResponseReader<T> reader)
+	{
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try
+		{
+			future.complete(post(url, params, timeout, authToken, reader));
+		}
+		catch(IOException | RuntimeException e)
+		{
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
+	/**
+	 * Makes asynchronous GET call to specific URL and passes response body stream to provided reader. 
+	 * Default implementation performs blocking {@link #get(URL, int, String, ResponseReader) get} on calling thread, 
+	 * providers capable of non-blocking IO should override it.
+	 * @param url - destination (with parameters)
+	 * @param timeout - connection timeout
+	 * @param authToken - authentication token
+	 * @param reader - response body reader
+	 * @return future completed with reader result or exceptionally with {@link IOException}
+	 */
+	public default <T> CompletableFuture<T> getAsync(URL url, int timeout, String authToken, ResponseReader<T> reader)
+	{
+		CompletableFuture<T> future = new CompletableFuture<>();
+		try
+		{
+			future.complete(get(url, timeout, authToken, reader));
+		}
+		catch(IOException | RuntimeException e)
+		{
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
 }
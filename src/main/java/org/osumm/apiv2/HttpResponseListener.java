@@ -0,0 +1,37 @@
+package org.osumm.apiv2;
+
+import java.net.URL;
+import java.util.function.Function;
+
+/**
+ * Callback notified by {@link HttpClientProviderBase} implementations about every received HTTP response, 
+ * including non-200 ones which are later turned into exceptions.
+ * @author Master-chan
+ *
+ */
+public interface HttpResponseListener
+{
+	
+	/**
+	 * Called on thread which received response, implementations should be fast and must not throw.
+	 * @param url - request destination
+	 * @param statusCode - HTTP status code
+	 * @param headers - response header lookup by name, returns null for missing headers
+	 */
+	public void onResponse(URL url, int statusCode, Function<String, String> headers);
+	
+	/**
+	 * Called after response body was consumed, or right after {@link #onResponse(URL, int, Function) onResponse} for non-200 responses. 
+	 * Not called if reading body failed. Default implementation does nothing.
+	 * @param url - request destination
+	 * @param statusCode - HTTP status code
+	 * @param bytes - size of body as transferred (before decompression), 0 for non-200 responses
+	 * @param networkNanos - time from sending request until response headers were received 
+	 * (until whole body was received for providers buffering it)
+	 * @param readNanos - time spent reading body into response object, includes deserialization
+	 */
+	public default void onResponseComplete(URL url, int statusCode, long bytes, long networkNanos, long readNanos)
+	{
+	}
+	
+}
@@ -0,0 +1,85 @@
+package org.osumm.apiv2;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+
+/**
+ * Thrown by {@link HttpClientProviderBase} implementations for every non-200 response, 
+ * so callers can tell missing entities (404) from transient server failures (429, 5xx).
+ * @author Master-chan
+ *
+ */
+public class HttpStatusException extends IOException
+{
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 4170824375651954837L;
+	
+	@Getter private final int statusCode;
+	
+	/**
+	 * Delay requested by server with <code>Retry-After</code> header, -1 if there was none.
+	 */
+	@Getter private final long retryAfterMillis;
+	
+	public HttpStatusException(int statusCode)
+	{
+		this(statusCode, -1);
+	}
+	
+	public HttpStatusException(int statusCode, long retryAfterMillis)
+	{
+		super("HTTP Response code: " + statusCode);
+		this.statusCode = statusCode;
+		this.retryAfterMillis = retryAfterMillis;
+	}
+	
+	/**
+	 * @return true for 401, which API returns for expired or revoked token
+	 */
+	public boolean isUnauthorized()
+	{
+		return statusCode == 401;
+	}
+	
+	/**
+	 * @return true for 404, which API returns for missing users, beatmaps etc.
+	 */
+	public boolean isNotFound()
+	{
+		return statusCode == 404;
+	}
+	
+	/**
+	 * @return true for 5xx responses
+	 */
+	public boolean isServerError()
+	{
+		return statusCode >= 500 && statusCode < 600;
+	}
+	
+	/**
+	 * Parses <code>Retry-After</code> header value in seconds.
+	 * @return delay in milliseconds, -1 if header is missing or isn't number of seconds (HTTP dates aren't used by osu!)
+	 */
+	public static long parseRetryAfter(String header)
+	{
+		if(header == null)
+		{
+			return -1;
+		}
+		try
+		{
+			return TimeUnit.SECONDS.toMillis(Math.max(Long.parseLong(header.trim()), 0));
+		}
+		catch(NumberFormatException e)
+		{
+			return -1;
+		}
+	}
+	
+}
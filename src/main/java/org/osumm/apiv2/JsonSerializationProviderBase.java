@@ -1,6 +1,8 @@
 package org.osumm.apiv2;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
 
 import org.osumm.apiv2.impl.JacksonSerializationProvider;
 
@@ -19,6 +21,31 @@ public interface JsonSerializationProviderBase
 	 */
 	public <T> T fromJson(String data, Class<T> type) throws IOException;
 	
+	/**
+	 * Deserializes object from UTF-8 json stream. 
+	 * Default implementation reads whole stream into string, implementations should override it with streaming parser.
+	 * @param data - json stream, it is not closed by this method
+	 * @param type - object class
+	 */
+	public default <T> T fromJson(InputStream data, Class<T> type) throws IOException
+	{
+		return fromJson(ResponseReader.utf8String().read(data), type);
+	}
+	
+	/**
+	 * Deserializes only listed top-level properties of json object, everything else is left at default value. 
+	 * Implementations should skip unlisted subtrees in tokenizer instead of binding them, 
+	 * which saves most of parse time and garbage on heavy responses (user profile with achievements and badges).
+	 * Default implementation binds whole object.
+	 * @param data - json stream, it is not closed by this method
+	 * @param type - object class
+	 * @param fields - json names of top-level properties to bind, null binds all of them
+	 */
+	public default <T> T fromJson(InputStream data, Class<T> type, Set<String> fields) throws IOException
+	{
+		return fromJson(data, type);
+	}
+	
 	/**
 	 * Serializes object to json string.
 	 * @param data - object
@@ -1,17 +1,55 @@
 package org.osumm.apiv2;
 
+import java.io.Closeable;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
+import java.io.InterruptedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
+import org.osumm.apiv2.auth.FileTokenStore;
+import org.osumm.apiv2.auth.InMemoryTokenStore;
+import org.osumm.apiv2.auth.TokenStore;
+import org.osumm.apiv2.cache.InFlightRequests;
+import org.osumm.apiv2.cache.ResponseCache;
+import org.osumm.apiv2.cache.UsernameIndex;
+import org.osumm.apiv2.concurrent.BulkExecutor;
+import org.osumm.apiv2.concurrent.DaemonScheduler;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.concurrent.IoExecutor;
 import org.osumm.apiv2.endpoints.Endpoint;
+import org.osumm.apiv2.endpoints.EndpointFactory;
 import org.osumm.apiv2.endpoints.EndpointNotRegisteredException;
 import org.osumm.apiv2.endpoints.EndpointRegistrationException;
+import org.osumm.apiv2.endpoints.PageIterator;
+import org.osumm.apiv2.endpoints.PagedEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserRequest;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint;
 import org.osumm.apiv2.impl.JacksonSerializationProvider;
 import org.osumm.apiv2.impl.JavaHttpClientProvider;
+import org.osumm.apiv2.metrics.ApiMetrics;
+import org.osumm.apiv2.metrics.ApiMetricsListener;
+import org.osumm.apiv2.ratelimit.RateLimitExceededException;
+import org.osumm.apiv2.ratelimit.RateLimiter;
+import org.osumm.apiv2.ratelimit.RequestPriority;
+import org.osumm.apiv2.ratelimit.RequestScheduler;
+import org.osumm.apiv2.retry.CircuitBreaker;
+import org.osumm.apiv2.retry.CircuitOpenException;
+import org.osumm.apiv2.retry.HedgePolicy;
+import org.osumm.apiv2.retry.RetryPolicy;
 
 import lombok.AccessLevel;
 import lombok.Builder;
@@ -25,18 +63,37 @@ import lombok.Getter;
  * and {@link JsonSerializationProviderBase} using jackson json library but you can make own ones and provide them in builder.
  * <br/><br/>
  * <b>All API endpoints implementations should be registered using {@link #registerEndpoint(Class) registerEndpoint} before using.</b>
+ * <br/><br/>
+ * Outgoing requests are throttled by {@link RateLimiter} matching default osu! API quota, 
+ * provide own instance into builder to change limits or <code>null</code> to disable client-side limiting. 
+ * {@link RequestScheduler} wrapping the same limiter lets {@link RequestPriority#INTERACTIVE interactive} requests overtake queued bulk ones. 
+ * Transient failures (429, 5xx, network errors of idempotent endpoints) are retried with backoff according to {@link RetryPolicy}, 
+ * optional {@link CircuitBreaker} makes requests fail fast while osu! is unavailable. 
+ * With {@link HedgePolicy} slow requests to idempotent endpoints are duplicated and the first response wins.
+ * Responses of endpoints declaring {@link Endpoint#getCacheTtlMillis() cache TTL} can be cached by providing {@link ResponseCache}. 
+ * With {@link UsernameIndex} user requests by username seen before are made by id, so they hit the same cache entries as by-id ones. 
+ * Identical requests made concurrently share single HTTP call unless {@link #coalesceRequests coalesceRequests} is disabled. 
+ * Setting {@link #userBatchWindowMillis userBatchWindowMillis} enables micro-batching of by-id {@link GetUserEndpoint} requests 
+ * into {@link GetUsersEndpoint} calls (note that batched responses are {@link GetUsersEndpoint.CompactUser compact}). 
+ * Latency, HTTP statuses, response sizes and token refreshes are reported to {@link ApiMetricsListener} if one is provided, e.g. {@link ApiMetrics}.
+ * Auth tokens are kept in {@link TokenStore}, {@link FileTokenStore} lets processes on the same host and restarted ones reuse valid token. 
+ * Bulk lookups made with {@link #requestAll(Class, Collection) requestAll} run concurrently on {@link BulkExecutor} (virtual threads on Java 21+).
+ * Results of {@link PagedEndpoint paged endpoints} can be walked with {@link #stream(Class, Object) stream}, which loads 
+ * {@link #pageReadAhead pageReadAhead} pages ahead of consumer.
  * 
  * @author Master-chan
  *
  */
-@Builder
-public class OsuApi
+@Builder(buildMethodName = "instantiate")
+public class OsuApi implements Closeable
 {
 	
 	@Getter private final int version = 2;
 	
-	private final Map<Class<? extends Endpoint<?, ?>>, Endpoint<?, ?>> endpoints = new HashMap<>();
-	private final ReadWriteLock endpointsLock = new ReentrantReadWriteLock();
+	/**
+	 * Immutable registry replaced on every registration, so dispatch never takes a lock.
+	 */
+	private final AtomicReference<Map<Class<?>, Endpoint<?, ?>>> endpoints = new AtomicReference<>(Collections.emptyMap());
 
 	@Getter(AccessLevel.PACKAGE) private final long clientId;
 	@Getter(AccessLevel.PACKAGE) private final String clientSecret;
@@ -44,53 +101,144 @@ public class OsuApi
 	@Builder.Default @Getter private final String baseUrl = "https://osu.ppy.sh";
 	@Builder.Default @Getter private final HttpClientProviderBase httpClientProvider = new JavaHttpClientProvider();
 	@Builder.Default @Getter private final JsonSerializationProviderBase jsonSerializationProvider = new JacksonSerializationProvider();
+	@Builder.Default @Getter private final RateLimiter rateLimiter = new RateLimiter(1200, 200);
+	@Builder.Default @Getter private final RequestScheduler requestScheduler = null;
+	@Builder.Default @Getter private final RetryPolicy retryPolicy = RetryPolicy.builder().build();
+	@Builder.Default @Getter private final CircuitBreaker circuitBreaker = null;
+	@Builder.Default @Getter private final HedgePolicy hedgePolicy = null;
+	@Builder.Default @Getter private final ResponseCache responseCache = null;
+	@Builder.Default @Getter private final UsernameIndex usernameIndex = null;
+	@Builder.Default @Getter private final boolean coalesceRequests = true;
+	@Builder.Default @Getter private final long tokenRefreshMarginMillis = TimeUnit.MINUTES.toMillis(10);
+	@Builder.Default @Getter private final TokenStore tokenStore = new InMemoryTokenStore();
+	@Builder.Default @Getter private final long userBatchWindowMillis = 0;
+	@Builder.Default @Getter private final ApiMetricsListener metricsListener = null;
+	@Builder.Default @Getter private final BulkExecutor bulkExecutor = new BulkExecutor();
+	@Builder.Default @Getter private final int pageReadAhead = 4;
 	private final AuthHandler authHandler = new AuthHandler();
+	private final InFlightRequests inFlightRequests = new InFlightRequests();
+	private final UserRequestBatcher userBatcher = new UserRequestBatcher();
+	
+	public static class OsuApiBuilder
+	{
+		
+		/**
+		 * Builds API instance and subscribes its rate limiter and metrics listener to responses of http client provider.
+		 * @throws IllegalStateException if request scheduler doesn't wrap rate limiter of this instance
+		 */
+		public OsuApi build()
+		{
+			OsuApi api = instantiate();
+			if(api.requestScheduler != null && api.requestScheduler.getRateLimiter() != api.rateLimiter)
+			{
+				throw new IllegalStateException("Request scheduler should wrap rate limiter of API instance");
+			}
+			if(api.rateLimiter != null)
+			{
+				api.httpClientProvider.addResponseListener(api.rateLimiter);
+			}
+			if(api.metricsListener != null)
+			{
+				api.httpClientProvider.addResponseListener(api.metricsListener);
+			}
+			return api;
+		}
+		
+	}
 	
 	/**
-	 * Registers endpoint in this API instance.
+	 * Registers endpoint in this API instance. 
+	 * Endpoint class should have public constructor accepting (String baseUrl, HttpClientProviderBase, JsonSerializationProviderBase).
 	 * @param endpointClass - Class extending Endpoint
 	 * @throws EndpointRegistrationException - if exception was thrown during registration.
 	 */
 	public void registerEndpoint(Class<? extends Endpoint<?, ?>> endpointClass) throws EndpointRegistrationException
 	{
-		endpointsLock.writeLock().lock();
+		Endpoint<?, ?> endpointObject;
 		try
 		{
-			Endpoint<?, ?> endpointObject = (Endpoint<?, ?>) endpointClass.getConstructors()[0].newInstance(baseUrl, httpClientProvider, jsonSerializationProvider);
-			endpoints.put(endpointClass, endpointObject);
+			MethodHandle constructor = MethodHandles.publicLookup().findConstructor(endpointClass, 
+					MethodType.methodType(void.class, String.class, HttpClientProviderBase.class, JsonSerializationProviderBase.class));
+			endpointObject = (Endpoint<?, ?>) constructor.invoke(baseUrl, httpClientProvider, jsonSerializationProvider);
 		}
-		catch(InstantiationException | IllegalAccessException | IllegalArgumentException | InvocationTargetException | SecurityException e)
+		catch(Throwable e)
 		{
 			throw new EndpointRegistrationException(e);
 		}
-		finally
-		{
-			endpointsLock.writeLock().unlock();
-		}
+		putEndpoint(endpointClass, endpointObject);
 	}
 	
-	@SuppressWarnings("unchecked")
-	private <R, R1> Endpoint<R, R1> getEndpointInstance(Class<? extends Endpoint<R, R1>> endpointClass)
+	/**
+	 * Registers endpoint in this API instance using provided factory, usually endpoint constructor reference.
+	 * @param endpointClass - Class extending Endpoint
+	 * @param factory - endpoint factory
+	 * @throws EndpointRegistrationException - if exception was thrown during registration.
+	 */
+	public <E extends Endpoint<?, ?>> void registerEndpoint(Class<E> endpointClass, EndpointFactory<? extends E> factory) throws EndpointRegistrationException
 	{
-		endpointsLock.readLock().lock();
+		Endpoint<?, ?> endpointObject;
 		try
 		{
-			return (Endpoint<R, R1>) endpoints.get(endpointClass);
+			endpointObject = factory.create(baseUrl, httpClientProvider, jsonSerializationProvider);
 		}
-		finally
+		catch(RuntimeException e)
 		{
-			endpointsLock.readLock().unlock();
+			throw new EndpointRegistrationException(e);
 		}
+		putEndpoint(endpointClass, endpointObject);
+	}
+	
+	private void putEndpoint(Class<?> endpointClass, Endpoint<?, ?> endpointObject)
+	{
+		endpoints.updateAndGet(current -> 
+		{
+			Map<Class<?>, Endpoint<?, ?>> updated = new HashMap<>(current);
+			updated.put(endpointClass, endpointObject);
+			return Collections.unmodifiableMap(updated);
+		});
+	}
+	
+	/**
+	 * @return whether endpoint class was registered with {@link #registerEndpoint(Class) registerEndpoint}
+	 */
+	public boolean isEndpointRegistered(Class<? extends Endpoint<?, ?>> endpointClass)
+	{
+		return endpoints.get().containsKey(endpointClass);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private <R, R1> Endpoint<R, R1> getEndpointInstance(Class<? extends Endpoint<R, R1>> endpointClass)
+	{
+		return (Endpoint<R, R1>) endpoints.get().get(endpointClass);
 	}
 	
 	/**
-	 * Forcifully (re)generates current auth token. You probably shouldn't use this method unless you want to avoid lazy loading and refreshing.
+	 * Forcifully (re)generates current auth token. You probably shouldn't use this method unless you want to avoid lazy loading. 
+	 * Tokens are refreshed in background {@link #tokenRefreshMarginMillis tokenRefreshMarginMillis} before expiration anyway.
 	 * @return new auth token
 	 */
 	public String regenerateAuthToken() throws IOException
 	{
 		return authHandler.updateAuthToken(this);
 	}
+	
+	/**
+	 * @return number of auth token requests failed in a row, 0 if last one succeeded
+	 */
+	public int getTokenRefreshFailures()
+	{
+		return authHandler.getConsecutiveFailures();
+	}
+
+	/**
+	 * Stops background refresh of auth token, so instance which isn't needed anymore doesn't keep requesting tokens.
+	 * Instance stays usable, its token is then refreshed by requests once it expires.
+	 */
+	@Override
+	public void close()
+	{
+		authHandler.close();
+	}
 
 	/**
 	 * Makes a request to provided endpoint class.
@@ -98,16 +246,656 @@ public class OsuApi
 	 * @param request - request body object.
 	 * @return Response object.
 	 * @throws EndpointNotRegisteredException endpoint with provided class wasn't registered.
-	 * @throws IOException propagates any IO exceptions from http and serialization providers. IOExceptions with code 404 on default HTTP provider usually indicate that requested entity (for example player) wasn't found.
+	 * @throws IOException propagates any IO exceptions from http and serialization providers once {@link RetryPolicy} gave up.
+	 * @throws HttpStatusException non-200 response, {@link HttpStatusException#isNotFound() 404} usually indicates that requested entity (for example player) wasn't found.
+	 * @throws RateLimitExceededException permit of {@link RateLimiter} wasn't available within its wait time.
+	 * @throws CircuitOpenException {@link CircuitBreaker} is open.
 	 * @throws IllegalArgumentException endpoint implementation specific exception indicating there was an error in request object
 	 */
 	public <R, R1> R1 request(Class<? extends Endpoint<R, R1>> endpointClass, R request) throws EndpointNotRegisteredException, IOException
+	{
+		return request(endpointClass, request, RequestPriority.NORMAL);
+	}
+	
+	/**
+	 * Makes a request to provided endpoint class, see {@link #request(Class, Object)}. 
+	 * @param priority - priority of request in {@link RequestScheduler} queue, ignored if there is no scheduler. 
+	 * Identical requests made concurrently share single call made with priority of the first one.
+	 */
+	public <R, R1> R1 request(Class<? extends Endpoint<R, R1>> endpointClass, R request, RequestPriority priority) throws EndpointNotRegisteredException, IOException
+	{
+		if(metricsListener == null)
+		{
+			return dispatch(endpointClass, request, priority);
+		}
+		long start = System.nanoTime();
+		R1 value;
+		try
+		{
+			value = dispatch(endpointClass, request, priority);
+		}
+		catch(Throwable e)
+		{
+			metricsListener.onRequest(endpointClass, System.nanoTime() - start, e);
+			throw e;
+		}
+		metricsListener.onRequest(endpointClass, System.nanoTime() - start, null);
+		return value;
+	}
+	
+	/**
+	 * Makes blocking requests to provided endpoint class concurrently, each of them goes through the same rate limiting, 
+	 * retries, caching and coalescing as {@link #request(Class, Object) request}. 
+	 * Calls are run by {@link BulkExecutor}: on virtual threads on Java 21+, on bounded platform threads pool otherwise, 
+	 * sequentially on calling thread if it is null.
+	 * <br/>
+	 * <b>Example:</b>
+	 * <pre>
+	 * {@code
+	 * List<GetUserResponse> users = api.requestAll(GetUserEndpoint.class, userIds.stream().map(id -> GetUserRequest.builder().userId(id).build()).collect(Collectors.toList()));
+	 * }
+	 * </pre>
+	 * @param endpointClass - class of endpoint. Should be registered with {@link #registerEndpoint(Class) registerEndpoint} before usage.
+	 * @param requests - request body objects.
+	 * @return Response objects in order of requests.
+	 * @throws EndpointNotRegisteredException endpoint with provided class wasn't registered.
+	 * @throws IOException first failure of any request (see {@link #request(Class, Object) request}), remaining requests are cancelled.
+	 */
+	public <R, R1> List<R1> requestAll(Class<? extends Endpoint<R, R1>> endpointClass, Collection<? extends R> requests) throws EndpointNotRegisteredException, IOException
+	{
+		return requestAll(endpointClass, requests, RequestPriority.NORMAL);
+	}
+	
+	/**
+	 * Makes blocking requests to provided endpoint class concurrently, see {@link #requestAll(Class, Collection)}.
+	 * @param priority - priority of requests in {@link RequestScheduler} queue, usually {@link RequestPriority#BULK BULK}.
+	 */
+	public <R, R1> List<R1> requestAll(Class<? extends Endpoint<R, R1>> endpointClass, Collection<? extends R> requests, RequestPriority priority) throws EndpointNotRegisteredException, IOException
+	{
+		if(!isEndpointRegistered(endpointClass)) { throw new EndpointNotRegisteredException(endpointClass); }
+		if(bulkExecutor == null)
+		{
+			List<R1> responses = new ArrayList<>(requests.size());
+			for(R request : requests)
+			{
+				responses.add(request(endpointClass, request, priority));
+			}
+			return responses;
+		}
+		return bulkExecutor.invokeAll(requests, request -> 
+		{
+			try
+			{
+				return request(endpointClass, request, priority);
+			}
+			catch(EndpointNotRegisteredException e)
+			{
+				// Checked above and endpoints are never unregistered
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+	
+	/**
+	 * Walks pages of provided paged endpoint lazily, see {@link PageIterator}. 
+	 * Pages are requested like {@link #request(Class, Object) request} does, in background, {@link #pageReadAhead pageReadAhead} of them ahead of consumer.
+	 * @param endpointClass - class of paged endpoint. Should be registered with {@link #registerEndpoint(Class) registerEndpoint} before usage.
+	 * @param request - request of first page.
+	 * @return iterator over items of all pages, it should be closed if it isn't consumed to the end.
+	 * @throws EndpointNotRegisteredException endpoint with provided class wasn't registered.
+	 */
+	public <R, P, T> PageIterator<R, P, T> iterate(Class<? extends PagedEndpoint<R, P, T>> endpointClass, R request) throws EndpointNotRegisteredException
+	{
+		return iterate(endpointClass, request, RequestPriority.NORMAL);
+	}
+	
+	/**
+	 * Walks pages of provided paged endpoint lazily, see {@link #iterate(Class, Object)}.
+	 * @param priority - priority of page requests in {@link RequestScheduler} queue.
+	 */
+	@SuppressWarnings("unchecked")
+	public <R, P, T> PageIterator<R, P, T> iterate(Class<? extends PagedEndpoint<R, P, T>> endpointClass, R request, RequestPriority priority) throws EndpointNotRegisteredException
+	{
+		PagedEndpoint<R, P, T> endpoint = (PagedEndpoint<R, P, T>) getEndpointInstance(endpointClass);
+		if(endpoint == null) { throw new EndpointNotRegisteredException(endpointClass); }
+		// Pages are loaded by blocking calls, so prefetching doesn't depend on http provider being asynchronous
+		return new PageIterator<>(endpoint, request, page -> IoExecutor.submit(() -> request(endpointClass, page, priority)), pageReadAhead);
+	}
+	
+	/**
+	 * Streams items of all pages of provided paged endpoint lazily, see {@link #iterate(Class, Object)}. 
+	 * Failed page is thrown as {@link java.io.UncheckedIOException UncheckedIOException}.
+	 * <br/>
+	 * <b>Example:</b>
+	 * <pre>
+	 * {@code
+	 * try(Stream<RankingEntry> ranking = api.stream(GetRankingEndpoint.class, GetRankingRequest.builder().mode(GameMode.OSU).build()))
+	 * {
+	 * 	ranking.filter(entry -> "JP".equals(entry.getUser().getCountryCode())).limit(100).forEach(System.out::println);
+	 * }
+	 * }
+	 * </pre>
+	 * @return stream over items of all pages, it should be closed if it isn't consumed to the end.
+	 */
+	public <R, P, T> Stream<T> stream(Class<? extends PagedEndpoint<R, P, T>> endpointClass, R request) throws EndpointNotRegisteredException
+	{
+		return iterate(endpointClass, request).stream();
+	}
+	
+	/**
+	 * Streams items of all pages of provided paged endpoint lazily, see {@link #stream(Class, Object)}.
+	 * @param priority - priority of page requests in {@link RequestScheduler} queue.
+	 */
+	public <R, P, T> Stream<T> stream(Class<? extends PagedEndpoint<R, P, T>> endpointClass, R request, RequestPriority priority) throws EndpointNotRegisteredException
+	{
+		return iterate(endpointClass, request, priority).stream();
+	}
+	
+	private <R, R1> R1 dispatch(Class<? extends Endpoint<R, R1>> endpointClass, R request, RequestPriority priority) throws EndpointNotRegisteredException, IOException
 	{
 		Endpoint<R, R1> endpoint = getEndpointInstance(endpointClass);
 		if(endpoint == null) { throw new EndpointNotRegisteredException(endpointClass); }
-		String authToken = authHandler.getAuthToken(this);
-		R1 value = endpoint.request(request, authToken);
+		R byIdRequest = toByIdRequest(endpointClass, request);
+		if(byIdRequest != null)
+		{
+			try
+			{
+				R1 value = lookup(endpoint, endpointClass, byIdRequest, priority);
+				if(isRequestedUser(request, value)) { return value; }
+			}
+			catch(HttpStatusException e)
+			{
+				if(!e.isNotFound()) { throw e; }
+			}
+			// Stale mapping of renamed or deleted user, username is resolved by API again
+			usernameIndex.invalidate(((GetUserRequest) request).getUsername());
+		}
+		return lookup(endpoint, endpointClass, request, priority);
+	}
+	
+	private <R, R1> R1 lookup(Endpoint<R, R1> endpoint, Class<? extends Endpoint<R, R1>> endpointClass, R request, RequestPriority priority) throws IOException
+	{
+		long cacheTtl = responseCache != null ? responseCache.getTtlMillis(endpoint) : 0;
+		if(cacheTtl > 0)
+		{
+			R1 cached = responseCache.get(endpointClass, request);
+			if(cached != null) { return cached; }
+		}
+		if(!coalesceRequests)
+		{
+			return execute(endpoint, endpointClass, request, cacheTtl, priority);
+		}
+		return inFlightRequests.execute(endpointClass, request, () -> execute(endpoint, endpointClass, request, cacheTtl, priority));
+	}
+	
+	private <R, R1> R1 execute(Endpoint<R, R1> endpoint, Class<? extends Endpoint<R, R1>> endpointClass, R request, long cacheTtl, RequestPriority priority) throws IOException
+	{
+		R1 value;
+		if(userBatcher.accepts(this, endpointClass, request))
+		{
+			value = Futures.await(userBatcher.submit(this, request, priority));
+		}
+		else
+		{
+			value = executeWithRetry(endpoint, request, priority);
+		}
+		if(cacheTtl > 0) { responseCache.put(endpointClass, request, value, cacheTtl); }
+		if(usernameIndex != null) { usernameIndex.index(value); }
 		return value;
 	}
+	
+	/**
+	 * @return by-id copy of user request by username which is known to {@link #usernameIndex usernameIndex}, null for any other request
+	 */
+	@SuppressWarnings("unchecked")
+	private <R> R toByIdRequest(Class<?> endpointClass, R request)
+	{
+		if(usernameIndex == null || endpointClass != GetUserEndpoint.class)
+		{
+			return null;
+		}
+		GetUserRequest userRequest = (GetUserRequest) request;
+		if(userRequest.getUserId() >= 1 || userRequest.getUsername() == null)
+		{
+			return null;
+		}
+		long userId = usernameIndex.getUserId(userRequest.getUsername());
+		return userId < 1 ? null : (R) GetUserRequest.builder().userId(userId).mode(userRequest.getMode()).fields(userRequest.getFields()).build();
+	}
+	
+	/**
+	 * User renamed since being indexed is requested again by username, as the name may belong to someone else now. 
+	 * Responses without username (not listed in requested fields) are trusted.
+	 */
+	private boolean isRequestedUser(Object request, Object response)
+	{
+		String username = ((GetUserResponse) response).getUsername();
+		return username == null || UsernameIndex.isSameUsername(((GetUserRequest) request).getUsername(), username);
+	}
+	
+	private <R, R1> R1 executeWithRetry(Endpoint<R, R1> endpoint, R request, RequestPriority priority) throws IOException
+	{
+		for(int attempt = 1;; attempt++)
+		{
+			try
+			{
+				return attempt(endpoint, request, priority);
+			}
+			catch(IOException e)
+			{
+				long delay = retryPolicy != null ? retryPolicy.getDelayMillis(attempt, e, endpoint.isIdempotent()) : -1;
+				if(delay < 0)
+				{
+					throw e;
+				}
+				try
+				{
+					Thread.sleep(delay);
+				}
+				catch(InterruptedException ie)
+				{
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for retry");
+				}
+			}
+		}
+	}
+	
+	private <R, R1> R1 attempt(Endpoint<R, R1> endpoint, R request, RequestPriority priority) throws IOException
+	{
+		if(circuitBreaker != null) { circuitBreaker.acquire(); }
+		R1 value;
+		try
+		{
+			if(requestScheduler != null)
+			{
+				requestScheduler.acquire(priority);
+			}
+			else if(rateLimiter != null)
+			{
+				rateLimiter.acquire();
+			}
+			String authToken = authHandler.getAuthToken(this);
+			try
+			{
+				value = call(endpoint, request, authToken);
+			}
+			catch(HttpStatusException e)
+			{
+				if(!e.isUnauthorized())
+				{
+					throw e;
+				}
+				// Token was revoked before its expiration, request is repeated once with new one
+				authHandler.invalidateAuthToken(this, authToken);
+				value = call(endpoint, request, authHandler.getAuthToken(this));
+			}
+		}
+		catch(IOException | RuntimeException e)
+		{
+			if(circuitBreaker != null) { circuitBreaker.onResult(e); }
+			throw e;
+		}
+		if(circuitBreaker != null) { circuitBreaker.onResult(null); }
+		return value;
+	}
+	
+	/**
+	 * Calls endpoint, hedging the call if {@link #hedgePolicy hedgePolicy} is set and endpoint is idempotent.
+	 */
+	private <R, R1> R1 call(Endpoint<R, R1> endpoint, R request, String authToken) throws IOException
+	{
+		if(hedgePolicy == null || !endpoint.isIdempotent())
+		{
+			return endpoint.request(request, authToken);
+		}
+		long delay = hedgePolicy.onAttempt(endpoint.getClass());
+		// Without executor thread available attempt stays on calling thread and isn't hedged
+		if(delay < 0 || !hedgePolicy.tryStartCall())
+		{
+			long start = System.nanoTime();
+			R1 value = endpoint.request(request, authToken);
+			hedgePolicy.recordLatency(endpoint.getClass(), System.nanoTime() - start);
+			return value;
+		}
+		// Call leaves calling thread, so it can be abandoned once hedge responds
+		CompletableFuture<R1> response = hedge(endpoint, request, authToken, timedCall(endpoint, request, authToken), delay);
+		try
+		{
+			return Futures.await(response);
+		}
+		finally
+		{
+			response.cancel(true);
+		}
+	}
+	
+	private <R, R1> CompletableFuture<R1> callAsync(Endpoint<R, R1> endpoint, R request, String authToken)
+	{
+		if(hedgePolicy == null || !endpoint.isIdempotent())
+		{
+			return endpoint.requestAsync(request, authToken);
+		}
+		long delay = hedgePolicy.onAttempt(endpoint.getClass());
+		long start = System.nanoTime();
+		CompletableFuture<R1> response = endpoint.requestAsync(request, authToken);
+		response.thenRun(() -> hedgePolicy.recordLatency(endpoint.getClass(), System.nanoTime() - start));
+		return delay < 0 ? response : hedge(endpoint, request, authToken, response, delay);
+	}
+	
+	/**
+	 * Async call which is repeated once with new token if API rejects current one, see {@link #attempt(Endpoint, Object, RequestPriority) attempt}.
+	 */
+	private <R, R1> CompletableFuture<R1> authorizedCallAsync(Endpoint<R, R1> endpoint, R request, String authToken)
+	{
+		CompletableFuture<R1> result = new CompletableFuture<>();
+		callAsync(endpoint, request, authToken).whenComplete((value, e) -> 
+		{
+			Throwable error = e == null ? null : Futures.unwrap(e);
+			if(!(error instanceof HttpStatusException) || !((HttpStatusException) error).isUnauthorized())
+			{
+				if(error == null)
+				{
+					result.complete(value);
+				}
+				else
+				{
+					result.completeExceptionally(error);
+				}
+				return;
+			}
+			authHandler.invalidateAuthToken(this, authToken);
+			authHandler.getAuthTokenAsync(this)
+					.thenCompose(renewed -> callAsync(endpoint, request, renewed))
+					.whenComplete((retried, retryError) -> 
+					{
+						if(retryError == null)
+						{
+							result.complete(retried);
+						}
+						else
+						{
+							result.completeExceptionally(Futures.unwrap(retryError));
+						}
+					});
+		});
+		return result;
+	}
+	
+	/**
+	 * Blocking call on {@link IoExecutor}, cancelling it interrupts the call. 
+	 * Caller reserves thread with {@link HedgePolicy#tryStartCall() tryStartCall}, it is released once call leaves executor.
+	 */
+	private <R, R1> CompletableFuture<R1> timedCall(Endpoint<R, R1> endpoint, R request, String authToken)
+	{
+		return IoExecutor.submit(() -> 
+		{
+			long start = System.nanoTime();
+			R1 value = endpoint.request(request, authToken);
+			hedgePolicy.recordLatency(endpoint.getClass(), System.nanoTime() - start);
+			return value;
+		}, hedgePolicy::onCallFinished);
+	}
+	
+	/**
+	 * Sends hedge of call which hasn't completed within delay if hedge budget, executor threads and rate limiter allow it. 
+	 * First response wins and the other call is cancelled. Failure of original call fails attempt right away, failed hedge is ignored.
+	 */
+	private <R, R1> CompletableFuture<R1> hedge(Endpoint<R, R1> endpoint, R request, String authToken, CompletableFuture<R1> original, long delayNanos)
+	{
+		CompletableFuture<R1> result = new CompletableFuture<>();
+		original.whenComplete((value, e) -> 
+		{
+			if(e == null)
+			{
+				result.complete(value);
+			}
+			else
+			{
+				result.completeExceptionally(Futures.unwrap(e));
+			}
+		});
+		if(result.isDone())
+		{
+			return result;
+		}
+		AtomicReference<CompletableFuture<R1>> hedge = new AtomicReference<>();
+		ScheduledFuture<?> timer = DaemonScheduler.get().schedule(() -> 
+		{
+			if(result.isDone() || !hedgePolicy.tryStartCall())
+			{
+				return;
+			}
+			if(!hedgePolicy.tryHedge() || !tryAcquirePermit())
+			{
+				hedgePolicy.onCallFinished();
+				return;
+			}
+			CompletableFuture<R1> sent = timedCall(endpoint, request, authToken);
+			hedge.set(sent);
+			sent.thenAccept(value -> 
+			{
+				if(result.complete(value))
+				{
+					hedgePolicy.onHedgeWon();
+				}
+			});
+			// Result might have completed before hedge was published
+			if(result.isDone())
+			{
+				sent.cancel(true);
+			}
+		}, delayNanos, TimeUnit.NANOSECONDS);
+		result.whenComplete((value, e) -> 
+		{
+			timer.cancel(false);
+			original.cancel(true);
+			CompletableFuture<R1> sent = hedge.get();
+			if(sent != null)
+			{
+				sent.cancel(true);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Takes rate limit permit for hedge, hedges never wait in queue of {@link #requestScheduler requestScheduler}.
+	 */
+	private boolean tryAcquirePermit()
+	{
+		if(requestScheduler != null)
+		{
+			return requestScheduler.tryAcquire();
+		}
+		return rateLimiter == null || rateLimiter.tryAcquire();
+	}
+	
+	/**
+	 * Makes a non-blocking request to provided endpoint class. 
+	 * Whether calling thread is actually released depends on {@link HttpClientProviderBase} in use: 
+	 * default {@link JavaHttpClientProvider} is blocking, while {@link org.osumm.apiv2.impl.OkHttpClientProvider OkHttpClientProvider} 
+	 * and {@code Java11HttpClientProvider} (Java 11+) are fully asynchronous.
+	 * @param endpointClass - class of endpoint. Should be registered with {@link #registerEndpoint(Class) registerEndpoint} before usage.
+	 * @param request - request body object.
+	 * @return Future of response object. Completes exceptionally with {@link EndpointNotRegisteredException} if endpoint wasn't registered, 
+	 * with {@link IOException} from http and serialization providers (including {@link HttpStatusException}, 
+	 * {@link RateLimitExceededException} and {@link CircuitOpenException}) 
+	 * or with {@link IllegalArgumentException} on invalid request object.
+	 */
+	public <R, R1> CompletableFuture<R1> requestAsync(Class<? extends Endpoint<R, R1>> endpointClass, R request)
+	{
+		return requestAsync(endpointClass, request, RequestPriority.NORMAL);
+	}
+	
+	/**
+	 * Makes a non-blocking request to provided endpoint class, see {@link #requestAsync(Class, Object)}. 
+	 * @param priority - priority of request in {@link RequestScheduler} queue, ignored if there is no scheduler. 
+	 * Identical requests made concurrently share single call made with priority of the first one.
+	 */
+	public <R, R1> CompletableFuture<R1> requestAsync(Class<? extends Endpoint<R, R1>> endpointClass, R request, RequestPriority priority)
+	{
+		if(metricsListener == null)
+		{
+			return dispatchAsync(endpointClass, request, priority);
+		}
+		long start = System.nanoTime();
+		CompletableFuture<R1> response = dispatchAsync(endpointClass, request, priority);
+		response.whenComplete((value, e) -> metricsListener.onRequest(endpointClass, System.nanoTime() - start, e == null ? null : Futures.unwrap(e)));
+		return response;
+	}
+	
+	private <R, R1> CompletableFuture<R1> dispatchAsync(Class<? extends Endpoint<R, R1>> endpointClass, R request, RequestPriority priority)
+	{
+		Endpoint<R, R1> endpoint = getEndpointInstance(endpointClass);
+		if(endpoint == null)
+		{
+			return Futures.failed(new EndpointNotRegisteredException(endpointClass));
+		}
+		R byIdRequest = toByIdRequest(endpointClass, request);
+		if(byIdRequest == null)
+		{
+			return lookupAsync(endpoint, endpointClass, request, priority);
+		}
+		CompletableFuture<R1> result = new CompletableFuture<>();
+		lookupAsync(endpoint, endpointClass, byIdRequest, priority).whenComplete((value, e) -> 
+		{
+			if(e == null && isRequestedUser(request, value))
+			{
+				result.complete(value);
+				return;
+			}
+			Throwable cause = e != null ? Futures.unwrap(e) : null;
+			if(cause != null && !(cause instanceof HttpStatusException && ((HttpStatusException) cause).isNotFound()))
+			{
+				result.completeExceptionally(cause);
+				return;
+			}
+			usernameIndex.invalidate(((GetUserRequest) request).getUsername());
+			lookupAsync(endpoint, endpointClass, request, priority).whenComplete((retried, retryFailure) -> 
+			{
+				if(retryFailure == null)
+				{
+					result.complete(retried);
+				}
+				else
+				{
+					result.completeExceptionally(Futures.unwrap(retryFailure));
+				}
+			});
+		});
+		return result;
+	}
+	
+	private <R, R1> CompletableFuture<R1> lookupAsync(Endpoint<R, R1> endpoint, Class<? extends Endpoint<R, R1>> endpointClass, R request, RequestPriority priority)
+	{
+		long cacheTtl = responseCache != null ? responseCache.getTtlMillis(endpoint) : 0;
+		if(cacheTtl > 0)
+		{
+			R1 cached = responseCache.get(endpointClass, request);
+			if(cached != null) { return CompletableFuture.completedFuture(cached); }
+		}
+		if(!coalesceRequests)
+		{
+			return executeAsync(endpoint, endpointClass, request, cacheTtl, priority);
+		}
+		return inFlightRequests.executeAsync(endpointClass, request, () -> executeAsync(endpoint, endpointClass, request, cacheTtl, priority));
+	}
+	
+	<R, R1> CompletableFuture<R1> executeAsync(Endpoint<R, R1> endpoint, Class<? extends Endpoint<R, R1>> endpointClass, R request, long cacheTtl, RequestPriority priority)
+	{
+		CompletableFuture<R1> response;
+		if(userBatcher.accepts(this, endpointClass, request))
+		{
+			response = userBatcher.submit(this, request, priority);
+		}
+		else
+		{
+			response = executeWithRetryAsync(endpoint, request, priority, 1);
+		}
+		if(cacheTtl > 0)
+		{
+			response = response.thenApply(value -> 
+			{
+				responseCache.put(endpointClass, request, value, cacheTtl);
+				return value;
+			});
+		}
+		if(usernameIndex != null)
+		{
+			response = response.thenApply(value -> 
+			{
+				usernameIndex.index(value);
+				return value;
+			});
+		}
+		return response;
+	}
+	
+	private <R, R1> CompletableFuture<R1> executeWithRetryAsync(Endpoint<R, R1> endpoint, R request, RequestPriority priority, int attempt)
+	{
+		CompletableFuture<R1> result = new CompletableFuture<>();
+		attemptAsync(endpoint, request, priority).whenComplete((value, e) -> 
+		{
+			if(e == null)
+			{
+				result.complete(value);
+				return;
+			}
+			Throwable error = Futures.unwrap(e);
+			long delay = retryPolicy != null ? retryPolicy.getDelayMillis(attempt, error, endpoint.isIdempotent()) : -1;
+			if(delay < 0)
+			{
+				result.completeExceptionally(error);
+				return;
+			}
+			// Next attempt might block on synchronous http providers, so it is not run on scheduler thread
+			DaemonScheduler.get().schedule(() -> CompletableFuture.runAsync(() -> executeWithRetryAsync(endpoint, request, priority, attempt + 1)
+					.whenComplete((retried, retryError) -> 
+					{
+						if(retryError == null)
+						{
+							result.complete(retried);
+						}
+						else
+						{
+							result.completeExceptionally(retryError);
+						}
+					}), IoExecutor.get()), delay, TimeUnit.MILLISECONDS);
+		});
+		return result;
+	}
+	
+	private <R, R1> CompletableFuture<R1> attemptAsync(Endpoint<R, R1> endpoint, R request, RequestPriority priority)
+	{
+		if(circuitBreaker != null)
+		{
+			try
+			{
+				circuitBreaker.acquire();
+			}
+			catch(CircuitOpenException e)
+			{
+				return Futures.failed(e);
+			}
+		}
+		CompletableFuture<Void> permit;
+		if(requestScheduler != null)
+		{
+			permit = requestScheduler.acquireAsync(priority);
+		}
+		else
+		{
+			permit = rateLimiter != null ? rateLimiter.acquireAsync() : CompletableFuture.completedFuture(null);
+		}
+		CompletableFuture<R1> response = permit
+				.thenCompose(ignored -> authHandler.getAuthTokenAsync(this))
+				.thenCompose(authToken -> authorizedCallAsync(endpoint, request, authToken));
+		if(circuitBreaker != null)
+		{
+			response.whenComplete((value, e) -> circuitBreaker.onResult(e == null ? null : Futures.unwrap(e)));
+		}
+		return response;
+	}
 
 }
@@ -0,0 +1,41 @@
+package org.osumm.apiv2;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Consumer of HTTP response body. Allows {@link HttpClientProviderBase} implementations 
+ * to hand (already decompressed) response stream straight to json parser without buffering it into String first.
+ * @author Master-chan
+ *
+ * @param <T> result data type
+ */
+@FunctionalInterface
+public interface ResponseReader<T>
+{
+	
+	/**
+	 * Reads response body. Stream is closed by provider after this method returns.
+	 * @param body - response body stream
+	 */
+	public T read(InputStream body) throws IOException;
+	
+	/**
+	 * @return reader buffering whole body into UTF-8 string
+	 */
+	public static ResponseReader<String> utf8String()
+	{
+		return body -> 
+		{
+			byte[] buf = new byte[8192];
+			ByteArrayOutputStream outputStream = new ByteArrayOutputStream(buf.length);
+			for(int len; (len = body.read(buf)) > 0;)
+			{
+				outputStream.write(buf, 0, len);
+			}
+			return outputStream.toString("UTF-8");
+		};
+	}
+	
+}
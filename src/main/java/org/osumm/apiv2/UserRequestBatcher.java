@@ -0,0 +1,169 @@
+package org.osumm.apiv2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osumm.apiv2.concurrent.DaemonScheduler;
+import org.osumm.apiv2.concurrent.IoExecutor;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserRequest;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.CompactUser;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersRequest;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersResponse;
+import org.osumm.apiv2.ratelimit.RequestPriority;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Micro-batcher turning concurrent by-id {@link GetUserEndpoint} requests into {@link GetUsersEndpoint} calls. 
+ * Requests are collected for {@link OsuApi#getUserBatchWindowMillis() userBatchWindowMillis} or until 
+ * {@link GetUsersEndpoint#MAX_IDS} distinct users are queued, then sent as single call taking single rate limit permit. 
+ * Requests for different game modes are batched separately, batch is sent with highest {@link RequestPriority} of its requests.
+ * @author Master-chan
+ *
+ */
+class UserRequestBatcher
+{
+	
+	private final Lock lock = new ReentrantLock();
+	
+	// Guarded by lock
+	private final Map<GameMode, Batch> pending = new HashMap<>();
+	private GetUsersEndpoint endpoint;
+	
+	/**
+	 * @return true if batching is enabled and request can be served by batch endpoint
+	 */
+	boolean accepts(OsuApi api, Class<?> endpointClass, Object request)
+	{
+		return api.getUserBatchWindowMillis() > 0 
+				&& endpointClass == GetUserEndpoint.class 
+				&& ((GetUserRequest) request).getUserId() >= 1;
+	}
+	
+	/**
+	 * Queues request into current batch of its game mode.
+	 */
+	@SuppressWarnings("unchecked")
+	<R1> CompletableFuture<R1> submit(OsuApi api, Object request, RequestPriority priority)
+	{
+		GetUserRequest userRequest = (GetUserRequest) request;
+		CompletableFuture<GetUserResponse> future = new CompletableFuture<>();
+		Batch full = null;
+		lock.lock();
+		try
+		{
+			if(endpoint == null)
+			{
+				endpoint = new GetUsersEndpoint(api.getBaseUrl(), api.getHttpClientProvider(), api.getJsonSerializationProvider());
+			}
+			Batch batch = pending.get(userRequest.getMode());
+			if(batch == null)
+			{
+				Batch created = new Batch(userRequest.getMode());
+				pending.put(created.mode, created);
+				// Batch call might block on synchronous http providers, so it is not run on scheduler thread
+				DaemonScheduler.get().schedule(() -> CompletableFuture.runAsync(() -> flush(api, created), IoExecutor.get()), api.getUserBatchWindowMillis(), TimeUnit.MILLISECONDS);
+				batch = created;
+			}
+			batch.waiters.computeIfAbsent(userRequest.getUserId(), id -> new ArrayList<>(1)).add(future);
+			if(priority.compareTo(batch.priority) < 0)
+			{
+				batch.priority = priority;
+			}
+			if(batch.waiters.size() >= GetUsersEndpoint.MAX_IDS)
+			{
+				pending.remove(batch.mode);
+				full = batch;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		if(full != null)
+		{
+			send(api, full);
+		}
+		return (CompletableFuture<R1>) (CompletableFuture<?>) future;
+	}
+	
+	/**
+	 * Sends batch once its window elapsed, unless it was already sent because it got full.
+	 */
+	private void flush(OsuApi api, Batch batch)
+	{
+		lock.lock();
+		try
+		{
+			if(pending.get(batch.mode) != batch)
+			{
+				return;
+			}
+			pending.remove(batch.mode);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		send(api, batch);
+	}
+	
+	private void send(OsuApi api, Batch batch)
+	{
+		GetUsersRequest request = GetUsersRequest.builder().ids(batch.waiters.keySet()).mode(batch.mode).build();
+		api.executeAsync(endpoint, GetUsersEndpoint.class, request, 0, batch.priority).whenComplete(batch::complete);
+	}
+	
+	@RequiredArgsConstructor
+	private static class Batch
+	{
+		private final GameMode mode;
+		private final Map<Long, List<CompletableFuture<GetUserResponse>>> waiters = new LinkedHashMap<>();
+		// Guarded by batcher lock until batch is sent
+		private RequestPriority priority = RequestPriority.BULK;
+		
+		private void complete(GetUsersResponse response, Throwable e)
+		{
+			Map<Long, GetUserResponse> users = new HashMap<>();
+			if(response != null && response.getUsers() != null)
+			{
+				for(CompactUser user : response.getUsers())
+				{
+					users.put(user.getId(), user);
+				}
+			}
+			for(Map.Entry<Long, List<CompletableFuture<GetUserResponse>>> entry : waiters.entrySet())
+			{
+				GetUserResponse user = users.get(entry.getKey());
+				for(CompletableFuture<GetUserResponse> future : entry.getValue())
+				{
+					if(e != null)
+					{
+						future.completeExceptionally(e);
+					}
+					else if(user == null)
+					{
+						// Mimic single user endpoint behavior
+						future.completeExceptionally(new HttpStatusException(404));
+					}
+					else
+					{
+						future.complete(user);
+					}
+				}
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,167 @@
+package org.osumm.apiv2.auth;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.Getter;
+
+/**
+ * Token store keeping tokens in files of provided directory, so processes on the same host
+ * (and restarted ones) reuse valid token instead of requesting new one on startup.
+ * <br/><br/>
+ * Token of every client is single small file replaced by atomic rename, so readers never see partially written token and don't lock anything.
+ * Writers hold file lock, so concurrent refreshes of several processes can't replace token with one expiring sooner.
+ * On POSIX file systems token files are readable by owner only.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * OsuApi api = OsuApi.builder()
+ * 		...
+ * 		.tokenStore(new FileTokenStore(Paths.get(System.getProperty("user.home"), ".osu-tokens")))
+ * 		.build();
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+public class FileTokenStore implements TokenStore
+{
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rw-------");
+	/**
+	 * File locks are held by whole JVM and locking file twice fails, so threads of this process 
+	 * (including ones of other stores over the same directory) are serialized by lock of every lock file.
+	 */
+	private static final ConcurrentMap<Path, Lock> LOCKS = new ConcurrentHashMap<>();
+
+	@Getter private final Path directory;
+
+	/**
+	 * @param directory - tokens directory, created if needed
+	 */
+	public FileTokenStore(Path directory) throws IOException
+	{
+		this.directory = directory;
+		Files.createDirectories(directory);
+	}
+
+	@Override
+	public StoredToken load(long clientId) throws IOException
+	{
+		List<String> lines;
+		try
+		{
+			lines = Files.readAllLines(tokenFile(clientId), StandardCharsets.UTF_8);
+		}
+		catch(NoSuchFileException e)
+		{
+			return null;
+		}
+		if(lines.size() < 2)
+		{
+			return null;
+		}
+		try
+		{
+			return new StoredToken(lines.get(1), Long.parseLong(lines.get(0)));
+		}
+		catch(NumberFormatException e)
+		{
+			return null;
+		}
+	}
+
+	@Override
+	public void store(long clientId, StoredToken token) throws IOException
+	{
+		Path file = tokenFile(clientId);
+		Path temp = directory.resolve(file.getFileName() + ".tmp");
+		Path lockFile = lockFile(clientId);
+		Lock lock = lockOf(lockFile);
+		lock.lock();
+		try(FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+		{
+			// Released by closing channel
+			lockChannel.lock();
+			StoredToken current = load(clientId);
+			if(current != null && current.getExpiresAt() >= token.getExpiresAt())
+			{
+				return;
+			}
+			byte[] content = (token.getExpiresAt() + "\n" + token.getAccessToken() + "\n").getBytes(StandardCharsets.UTF_8);
+			Files.deleteIfExists(temp);
+			// Permissions are set on creation, so token is never readable by others even for a moment
+			FileAttribute<?>[] attributes = directory.getFileSystem().supportedFileAttributeViews().contains("posix") 
+					? new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(OWNER_ONLY) } : new FileAttribute<?>[0];
+			try(FileChannel output = FileChannel.open(temp, EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), attributes))
+			{
+				ByteBuffer buffer = ByteBuffer.wrap(content);
+				while(buffer.hasRemaining())
+				{
+					output.write(buffer);
+				}
+			}
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void invalidate(long clientId, String accessToken) throws IOException
+	{
+		Path lockFile = lockFile(clientId);
+		Lock lock = lockOf(lockFile);
+		lock.lock();
+		try(FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+		{
+			// Released by closing channel
+			lockChannel.lock();
+			StoredToken current = load(clientId);
+			if(current != null && current.getAccessToken().equals(accessToken))
+			{
+				Files.deleteIfExists(tokenFile(clientId));
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	private Path tokenFile(long clientId)
+	{
+		return directory.resolve("token-" + clientId);
+	}
+
+	private Path lockFile(long clientId)
+	{
+		return directory.resolve("token-" + clientId + ".lock");
+	}
+
+	private static Lock lockOf(Path lockFile)
+	{
+		return LOCKS.computeIfAbsent(lockFile.toAbsolutePath().normalize(), path -> new ReentrantLock());
+	}
+
+}
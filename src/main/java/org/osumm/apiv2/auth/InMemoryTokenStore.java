@@ -0,0 +1,35 @@
+package org.osumm.apiv2.auth;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Token store kept in memory, default one. 
+ * Single instance can be shared by several {@link org.osumm.apiv2.OsuApi OsuApi} instances using the same credentials.
+ * @author Master-chan
+ *
+ */
+public class InMemoryTokenStore implements TokenStore
+{
+	
+	private final ConcurrentMap<Long, StoredToken> tokens = new ConcurrentHashMap<>();
+	
+	@Override
+	public StoredToken load(long clientId)
+	{
+		return tokens.get(clientId);
+	}
+	
+	@Override
+	public void store(long clientId, StoredToken token)
+	{
+		tokens.merge(clientId, token, (current, updated) -> updated.getExpiresAt() > current.getExpiresAt() ? updated : current);
+	}
+	
+	@Override
+	public void invalidate(long clientId, String accessToken)
+	{
+		tokens.computeIfPresent(clientId, (id, current) -> current.getAccessToken().equals(accessToken) ? null : current);
+	}
+	
+}
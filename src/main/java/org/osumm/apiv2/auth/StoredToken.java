@@ -0,0 +1,44 @@
+package org.osumm.apiv2.auth;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Access token with its expiration time.
+ * @author Master-chan
+ *
+ */
+@RequiredArgsConstructor
+@Getter
+@EqualsAndHashCode
+public class StoredToken
+{
+	
+	private final String accessToken;
+	/**
+	 * Expiration time in epoch milliseconds, wall clock time is used since token might be shared between processes.
+	 */
+	private final long expiresAt;
+	
+	/**
+	 * @return milliseconds until token expires, negative if it has already expired
+	 */
+	public long getRemainingMillis()
+	{
+		return expiresAt - System.currentTimeMillis();
+	}
+	
+	public boolean isValid()
+	{
+		return System.currentTimeMillis() < expiresAt;
+	}
+	
+	@Override
+	public String toString()
+	{
+		// Token itself is a secret
+		return "StoredToken(expiresAt=" + expiresAt + ")";
+	}
+	
+}
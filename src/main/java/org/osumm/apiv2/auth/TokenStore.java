@@ -0,0 +1,45 @@
+package org.osumm.apiv2.auth;
+
+import java.io.IOException;
+
+/**
+ * Storage of client credentials tokens shared by {@link org.osumm.apiv2.AuthHandler AuthHandlers}, 
+ * so token requested by one API instance, process or previous run is reused instead of requesting new one. 
+ * Handler consults store only when it has no token of its own or its token is due for refresh, 
+ * so implementations don't have to be fast.
+ * <br/><br/>
+ * Tokens are keyed by client id. Store shouldn't replace token with one expiring sooner, 
+ * since several processes might refresh token at the same time.
+ * @author Master-chan
+ *
+ */
+public interface TokenStore
+{
+	
+	/**
+	 * @param clientId - osu! application id
+	 * @return stored token, possibly already expired, null if there is none
+	 * @throws IOException if store can't be read, handler then requests new token
+	 */
+	public StoredToken load(long clientId) throws IOException;
+	
+	/**
+	 * @param clientId - osu! application id
+	 * @param token - newly requested token
+	 * @throws IOException if token can't be stored, handler keeps using it anyway
+	 */
+	public void store(long clientId, StoredToken token) throws IOException;
+	
+	/**
+	 * Removes token rejected by API (revoked before its expiration), so it isn't loaded by others or after restart.
+	 * Token should only be removed if it is still the stored one, it might have been replaced by newer one already.
+	 * Default implementation keeps it, handler which got it rejected still doesn't use it again.
+	 * @param clientId - osu! application id
+	 * @param accessToken - rejected access token
+	 * @throws IOException if token can't be removed
+	 */
+	public default void invalidate(long clientId, String accessToken) throws IOException
+	{
+	}
+	
+}
@@ -0,0 +1,33 @@
+package org.osumm.apiv2.cache;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Point-in-time snapshot of {@link ResponseCache} or {@link UsernameIndex} counters.
+ * @author Master-chan
+ *
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class CacheStats
+{
+	
+	private final long hitCount;
+	private final long missCount;
+	private final long evictionCount;
+	private final long expiredCount;
+	private final int size;
+	
+	/**
+	 * @return ratio of hits to all lookups, 1 if there were no lookups yet
+	 */
+	public double hitRate()
+	{
+		long total = hitCount + missCount;
+		return total == 0 ? 1.0 : (double) hitCount / total;
+	}
+	
+}
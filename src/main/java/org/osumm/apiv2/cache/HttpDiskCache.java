@@ -0,0 +1,493 @@
+package org.osumm.apiv2.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Persistent cache of raw HTTP responses used by http client providers, so responses fetched before restart 
+ * are revalidated with <code>If-None-Match</code>/<code>If-Modified-Since</code> and come back as cheap 304 responses when unchanged.
+ * <br/><br/>
+ * Only GET responses with <code>ETag</code> or <code>Last-Modified</code> validator are stored, bodies are kept gzip-compressed. 
+ * Entries are keyed by URL only, so cache should be used with client credentials tokens whose responses don't depend on token owner.
+ * <br/><br/>
+ * Storage is single append-only log file with in-memory index rebuilt on startup. Records are checksummed, 
+ * so partially written tail after crash is dropped. Once log grows over {@link #maxBytes maxBytes} it is compacted 
+ * keeping most recently used entries up to 3/4 of size limit. Directory is locked, so it can't be shared by multiple cache instances or processes.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * HttpDiskCache diskCache = new HttpDiskCache(Paths.get("osu-cache"), 256 * 1024 * 1024);
+ * OsuApi api = OsuApi.builder()
+ * 		...
+ * 		.httpClientProvider(new JavaHttpClientProvider(diskCache))
+ * 		.build();
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+public class HttpDiskCache implements Closeable
+{
+	
+	private static final int MAGIC = 0x05CAC4E1;
+	private static final int HEADER_SIZE = 8;
+	private static final int CRC_SIZE = 4;
+	private static final String LOG_FILE = "responses.log";
+	private static final String LOCK_FILE = "lock";
+	
+	@Getter private final Path directory;
+	@Getter private final long maxBytes;
+	
+	private final Lock lock = new ReentrantLock();
+	private final FileChannel lockChannel;
+	private final FileLock fileLock;
+	
+	// Guarded by lock
+	private final LinkedHashMap<String, IndexEntry> index = new LinkedHashMap<>(16, 0.75f, true);
+	private FileChannel log;
+	private long logSize;
+	
+	/**
+	 * Opens cache in provided directory, creating it if needed.
+	 * @param directory - cache directory
+	 * @param maxBytes - maximum size of log file
+	 * @throws IOException if directory can't be opened or is already in use
+	 */
+	public HttpDiskCache(Path directory, long maxBytes) throws IOException
+	{
+		if(maxBytes < 1024)
+		{
+			throw new IllegalArgumentException("Cache size should be at least 1KB");
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		Files.createDirectories(directory);
+		lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		FileLock acquired;
+		try
+		{
+			acquired = lockChannel.tryLock();
+		}
+		catch(OverlappingFileLockException e)
+		{
+			// Already locked by another cache instance in this JVM
+			acquired = null;
+		}
+		if(acquired == null)
+		{
+			lockChannel.close();
+			throw new IOException("Cache directory is already in use: " + directory);
+		}
+		fileLock = acquired;
+		log = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		load();
+	}
+	
+	/**
+	 * @return cached response for provided URL, null if there is none
+	 */
+	public CachedResponse get(String url) throws IOException
+	{
+		lock.lock();
+		try
+		{
+			IndexEntry entry = index.get(url);
+			if(entry == null)
+			{
+				return null;
+			}
+			byte[] body = new byte[entry.bodyLength];
+			readFully(log, ByteBuffer.wrap(body), entry.bodyOffset);
+			return new CachedResponse(entry.etag, entry.lastModified, body);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Stores 200 response if it has validators and doesn't forbid storing.
+	 * @param url - request URL
+	 * @param headers - response header lookup by name
+	 * @param body - response body as transferred, gzip-compressed one is stored as is
+	 */
+	public void put(String url, Function<String, String> headers, byte[] body) throws IOException
+	{
+		String etag = headers.apply("ETag");
+		String lastModified = headers.apply("Last-Modified");
+		String cacheControl = headers.apply("Cache-Control");
+		if((etag == null && lastModified == null) || (cacheControl != null && cacheControl.toLowerCase().contains("no-store")))
+		{
+			return;
+		}
+		byte[] compressed = "gzip".equalsIgnoreCase(headers.apply("Content-Encoding")) ? body : gzip(body);
+		put(url, etag, lastModified, compressed);
+	}
+	
+	private void put(String url, String etag, String lastModified, byte[] compressed) throws IOException
+	{
+		byte[] record = encode(url, etag, lastModified, compressed);
+		// Single huge entry would evict everything else
+		if(record.length > maxBytes / 4)
+		{
+			invalidate(url);
+			return;
+		}
+		lock.lock();
+		try
+		{
+			long offset = logSize;
+			writeFully(log, ByteBuffer.wrap(record), offset);
+			logSize += record.length;
+			index.put(url, new IndexEntry(etag, lastModified, offset, record.length, 
+					offset + record.length - CRC_SIZE - compressed.length, compressed.length));
+			if(logSize > maxBytes)
+			{
+				compact();
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	public void invalidate(String url) throws IOException
+	{
+		lock.lock();
+		try
+		{
+			if(index.remove(url) != null)
+			{
+				byte[] record = encode(url, null, null, null);
+				writeFully(log, ByteBuffer.wrap(record), logSize);
+				logSize += record.length;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	public void invalidateAll() throws IOException
+	{
+		lock.lock();
+		try
+		{
+			index.clear();
+			log.truncate(0);
+			logSize = 0;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return number of cached responses
+	 */
+	public int size()
+	{
+		lock.lock();
+		try
+		{
+			return index.size();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return current size of log file in bytes
+	 */
+	public long getSizeBytes()
+	{
+		lock.lock();
+		try
+		{
+			return logSize;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Flushes log to disk and releases directory lock.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		lock.lock();
+		try
+		{
+			log.force(false);
+			log.close();
+			fileLock.release();
+			lockChannel.close();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Rebuilds index from log, truncating it at first damaged record.
+	 */
+	private void load() throws IOException
+	{
+		long size = log.size();
+		long position = 0;
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		while(position + HEADER_SIZE <= size)
+		{
+			header.clear();
+			readFully(log, header, position);
+			header.flip();
+			int magic = header.getInt();
+			int payloadLength = header.getInt();
+			if(magic != MAGIC || payloadLength < 0 || position + HEADER_SIZE + payloadLength + CRC_SIZE > size)
+			{
+				break;
+			}
+			ByteBuffer payload = ByteBuffer.allocate(payloadLength + CRC_SIZE);
+			readFully(log, payload, position + HEADER_SIZE);
+			CRC32 crc = new CRC32();
+			crc.update(payload.array(), 0, payloadLength);
+			if((int) crc.getValue() != payload.getInt(payloadLength))
+			{
+				break;
+			}
+			DataInputStream input = new DataInputStream(new ByteArrayInputStream(payload.array(), 0, payloadLength));
+			String url = input.readUTF();
+			String etag = emptyToNull(input.readUTF());
+			String lastModified = emptyToNull(input.readUTF());
+			int bodyLength = input.readInt();
+			int recordLength = HEADER_SIZE + payloadLength + CRC_SIZE;
+			if(bodyLength < 0)
+			{
+				index.remove(url);
+			}
+			else
+			{
+				index.put(url, new IndexEntry(etag, lastModified, position, recordLength, 
+						position + HEADER_SIZE + payloadLength - bodyLength, bodyLength));
+			}
+			position += recordLength;
+		}
+		if(position < size)
+		{
+			log.truncate(position);
+		}
+		logSize = position;
+	}
+	
+	/**
+	 * Rewrites log with most recently used entries only. Called under lock.
+	 */
+	private void compact() throws IOException
+	{
+		List<Map.Entry<String, IndexEntry>> entries = new ArrayList<>(index.entrySet());
+		long budget = maxBytes / 4 * 3;
+		long kept = 0;
+		int first = entries.size();
+		// Index iterates from least to most recently used
+		while(first > 0 && kept + entries.get(first - 1).getValue().recordLength <= budget)
+		{
+			first--;
+			kept += entries.get(first).getValue().recordLength;
+		}
+		
+		Path logPath = directory.resolve(LOG_FILE);
+		Path compactPath = directory.resolve(LOG_FILE + ".compact");
+		LinkedHashMap<String, IndexEntry> compacted = new LinkedHashMap<>();
+		long position = 0;
+		// Compacted log stays open through rename and becomes log only once it is in place, so failure leaves current log usable
+		FileChannel output = FileChannel.open(compactPath, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try
+		{
+			for(int i = first; i < entries.size(); i++)
+			{
+				IndexEntry entry = entries.get(i).getValue();
+				ByteBuffer record = ByteBuffer.allocate(entry.recordLength);
+				readFully(log, record, entry.recordOffset);
+				record.flip();
+				writeFully(output, record, position);
+				compacted.put(entries.get(i).getKey(), new IndexEntry(entry.etag, entry.lastModified, position, entry.recordLength, 
+						position + entry.bodyOffset - entry.recordOffset, entry.bodyLength));
+				position += entry.recordLength;
+			}
+			output.force(false);
+			Files.move(compactPath, logPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			output.close();
+			Files.deleteIfExists(compactPath);
+			throw e;
+		}
+		FileChannel previous = log;
+		log = output;
+		index.clear();
+		index.putAll(compacted);
+		logSize = position;
+		try
+		{
+			previous.close();
+		}
+		catch(IOException e)
+		{
+			// Replaced log is not used anymore
+		}
+	}
+	
+	private static byte[] encode(String url, String etag, String lastModified, byte[] body) throws IOException
+	{
+		ByteArrayOutputStream payload = new ByteArrayOutputStream(64 + (body != null ? body.length : 0));
+		DataOutputStream output = new DataOutputStream(payload);
+		output.writeUTF(url);
+		output.writeUTF(etag != null ? etag : "");
+		output.writeUTF(lastModified != null ? lastModified : "");
+		output.writeInt(body != null ? body.length : -1);
+		if(body != null)
+		{
+			output.write(body);
+		}
+		output.flush();
+		CRC32 crc = new CRC32();
+		crc.update(payload.toByteArray());
+		
+		ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.size() + CRC_SIZE);
+		record.putInt(MAGIC).putInt(payload.size()).put(payload.toByteArray()).putInt((int) crc.getValue());
+		return record.array();
+	}
+	
+	private static byte[] gzip(byte[] data) throws IOException
+	{
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream(data.length / 4 + 64);
+		try(GZIPOutputStream gzip = new GZIPOutputStream(outputStream))
+		{
+			gzip.write(data);
+		}
+		return outputStream.toByteArray();
+	}
+	
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, position);
+			if(read < 0)
+			{
+				throw new IOException("Unexpected end of cache log");
+			}
+			position += read;
+		}
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException
+	{
+		while(buffer.hasRemaining())
+		{
+			position += channel.write(buffer, position);
+		}
+	}
+	
+	private static String emptyToNull(String value)
+	{
+		return value.isEmpty() ? null : value;
+	}
+	
+	@RequiredArgsConstructor
+	private static class IndexEntry
+	{
+		private final String etag;
+		private final String lastModified;
+		private final long recordOffset;
+		private final int recordLength;
+		private final long bodyOffset;
+		private final int bodyLength;
+	}
+	
+	/**
+	 * Stored response with its validators.
+	 */
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	public static class CachedResponse
+	{
+		
+		@Getter private final String etag;
+		@Getter private final String lastModified;
+		private final byte[] compressedBody;
+		
+		/**
+		 * Adds conditional request headers.
+		 * @param header - request header setter
+		 */
+		public void addValidators(BiConsumer<String, String> header)
+		{
+			if(etag != null)
+			{
+				header.accept("If-None-Match", etag);
+			}
+			if(lastModified != null)
+			{
+				header.accept("If-Modified-Since", lastModified);
+			}
+		}
+		
+		/**
+		 * @return decompressed body stream
+		 */
+		public InputStream openBody() throws IOException
+		{
+			return new GZIPInputStream(new ByteArrayInputStream(compressedBody), 8192);
+		}
+		
+		/**
+		 * @return size of stored (compressed) body
+		 */
+		public int getStoredSize()
+		{
+			return compressedBody.length;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,134 @@
+package org.osumm.apiv2.cache;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.osumm.apiv2.concurrent.Futures;
+
+/**
+ * Single-flight registry of API calls in progress. 
+ * Concurrent callers making identical request (same endpoint class and equal request object) share one HTTP call 
+ * and receive the same response object, failures are propagated to every waiter. 
+ * Blocking and async callers join each other's calls. 
+ * Every async caller gets own future, so cancelling or completing it doesn't affect other callers of shared call.
+ * 
+ * @author Master-chan
+ *
+ */
+public class InFlightRequests
+{
+	
+	private final ConcurrentMap<RequestKey, CompletableFuture<?>> calls = new ConcurrentHashMap<>();
+	
+	/**
+	 * Blocking call which can throw IOException.
+	 */
+	@FunctionalInterface
+	public static interface Call<T>
+	{
+		public T call() throws IOException;
+	}
+	
+	/**
+	 * Runs blocking call unless identical one is already in progress, in which case waits for its result.
+	 */
+	@SuppressWarnings("unchecked")
+	public <R1> R1 execute(Class<?> endpointClass, Object request, Call<R1> call) throws IOException
+	{
+		RequestKey key = new RequestKey(endpointClass, request);
+		CompletableFuture<R1> flight = new CompletableFuture<>();
+		CompletableFuture<R1> existing = (CompletableFuture<R1>) calls.putIfAbsent(key, flight);
+		if(existing != null)
+		{
+			return Futures.await(existing);
+		}
+		try
+		{
+			R1 value = call.call();
+			flight.complete(value);
+			return value;
+		}
+		catch(Throwable e)
+		{
+			// Errors too, joined callers would wait for the flight forever otherwise
+			flight.completeExceptionally(e);
+			throw e;
+		}
+		finally
+		{
+			calls.remove(key, flight);
+		}
+	}
+	
+	/**
+	 * Starts async call unless identical one is already in progress, in which case returns future completed with result of that call.
+	 */
+	@SuppressWarnings("unchecked")
+	public <R1> CompletableFuture<R1> executeAsync(Class<?> endpointClass, Object request, Supplier<CompletableFuture<R1>> call)
+	{
+		RequestKey key = new RequestKey(endpointClass, request);
+		CompletableFuture<R1> flight = new CompletableFuture<>();
+		CompletableFuture<R1> existing = (CompletableFuture<R1>) calls.putIfAbsent(key, flight);
+		if(existing != null)
+		{
+			return follow(existing);
+		}
+		CompletableFuture<R1> response;
+		try
+		{
+			response = call.get();
+		}
+		catch(RuntimeException e)
+		{
+			calls.remove(key, flight);
+			flight.completeExceptionally(e);
+			return follow(flight);
+		}
+		// Unregister before completing, so callers reacting to result start fresh call instead of joining finished one
+		response.whenComplete((value, e) -> 
+		{
+			calls.remove(key, flight);
+			if(e != null)
+			{
+				flight.completeExceptionally(e);
+			}
+			else
+			{
+				flight.complete(value);
+			}
+		});
+		return follow(flight);
+	}
+	
+	/**
+	 * @return future completed with the same result as shared flight, failure is passed without {@link java.util.concurrent.CompletionException CompletionException} wrapper
+	 */
+	private static <R1> CompletableFuture<R1> follow(CompletableFuture<R1> flight)
+	{
+		CompletableFuture<R1> follower = new CompletableFuture<>();
+		flight.whenComplete((value, e) -> 
+		{
+			if(e != null)
+			{
+				follower.completeExceptionally(Futures.unwrap(e));
+			}
+			else
+			{
+				follower.complete(value);
+			}
+		});
+		return follower;
+	}
+	
+	/**
+	 * @return number of distinct calls currently in progress
+	 */
+	public int size()
+	{
+		return calls.size();
+	}
+	
+}
@@ -0,0 +1,17 @@
+package org.osumm.apiv2.cache;
+
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Identity of API call: endpoint class and request object.
+ * @author Master-chan
+ *
+ */
+@EqualsAndHashCode
+@RequiredArgsConstructor
+class RequestKey
+{
+	private final Class<?> endpointClass;
+	private final Object request;
+}
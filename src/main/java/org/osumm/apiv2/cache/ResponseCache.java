@@ -0,0 +1,222 @@
+package org.osumm.apiv2.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osumm.apiv2.endpoints.Endpoint;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bounded in-memory cache of endpoint responses keyed by endpoint class and request object. 
+ * Only endpoints opting in with positive {@link Endpoint#getCacheTtlMillis() cache TTL} are cached, 
+ * TTL can be overridden per endpoint class with {@link #setTtl(Class, long, TimeUnit) setTtl}. 
+ * Least recently used entries are evicted once cache grows over {@link #maximumSize maximumSize}.
+ * <br/><br/>
+ * Cached responses are shared between callers, so response objects should stay immutable.
+ * 
+ * @author Master-chan
+ *
+ */
+public class ResponseCache
+{
+	
+	@Getter private final int maximumSize;
+	
+	private final Map<Class<?>, Long> ttlOverrides = new ConcurrentHashMap<>();
+	private final LinkedHashMap<RequestKey, CacheEntry> entries;
+	private final Lock lock = new ReentrantLock();
+	
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+	
+	public ResponseCache(int maximumSize)
+	{
+		if(maximumSize < 1)
+		{
+			throw new IllegalArgumentException("Cache size should be positive");
+		}
+		this.maximumSize = maximumSize;
+		this.entries = new LinkedHashMap<RequestKey, CacheEntry>(16, 0.75f, true)
+		{
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<RequestKey, CacheEntry> eldest)
+			{
+				if(size() > ResponseCache.this.maximumSize)
+				{
+					evictions.increment();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+	
+	/**
+	 * Overrides cache TTL declared by endpoint.
+	 * @param endpointClass - endpoint class
+	 * @param ttl - time to live, 0 disables caching of this endpoint
+	 * @param unit - ttl unit
+	 */
+	public void setTtl(Class<? extends Endpoint<?, ?>> endpointClass, long ttl, TimeUnit unit)
+	{
+		ttlOverrides.put(endpointClass, unit.toMillis(ttl));
+	}
+	
+	/**
+	 * @return TTL in milliseconds applied to responses of provided endpoint, 0 if they shouldn't be cached
+	 */
+	public long getTtlMillis(Endpoint<?, ?> endpoint)
+	{
+		Long ttl = ttlOverrides.get(endpoint.getClass());
+		return ttl != null ? ttl : endpoint.getCacheTtlMillis();
+	}
+	
+	/**
+	 * Looks up cached response.
+	 * @return cached response or null if there is no live entry
+	 */
+	@SuppressWarnings("unchecked")
+	public <R1> R1 get(Class<?> endpointClass, Object request)
+	{
+		RequestKey key = new RequestKey(endpointClass, request);
+		lock.lock();
+		try
+		{
+			CacheEntry entry = entries.get(key);
+			if(entry != null && System.nanoTime() - entry.expireAt >= 0)
+			{
+				entries.remove(key);
+				expirations.increment();
+				entry = null;
+			}
+			if(entry == null)
+			{
+				misses.increment();
+				return null;
+			}
+			hits.increment();
+			return (R1) entry.value;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Stores response.
+	 * @param ttlMillis - time to live, entries with non-positive TTL are ignored
+	 */
+	public void put(Class<?> endpointClass, Object request, Object response, long ttlMillis)
+	{
+		if(ttlMillis <= 0 || response == null)
+		{
+			return;
+		}
+		CacheEntry entry = new CacheEntry(response, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis));
+		lock.lock();
+		try
+		{
+			entries.put(new RequestKey(endpointClass, request), entry);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes cached response of specific request.
+	 */
+	public void invalidate(Class<?> endpointClass, Object request)
+	{
+		lock.lock();
+		try
+		{
+			entries.remove(new RequestKey(endpointClass, request));
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes all cached responses.
+	 */
+	public void invalidateAll()
+	{
+		lock.lock();
+		try
+		{
+			entries.clear();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes expired entries. Expired entries are also dropped lazily on lookup, 
+	 * so this is only needed to release memory of entries which are never requested again.
+	 */
+	public void cleanUp()
+	{
+		long now = System.nanoTime();
+		lock.lock();
+		try
+		{
+			for(Iterator<CacheEntry> iterator = entries.values().iterator(); iterator.hasNext();)
+			{
+				if(now - iterator.next().expireAt >= 0)
+				{
+					iterator.remove();
+					expirations.increment();
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	public int size()
+	{
+		lock.lock();
+		try
+		{
+			return entries.size();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	public CacheStats getStats()
+	{
+		return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size());
+	}
+	
+	@RequiredArgsConstructor
+	private static class CacheEntry
+	{
+		private final Object value;
+		private final long expireAt;
+	}
+	
+}
@@ -0,0 +1,249 @@
+package org.osumm.apiv2.cache;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.GetRankingResponse;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.RankingEntry;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.CompactUser;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersResponse;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Bounded in-memory index of user ids by username, filled from user responses seen by API instance
+ * ({@link org.osumm.apiv2.endpoints.impl.GetUserEndpoint GetUserEndpoint}, {@link org.osumm.apiv2.endpoints.impl.GetUsersEndpoint GetUsersEndpoint}
+ * and {@link org.osumm.apiv2.endpoints.impl.GetRankingEndpoint GetRankingEndpoint}).
+ * With index provided to {@link org.osumm.apiv2.OsuApi OsuApi} builder, user requests by known username are made by id,
+ * so they share cached responses, coalescing and batching with by-id requests of the same user.
+ * <br/><br/>
+ * Usernames are matched like osu! does: case-insensitive, with underscores equal to spaces.
+ * Entries expire after {@link #ttlMillis ttlMillis}, which bounds how long renamed user is still found by old name.
+ * Lookups don't take a lock; once index grows over {@link #maximumSize maximumSize} expired entries and then arbitrary ones are evicted 
+ * down to 90% of it, so eviction runs once per many insertions. Full index is scanned for expired entries at most once per tenth of TTL.
+ *
+ * @author Master-chan
+ *
+ */
+public class UsernameIndex
+{
+
+	/**
+	 * Eviction frees this share of {@link #maximumSize maximumSize}.
+	 */
+	private static final int EVICTION_PERCENT = 10;
+
+	@Getter private final int maximumSize;
+	@Getter private final long ttlMillis;
+
+	private final Map<String, IndexEntry> entries = new ConcurrentHashMap<>();
+	private final Lock evictionLock = new ReentrantLock();
+	// Guarded by evictionLock
+	private long nextExpirationScan = System.nanoTime();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder expirations = new LongAdder();
+
+	/**
+	 * Index of up to 100000 usernames kept for an hour.
+	 */
+	public UsernameIndex()
+	{
+		this(100_000, 1, TimeUnit.HOURS);
+	}
+
+	public UsernameIndex(int maximumSize, long ttl, TimeUnit unit)
+	{
+		if(maximumSize < 1 || ttl <= 0)
+		{
+			throw new IllegalArgumentException("Index size and TTL should be positive");
+		}
+		this.maximumSize = maximumSize;
+		this.ttlMillis = unit.toMillis(ttl);
+	}
+
+	/**
+	 * @return id of user with provided username, -1 if it isn't indexed or entry has expired
+	 */
+	public long getUserId(String username)
+	{
+		String key = normalize(username);
+		IndexEntry entry = entries.get(key);
+		if(entry != null && System.nanoTime() - entry.expireAt >= 0)
+		{
+			if(entries.remove(key, entry))
+			{
+				expirations.increment();
+			}
+			entry = null;
+		}
+		if(entry == null)
+		{
+			misses.increment();
+			return -1;
+		}
+		hits.increment();
+		return entry.userId;
+	}
+
+	/**
+	 * Maps username to user id, replacing previous mapping of this username.
+	 */
+	public void put(String username, long userId)
+	{
+		if(username == null || userId < 1)
+		{
+			return;
+		}
+		entries.put(normalize(username), new IndexEntry(userId, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+		if(entries.size() > maximumSize)
+		{
+			evict();
+		}
+	}
+
+	/**
+	 * Indexes users contained in response, responses of other endpoints are ignored.
+	 */
+	public void index(Object response)
+	{
+		if(response instanceof GetUserResponse)
+		{
+			GetUserResponse user = (GetUserResponse) response;
+			put(user.getUsername(), user.getId());
+		}
+		else if(response instanceof GetUsersResponse && ((GetUsersResponse) response).getUsers() != null)
+		{
+			for(CompactUser user : ((GetUsersResponse) response).getUsers())
+			{
+				put(user.getUsername(), user.getId());
+			}
+		}
+		else if(response instanceof GetRankingResponse && ((GetRankingResponse) response).getRanking() != null)
+		{
+			for(RankingEntry entry : ((GetRankingResponse) response).getRanking())
+			{
+				if(entry.getUser() != null)
+				{
+					put(entry.getUser().getUsername(), entry.getUser().getId());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Removes mapping of username, e.g. when it turned out to belong to different user.
+	 */
+	public void invalidate(String username)
+	{
+		entries.remove(normalize(username));
+	}
+
+	/**
+	 * Removes all mappings.
+	 */
+	public void invalidateAll()
+	{
+		entries.clear();
+	}
+
+	/**
+	 * Removes expired entries. Expired entries are also dropped lazily on lookup and when index is full,
+	 * so this is only needed to release memory of usernames which are never requested again.
+	 */
+	public void cleanUp()
+	{
+		evictionLock.lock();
+		try
+		{
+			removeExpired();
+		}
+		finally
+		{
+			evictionLock.unlock();
+		}
+	}
+
+	public int size()
+	{
+		return entries.size();
+	}
+
+	public CacheStats getStats()
+	{
+		return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size());
+	}
+
+	/**
+	 * @return true if both usernames refer to the same osu! account name
+	 */
+	public static boolean isSameUsername(String username, String other)
+	{
+		return username != null && other != null && normalize(username).equals(normalize(other));
+	}
+
+	private static String normalize(String username)
+	{
+		return username.trim().replace('_', ' ').toLowerCase(Locale.ROOT);
+	}
+
+	private void evict()
+	{
+		// Single thread evicts, concurrent writers don't wait for it
+		if(!evictionLock.tryLock())
+		{
+			return;
+		}
+		try
+		{
+			long now = System.nanoTime();
+			if(now - nextExpirationScan >= 0)
+			{
+				removeExpired();
+			}
+			int target = maximumSize - Math.max(1, (int) ((long) maximumSize * EVICTION_PERCENT / 100));
+			for(Iterator<IndexEntry> iterator = entries.values().iterator(); entries.size() > target && iterator.hasNext();)
+			{
+				iterator.next();
+				iterator.remove();
+				evictions.increment();
+			}
+		}
+		finally
+		{
+			evictionLock.unlock();
+		}
+	}
+
+	private void removeExpired()
+	{
+		long now = System.nanoTime();
+		nextExpirationScan = now + TimeUnit.MILLISECONDS.toNanos(ttlMillis) / 10;
+		for(Iterator<IndexEntry> iterator = entries.values().iterator(); iterator.hasNext();)
+		{
+			if(now - iterator.next().expireAt >= 0)
+			{
+				iterator.remove();
+				expirations.increment();
+			}
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static class IndexEntry
+	{
+		private final long userId;
+		private final long expireAt;
+	}
+
+}
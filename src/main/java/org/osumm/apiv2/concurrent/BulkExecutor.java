@@ -0,0 +1,182 @@
+package org.osumm.apiv2.concurrent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs many blocking calls concurrently and collects their results, used by {@link org.osumm.apiv2.OsuApi#requestAll(Class, Collection) OsuApi.requestAll}. 
+ * On Java 21+ every call gets its own virtual thread, so blocking http providers scale to thousands of concurrent calls, 
+ * older runtimes use pool of platform threads. 
+ * At most {@link #getMaxConcurrency() maxConcurrency} calls of all bulk executions sharing this executor run at once.
+ * <br/>
+ * Execution is structured: it returns only after every call it started has finished. 
+ * First failure cancels (interrupts) remaining calls and is rethrown once they stop, interrupting calling thread cancels them as well.
+ * @author Master-chan
+ *
+ */
+public final class BulkExecutor
+{
+	
+	private final int maxConcurrency;
+	private final Semaphore permits;
+	
+	/**
+	 * Creates executor running up to 64 calls at once.
+	 */
+	public BulkExecutor()
+	{
+		this(64);
+	}
+	
+	/**
+	 * @param maxConcurrency - maximum number of calls running at once
+	 */
+	public BulkExecutor(int maxConcurrency)
+	{
+		if(maxConcurrency < 1)
+		{
+			throw new IllegalArgumentException("maxConcurrency should be positive");
+		}
+		this.maxConcurrency = maxConcurrency;
+		permits = new Semaphore(maxConcurrency);
+	}
+	
+	public int getMaxConcurrency()
+	{
+		return maxConcurrency;
+	}
+	
+	/**
+	 * @return whether calls are run on virtual threads (Java 21+)
+	 */
+	public boolean isVirtual()
+	{
+		return BulkThreads.isVirtual();
+	}
+	
+	/**
+	 * Calls task for every input concurrently.
+	 * @return results in order of inputs
+	 * @throws IOException first failure of task, remaining calls are cancelled
+	 * @throws InterruptedIOException calling thread was interrupted, remaining calls are cancelled
+	 */
+	@SuppressWarnings("unchecked")
+	public <T, R> List<R> invokeAll(Collection<? extends T> inputs, BulkTask<? super T, ? extends R> task) throws IOException
+	{
+		Object[] results = new Object[inputs.size()];
+		if(results.length == 0)
+		{
+			return (List<R>) Arrays.asList(results);
+		}
+		ExecutorService executor = BulkThreads.newExecutor(Math.min(results.length, maxConcurrency));
+		CompletionService<Void> completion = new ExecutorCompletionService<>(executor);
+		int submitted = 0;
+		int completed = 0;
+		boolean finished = false;
+		try
+		{
+			for(T input : inputs)
+			{
+				// Permit is taken before call is started, so no more than maxConcurrency threads are busy or even exist
+				permits.acquire();
+				int slot = submitted;
+				try
+				{
+					completion.submit(() -> 
+					{
+						try
+						{
+							results[slot] = task.call(input);
+						}
+						finally
+						{
+							permits.release();
+						}
+						return null;
+					});
+				}
+				catch(RuntimeException e)
+				{
+					permits.release();
+					throw e;
+				}
+				submitted++;
+				// Fail fast without waiting for the rest of inputs to be submitted
+				for(Future<Void> done; (done = completion.poll()) != null; completed++)
+				{
+					done.get();
+				}
+			}
+			for(; completed < submitted; completed++)
+			{
+				completion.take().get();
+			}
+			finished = true;
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for bulk execution");
+		}
+		catch(ExecutionException e)
+		{
+			throw Futures.rethrow(e.getCause());
+		}
+		finally
+		{
+			close(executor, !finished);
+		}
+		return (List<R>) Arrays.asList(results);
+	}
+	
+	/**
+	 * Shuts executor down and waits for its threads to finish.
+	 * @param cancel - interrupt running calls
+	 */
+	private void close(ExecutorService executor, boolean cancel)
+	{
+		if(cancel)
+		{
+			// Calls which were queued but never started still hold their permits
+			permits.release(executor.shutdownNow().size());
+		}
+		else
+		{
+			executor.shutdown();
+		}
+		boolean interrupted = false;
+		while(true)
+		{
+			try
+			{
+				if(executor.awaitTermination(1, TimeUnit.DAYS))
+				{
+					break;
+				}
+			}
+			catch(InterruptedException e)
+			{
+				if(!interrupted)
+				{
+					interrupted = true;
+					executor.shutdownNow();
+				}
+			}
+		}
+		if(interrupted)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+	
+}
@@ -0,0 +1,18 @@
+package org.osumm.apiv2.concurrent;
+
+import java.io.IOException;
+
+/**
+ * Single call of {@link BulkExecutor#invokeAll(java.util.Collection, BulkTask) bulk execution}, usually blocking API request.
+ * @author Master-chan
+ *
+ * @param <T> input type
+ * @param <R> result type
+ */
+@FunctionalInterface
+public interface BulkTask<T, R>
+{
+	
+	public R call(T input) throws IOException;
+	
+}
@@ -0,0 +1,61 @@
+package org.osumm.apiv2.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Threads of {@link BulkExecutor} and {@link IoExecutor}: platform threads pools on Java 8, replaced with virtual threads in META-INF/versions/21 of multi-release jar.
+ * @author Master-chan
+ *
+ */
+final class BulkThreads
+{
+	
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+	
+	private BulkThreads()
+	{
+	}
+	
+	/**
+	 * Method rather than constant, which would be inlined into callers compiled against base version.
+	 */
+	static boolean isVirtual()
+	{
+		return false;
+	}
+	
+	/**
+	 * @param threads - maximum number of calls submitted at once
+	 * @return executor starting calls right away, owned and shut down by caller
+	 */
+	static ExecutorService newExecutor(int threads)
+	{
+		return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> 
+		{
+			Thread thread = new Thread(runnable, "osu-api-bulk-" + THREAD_COUNTER.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+	/**
+	 * @param namePrefix - prefix of thread names
+	 * @return executor starting every call right away on new or idle thread
+	 */
+	static ExecutorService newUnboundedExecutor(String namePrefix)
+	{
+		AtomicInteger counter = new AtomicInteger();
+		return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> 
+		{
+			Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	
+}
@@ -0,0 +1,40 @@
+package org.osumm.apiv2.concurrent;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Lazily created timer thread shared by all API instances for delayed completions and periodic tasks. 
+ * Thread is daemon, so it never prevents JVM from exiting. Scheduled tasks should be short and non-blocking, 
+ * anything doing IO should be handed off to other executor. Cancelled tasks are removed from queue right away, 
+ * so timeouts which rarely fire (e.g. max wait of granted rate limit waiters) don't pile up.
+ * @author Master-chan
+ *
+ */
+public final class DaemonScheduler
+{
+	
+	private static final ScheduledExecutorService INSTANCE = create();
+	
+	private DaemonScheduler()
+	{
+	}
+	
+	public static ScheduledExecutorService get()
+	{
+		return INSTANCE;
+	}
+	
+	private static ScheduledExecutorService create()
+	{
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> 
+		{
+			Thread thread = new Thread(runnable, "osu-api-scheduler");
+			thread.setDaemon(true);
+			return thread;
+		});
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+	
+}
@@ -0,0 +1,86 @@
+package org.osumm.apiv2.concurrent;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Helpers bridging blocking API methods (throwing {@link IOException}) and {@link CompletableFuture} based ones.
+ * @author Master-chan
+ *
+ */
+public final class Futures
+{
+	
+	private Futures()
+	{
+	}
+	
+	/**
+	 * @return future completed exceptionally with provided exception
+	 */
+	public static <T> CompletableFuture<T> failed(Throwable e)
+	{
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(e);
+		return future;
+	}
+	
+	/**
+	 * Waits for future and rethrows its failure as it was thrown by blocking call: 
+	 * IOExceptions and RuntimeExceptions are unwrapped, anything else is wrapped into IOException.
+	 * @throws InterruptedIOException if waiting thread was interrupted
+	 */
+	public static <T> T await(CompletableFuture<T> future) throws IOException
+	{
+		try
+		{
+			return future.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for response");
+		}
+		catch(ExecutionException e)
+		{
+			throw rethrow(e.getCause());
+		}
+	}
+	
+	/**
+	 * @return cause of {@link CompletionException} or exception itself
+	 */
+	public static Throwable unwrap(Throwable e)
+	{
+		while((e instanceof CompletionException || e instanceof ExecutionException) && e.getCause() != null)
+		{
+			e = e.getCause();
+		}
+		return e;
+	}
+	
+	/**
+	 * Rethrows unwrapped RuntimeExceptions and Errors, anything else is returned as IOException to be thrown by caller.
+	 */
+	static IOException rethrow(Throwable e)
+	{
+		Throwable cause = unwrap(e);
+		if(cause instanceof IOException)
+		{
+			return (IOException) cause;
+		}
+		if(cause instanceof RuntimeException)
+		{
+			throw (RuntimeException) cause;
+		}
+		if(cause instanceof Error)
+		{
+			throw (Error) cause;
+		}
+		return new IOException(cause);
+	}
+	
+}
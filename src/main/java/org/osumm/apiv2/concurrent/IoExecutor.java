@@ -0,0 +1,84 @@
+package org.osumm.apiv2.concurrent;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Executor shared by all API instances for blocking calls which have to leave calling thread, e.g. hedged requests. 
+ * Calls start right away on daemon platform threads created on demand, on virtual threads on Java 21+. 
+ * Executor itself isn't bounded, callers limit their calls (see {@link org.osumm.apiv2.retry.HedgePolicy#getMaxHedgedCallsInFlight() HedgePolicy}).
+ * @author Master-chan
+ *
+ */
+public final class IoExecutor
+{
+	
+	private static final ExecutorService INSTANCE = BulkThreads.newUnboundedExecutor("osu-api-io-");
+	
+	private IoExecutor()
+	{
+	}
+	
+	public static ExecutorService get()
+	{
+		return INSTANCE;
+	}
+	
+	/**
+	 * Runs blocking call on shared executor. 
+	 * Unlike {@link CompletableFuture#supplyAsync(java.util.function.Supplier) supplyAsync}, cancelling returned future interrupts call, 
+	 * which aborts socket reads of virtual threads.
+	 * @return future completed with result of call or exceptionally with its exception
+	 */
+	public static <T> CompletableFuture<T> submit(Callable<T> call)
+	{
+		return submit(call, null);
+	}
+	
+	/**
+	 * Runs blocking call on shared executor, see {@link #submit(Callable)}.
+	 * @param onExit - run once call no longer occupies executor thread: when it returns, even after returned future was cancelled 
+	 * (interrupted call might keep running on Java 8 until its socket read times out), or when it was cancelled before starting
+	 */
+	public static <T> CompletableFuture<T> submit(Callable<T> call, Runnable onExit)
+	{
+		CompletableFuture<T> future = new CompletableFuture<>();
+		FutureTask<?> task = new FutureTask<>(() -> 
+		{
+			try
+			{
+				future.complete(call.call());
+			}
+			catch(Throwable e)
+			{
+				future.completeExceptionally(e);
+			}
+		}, null);
+		// Unlike tasks submitted to executor, this runnable runs even if task is cancelled before it starts
+		INSTANCE.execute(() -> 
+		{
+			try
+			{
+				task.run();
+			}
+			finally
+			{
+				if(onExit != null)
+				{
+					onExit.run();
+				}
+			}
+		});
+		future.whenComplete((value, e) -> 
+		{
+			if(future.isCancelled())
+			{
+				task.cancel(true);
+			}
+		});
+		return future;
+	}
+	
+}
@@ -0,0 +1,147 @@
+package org.osumm.apiv2.crawl;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+
+/**
+ * Progress of {@link LeaderboardCrawler}: completed pages of every game mode and length of output file holding them.
+ * Stored as small text file replaced by atomic rename, so it is either previous or next checkpoint after crash.
+ * Not thread-safe, crawler guards it with its lock.
+ * @author Master-chan
+ *
+ */
+class CrawlCheckpoint
+{
+
+	private final String crawlKey;
+	private final Map<GameMode, BitSet> completed = new EnumMap<>(GameMode.class);
+	private long outputLength;
+
+	/**
+	 * @param crawlKey - parameters of crawl, checkpoint of different crawl isn't resumed
+	 */
+	CrawlCheckpoint(String crawlKey)
+	{
+		this.crawlKey = crawlKey;
+	}
+
+	boolean isCompleted(GameMode mode, int page)
+	{
+		BitSet pages = completed.get(mode);
+		return pages != null && pages.get(page);
+	}
+
+	/**
+	 * Marks pages from first to last (inclusive) completed.
+	 */
+	void complete(GameMode mode, int first, int last)
+	{
+		if(first <= last)
+		{
+			completed.computeIfAbsent(mode, key -> new BitSet()).set(first, last + 1);
+		}
+	}
+
+	int countCompleted(GameMode mode, int pages)
+	{
+		BitSet modePages = completed.get(mode);
+		return modePages != null ? modePages.get(1, pages + 1).cardinality() : 0;
+	}
+
+	long getOutputLength()
+	{
+		return outputLength;
+	}
+
+	void setOutputLength(long outputLength)
+	{
+		this.outputLength = outputLength;
+	}
+
+	/**
+	 * @return checkpoint stored in file, null if there is none
+	 * @throws IOException if file is damaged or belongs to crawl with different parameters
+	 */
+	static CrawlCheckpoint load(Path file, String crawlKey) throws IOException
+	{
+		List<String> lines;
+		try
+		{
+			lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+		}
+		catch(NoSuchFileException e)
+		{
+			return null;
+		}
+		if(lines.size() < 2 || !lines.get(0).equals(crawlKey))
+		{
+			throw new IOException("Checkpoint " + file + " belongs to different crawl, expected " + crawlKey);
+		}
+		CrawlCheckpoint checkpoint = new CrawlCheckpoint(crawlKey);
+		try
+		{
+			checkpoint.outputLength = Long.parseLong(lines.get(1));
+			for(String line : lines.subList(2, lines.size()))
+			{
+				String[] parts = line.split(" ", 2);
+				if(parts.length < 2 || parts[1].isEmpty())
+				{
+					continue;
+				}
+				String[] hexWords = parts[1].split(",");
+				long[] words = new long[hexWords.length];
+				for(int i = 0; i < words.length; i++)
+				{
+					words[i] = Long.parseUnsignedLong(hexWords[i], 16);
+				}
+				checkpoint.completed.put(GameMode.valueOf(parts[0].toUpperCase()), BitSet.valueOf(words));
+			}
+		}
+		catch(IllegalArgumentException e)
+		{
+			throw new IOException("Checkpoint " + file + " is damaged", e);
+		}
+		return checkpoint;
+	}
+
+	void store(Path file) throws IOException
+	{
+		StringBuilder content = new StringBuilder(crawlKey).append('\n').append(outputLength).append('\n');
+		for(Map.Entry<GameMode, BitSet> entry : completed.entrySet())
+		{
+			content.append(entry.getKey()).append(' ');
+			long[] words = entry.getValue().toLongArray();
+			for(int i = 0; i < words.length; i++)
+			{
+				content.append(i > 0 ? "," : "").append(Long.toHexString(words[i]));
+			}
+			content.append('\n');
+		}
+		Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+		try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING))
+		{
+			ByteBuffer buffer = ByteBuffer.wrap(content.toString().getBytes(StandardCharsets.UTF_8));
+			while(buffer.hasRemaining())
+			{
+				channel.write(buffer);
+			}
+			// Renamed file should never turn out empty after power loss
+			channel.force(true);
+		}
+		Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+}
@@ -0,0 +1,157 @@
+package org.osumm.apiv2.crawl;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.RankingEntry;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse.ProfileStatistics.ProfileStatisticsGrades;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Leaderboard entry written by {@link LeaderboardCrawler}: ranking statistics of user in crawled game mode
+ * and, if profiles were fetched, details of user's profile.
+ * @author Master-chan
+ *
+ */
+@Getter
+@Builder(access = AccessLevel.PACKAGE)
+@EqualsAndHashCode
+@ToString
+public class CrawledUser
+{
+
+	private static final int FLAG_PROFILE = 1;
+	private static final int FLAG_SUPPORTER = 2;
+	private static final int FLAG_ONLINE = 4;
+
+	private final GameMode mode;
+	private final long userId;
+	private final String username;
+	private final String countryCode;
+	private final long globalRank;
+	private final long countryRank;
+	private final double performancePoints;
+	private final long rankedScore;
+	private final long totalScore;
+	private final double hitAccuracy;
+	private final long playCount;
+	private final long playTime;
+	private final long maximumCombo;
+	private final long ssCount;
+	private final long sshCount;
+	private final long sCount;
+	private final long shCount;
+	private final long aCount;
+	/**
+	 * Whether profile of user was fetched, profile fields are left at defaults otherwise.
+	 */
+	private final boolean profileFetched;
+	private final boolean supporter;
+	private final boolean online;
+	/**
+	 * Epoch milliseconds of user's last visit, 0 if it is hidden or profile wasn't fetched.
+	 */
+	private final long lastVisit;
+
+	static CrawledUser of(GameMode mode, RankingEntry entry, GetUserResponse profile)
+	{
+		GetUserResponse user = entry.getUser();
+		ProfileStatisticsGrades grades = entry.getGrades();
+		CrawledUserBuilder builder = builder()
+				.mode(mode)
+				.userId(user != null ? user.getId() : 0)
+				.username(user != null ? user.getUsername() : null)
+				.countryCode(user != null ? user.getCountryCode() : null)
+				.globalRank(entry.getGlobalRank())
+				.countryRank(entry.getCountryRank())
+				.performancePoints(entry.getPerformancePoints())
+				.rankedScore(entry.getRankedScore())
+				.totalScore(entry.getTotalScore())
+				.hitAccuracy(entry.getHitAccuracy())
+				.playCount(entry.getPlaycount())
+				.playTime(entry.getPlaytime())
+				.maximumCombo(entry.getMaximumCombo());
+		if(grades != null)
+		{
+			builder.ssCount(grades.getSsRanks()).sshCount(grades.getSshRanks()).sCount(grades.getSRanks())
+					.shCount(grades.getShRanks()).aCount(grades.getARanks());
+		}
+		if(profile != null)
+		{
+			builder.profileFetched(true)
+					.supporter(profile.isSupporter())
+					.online(profile.isOnline())
+					.lastVisit(profile.getLastVisitDate() != null ? profile.getLastVisitDate().getTime() : 0);
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Ranks and grade counts are written as ints, they can't exceed number of users and scores.
+	 */
+	void write(DataOutput output) throws IOException
+	{
+		output.writeLong(userId);
+		output.writeUTF(username != null ? username : "");
+		output.writeUTF(countryCode != null ? countryCode : "");
+		output.writeInt((int) globalRank);
+		output.writeInt((int) countryRank);
+		output.writeDouble(performancePoints);
+		output.writeLong(rankedScore);
+		output.writeLong(totalScore);
+		output.writeDouble(hitAccuracy);
+		output.writeLong(playCount);
+		output.writeLong(playTime);
+		output.writeLong(maximumCombo);
+		output.writeInt((int) ssCount);
+		output.writeInt((int) sshCount);
+		output.writeInt((int) sCount);
+		output.writeInt((int) shCount);
+		output.writeInt((int) aCount);
+		output.writeByte((profileFetched ? FLAG_PROFILE : 0) | (supporter ? FLAG_SUPPORTER : 0) | (online ? FLAG_ONLINE : 0));
+		output.writeLong(lastVisit);
+	}
+
+	static CrawledUser read(GameMode mode, DataInput input) throws IOException
+	{
+		CrawledUserBuilder builder = builder()
+				.mode(mode)
+				.userId(input.readLong())
+				.username(emptyToNull(input.readUTF()))
+				.countryCode(emptyToNull(input.readUTF()))
+				.globalRank(input.readInt())
+				.countryRank(input.readInt())
+				.performancePoints(input.readDouble())
+				.rankedScore(input.readLong())
+				.totalScore(input.readLong())
+				.hitAccuracy(input.readDouble())
+				.playCount(input.readLong())
+				.playTime(input.readLong())
+				.maximumCombo(input.readLong())
+				.ssCount(input.readInt())
+				.sshCount(input.readInt())
+				.sCount(input.readInt())
+				.shCount(input.readInt())
+				.aCount(input.readInt());
+		int flags = input.readByte();
+		return builder.profileFetched((flags & FLAG_PROFILE) != 0)
+				.supporter((flags & FLAG_SUPPORTER) != 0)
+				.online((flags & FLAG_ONLINE) != 0)
+				.lastVisit(input.readLong())
+				.build();
+	}
+
+	private static String emptyToNull(String value)
+	{
+		return value.isEmpty() ? null : value;
+	}
+
+}
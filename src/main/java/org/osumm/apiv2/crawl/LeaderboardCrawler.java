@@ -0,0 +1,573 @@
+package org.osumm.apiv2.crawl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import org.osumm.apiv2.OsuApi;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.endpoints.EndpointNotRegisteredException;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.GetRankingRequest;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.GetRankingResponse;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.RankingEntry;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.RankingType;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.CompactUser;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersRequest;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersResponse;
+import org.osumm.apiv2.ratelimit.RateLimiter;
+import org.osumm.apiv2.ratelimit.RequestPriority;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Crawls ranking pages of several game modes with profiles of ranked users into compact append-only output file,
+ * resuming from last checkpoint after crash or {@link #stop() stop}.
+ * <br/><br/>
+ * Up to {@link #maxConcurrency maxConcurrency} pages are crawled at once, each takes one {@link GetRankingEndpoint} call
+ * and, if {@link #fetchProfiles fetchProfiles} is enabled, one {@link GetUsersEndpoint} call for all users of the page.
+ * Calls are made with {@link #priority priority} ({@link RequestPriority#BULK BULK} by default), so they stay within rate limit of API instance
+ * and yield to interactive requests when it has {@link org.osumm.apiv2.ratelimit.RequestScheduler RequestScheduler}.
+ * Failed calls are retried by {@link org.osumm.apiv2.retry.RetryPolicy RetryPolicy} of API, page which still fails stops the crawl.
+ * <br/><br/>
+ * Every page is written as single checksummed record in order of completion. Every {@link #checkpointIntervalMillis checkpointIntervalMillis}
+ * output is flushed to disk and completed pages are recorded in <code>&lt;output&gt;.checkpoint</code> file.
+ * Restarted crawl drops records written after last checkpoint and crawls only pages which aren't completed,
+ * so output never has duplicates. Delete both files to start new crawl into the same output.
+ * Output is read with {@link #read(Path, Consumer) read}.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * LeaderboardCrawler crawler = LeaderboardCrawler.builder()
+ * 		.api(api)
+ * 		.output(Paths.get("ranking-" + LocalDate.now() + ".bin"))
+ * 		.build();
+ * crawler.crawl();
+ * LeaderboardCrawler.read(crawler.getOutput(), user -> System.out.println(user.getUsername() + " " + user.getPerformancePoints()));
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+@Builder
+public class LeaderboardCrawler
+{
+
+	private static final int MAGIC = 0x0C4A3105;
+	private static final int HEADER_SIZE = 8;
+	private static final int CRC_SIZE = 4;
+	private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+	private final OsuApi api;
+	@Getter private final Path output;
+	@Builder.Default @Getter private final List<GameMode> modes = Arrays.asList(GameMode.values());
+	@Builder.Default @Getter private final RankingType type = RankingType.PERFORMANCE;
+	/**
+	 * Two letter country code of crawled rankings, global rankings if null.
+	 */
+	@Getter private final String country;
+	/**
+	 * Number of ranking pages crawled in every mode.
+	 */
+	@Builder.Default @Getter private final int pages = GetRankingEndpoint.MAX_PAGES;
+	@Builder.Default @Getter private final boolean fetchProfiles = true;
+	@Builder.Default @Getter private final int maxConcurrency = 8;
+	@Builder.Default @Getter private final long checkpointIntervalMillis = TimeUnit.SECONDS.toMillis(30);
+	@Builder.Default @Getter private final RequestPriority priority = RequestPriority.BULK;
+
+	private final AtomicReference<Run> lastRun = new AtomicReference<>();
+	private final AtomicBoolean running = new AtomicBoolean();
+	private final AtomicBoolean stopRequested = new AtomicBoolean();
+
+	/**
+	 * Crawls pages not completed by previous runs, blocking until all of them are written, crawl is {@link #stop() stopped} or page fails.
+	 * Progress is checkpointed before this method returns or throws.
+	 * @return true if all pages of all modes are completed
+	 * @throws EndpointNotRegisteredException if {@link GetRankingEndpoint} (or {@link GetUsersEndpoint} when fetching profiles) isn't registered
+	 * @throws IOException first failure of page calls or output writes, also when output is used by another crawler
+	 */
+	public boolean crawl() throws EndpointNotRegisteredException, IOException
+	{
+		if(api == null || output == null || modes == null || modes.isEmpty() || type == null || pages < 1 || pages > GetRankingEndpoint.MAX_PAGES
+				|| maxConcurrency < 1 || checkpointIntervalMillis < 0 || priority == null)
+		{
+			throw new IllegalStateException("Crawler requires api, output, modes, type, priority, pages from 1 to " + GetRankingEndpoint.MAX_PAGES
+					+ ", positive concurrency and non-negative checkpoint interval");
+		}
+		if(!api.isEndpointRegistered(GetRankingEndpoint.class)) { throw new EndpointNotRegisteredException(GetRankingEndpoint.class); }
+		if(fetchProfiles && !api.isEndpointRegistered(GetUsersEndpoint.class)) { throw new EndpointNotRegisteredException(GetUsersEndpoint.class); }
+		if(!running.compareAndSet(false, true))
+		{
+			throw new IllegalStateException("Crawler is already running");
+		}
+		try
+		{
+			stopRequested.set(false);
+			Run run = new Run();
+			lastRun.set(run);
+			return run.execute();
+		}
+		finally
+		{
+			running.set(false);
+		}
+	}
+
+	/**
+	 * Stops running crawl: no more pages are started, {@link #crawl() crawl} returns once pages in progress are written and checkpointed.
+	 */
+	public void stop()
+	{
+		stopRequested.set(true);
+	}
+
+	/**
+	 * @return number of pages crawled in all modes
+	 */
+	public int getTotalPages()
+	{
+		return modes.size() * pages;
+	}
+
+	/**
+	 * @return number of completed pages (including ones completed by previous runs), 0 before first crawl
+	 */
+	public int getCompletedPages()
+	{
+		Run run = lastRun.get();
+		return run != null ? run.countCompleted() : 0;
+	}
+
+	/**
+	 * Estimates time left to complete running crawl as the longer one of time rate limiter needs for remaining calls
+	 * and time remaining pages take at throughput of current run.
+	 * @return estimated milliseconds left, -1 before first crawl
+	 */
+	public long getEstimatedRemainingMillis()
+	{
+		Run run = lastRun.get();
+		return run != null ? run.estimateRemainingMillis() : -1;
+	}
+
+	/**
+	 * Reads users from crawl output in order pages were completed, stops at damaged tail of file.
+	 * @param output - output file of crawler
+	 * @param consumer - called with every crawled user
+	 */
+	public static void read(Path output, Consumer<CrawledUser> consumer) throws IOException
+	{
+		GameMode[] modes = GameMode.values();
+		try(InputStream file = Files.newInputStream(output);
+				DataInputStream input = new DataInputStream(new BufferedInputStream(file, 64 * 1024)))
+		{
+			while(true)
+			{
+				int payloadLength;
+				byte[] payload;
+				try
+				{
+					if(input.readInt() != MAGIC)
+					{
+						return;
+					}
+					payloadLength = input.readInt();
+					if(payloadLength < 0)
+					{
+						return;
+					}
+					payload = new byte[payloadLength];
+					input.readFully(payload);
+					CRC32 crc = new CRC32();
+					crc.update(payload, 0, payloadLength);
+					if((int) crc.getValue() != input.readInt())
+					{
+						return;
+					}
+				}
+				catch(EOFException e)
+				{
+					return;
+				}
+				DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+				GameMode mode = modes[record.readByte()];
+				// Page number
+				record.readShort();
+				int count = record.readShort();
+				for(int i = 0; i < count; i++)
+				{
+					consumer.accept(CrawledUser.read(mode, record));
+				}
+			}
+		}
+	}
+
+	private Path checkpointFile()
+	{
+		return output.resolveSibling(output.getFileName() + CHECKPOINT_SUFFIX);
+	}
+
+	/**
+	 * Parameters which have to match for checkpoint to be resumed.
+	 */
+	private String crawlKey()
+	{
+		return type + " " + (country != null ? country : "global") + (fetchProfiles ? " profiles" : "");
+	}
+
+	private static IOException rethrow(Throwable e)
+	{
+		if(e instanceof IOException)
+		{
+			return (IOException) e;
+		}
+		if(e instanceof RuntimeException)
+		{
+			throw (RuntimeException) e;
+		}
+		if(e instanceof Error)
+		{
+			throw (Error) e;
+		}
+		return new IOException(e);
+	}
+
+	/**
+	 * State of single {@link #crawl() crawl} call.
+	 */
+	private class Run
+	{
+
+		private final Lock lock = new ReentrantLock();
+		private final Semaphore slots = new Semaphore(maxConcurrency);
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+		private final AtomicInteger crawledPages = new AtomicInteger();
+		private final long startedAt = System.nanoTime();
+
+		// Guarded by lock
+		private final CrawlCheckpoint checkpoint;
+		private FileChannel channel;
+		private FileLock fileLock;
+		private long outputLength;
+		private long lastCheckpointAt = System.nanoTime();
+
+		private Run() throws IOException
+		{
+			CrawlCheckpoint loaded = CrawlCheckpoint.load(checkpointFile(), crawlKey());
+			checkpoint = loaded != null ? loaded : new CrawlCheckpoint(crawlKey());
+			channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			try
+			{
+				try
+				{
+					fileLock = channel.tryLock();
+				}
+				catch(OverlappingFileLockException e)
+				{
+					// Locked by another crawler in this JVM
+					fileLock = null;
+				}
+				if(fileLock == null)
+				{
+					throw new IOException("Crawl output is already in use: " + output);
+				}
+				if(channel.size() < checkpoint.getOutputLength())
+				{
+					throw new IOException("Crawl output " + output + " is shorter than its checkpoint");
+				}
+				// Records written after last checkpoint are dropped, their pages are crawled again
+				channel.truncate(checkpoint.getOutputLength());
+				outputLength = checkpoint.getOutputLength();
+			}
+			catch(IOException | RuntimeException e)
+			{
+				channel.close();
+				throw e;
+			}
+		}
+
+		private boolean execute() throws IOException
+		{
+			try
+			{
+				crawlPages();
+			}
+			finally
+			{
+				// Pages in progress still complete and are checkpointed
+				slots.acquireUninterruptibly(maxConcurrency);
+				lock.lock();
+				try
+				{
+					checkpoint();
+					fileLock.release();
+					channel.close();
+				}
+				finally
+				{
+					lock.unlock();
+				}
+			}
+			Throwable e = failure.get();
+			if(e != null)
+			{
+				throw rethrow(e);
+			}
+			return countCompleted() == getTotalPages();
+		}
+
+		private void crawlPages() throws IOException
+		{
+			for(GameMode mode : modes)
+			{
+				for(int page = 1; page <= pages; page++)
+				{
+					if(stopRequested.get() || failure.get() != null)
+					{
+						return;
+					}
+					if(isCompleted(mode, page))
+					{
+						continue;
+					}
+					try
+					{
+						slots.acquire();
+					}
+					catch(InterruptedException e)
+					{
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for pages in progress");
+					}
+					// End of ranking might have been found while waiting
+					if(isCompleted(mode, page))
+					{
+						slots.release();
+						continue;
+					}
+					crawlPage(mode, page).whenComplete((value, e) ->
+					{
+						if(e != null)
+						{
+							failure.compareAndSet(null, Futures.unwrap(e));
+						}
+						slots.release();
+					});
+				}
+			}
+		}
+
+		private CompletableFuture<Void> crawlPage(GameMode mode, int page)
+		{
+			GetRankingRequest request = GetRankingRequest.builder().mode(mode).type(type).country(country).page(page).build();
+			return api.requestAsync(GetRankingEndpoint.class, request, priority).thenCompose(ranking ->
+			{
+				List<RankingEntry> entries = ranking.getRanking() != null ? ranking.getRanking() : Collections.emptyList();
+				List<Long> ids = new ArrayList<>(entries.size());
+				for(RankingEntry entry : entries)
+				{
+					if(entry.getUser() != null)
+					{
+						ids.add(entry.getUser().getId());
+					}
+				}
+				if(!fetchProfiles || ids.isEmpty())
+				{
+					write(mode, page, ranking, entries, null);
+					return CompletableFuture.completedFuture(null);
+				}
+				GetUsersRequest usersRequest = GetUsersRequest.builder().ids(ids).mode(mode).build();
+				return api.requestAsync(GetUsersEndpoint.class, usersRequest, priority).thenAccept(users -> write(mode, page, ranking, entries, users));
+			});
+		}
+
+		/**
+		 * Appends page record and marks page completed, checkpointing if it is due.
+		 * @throws CompletionException with IOException cause if write failed
+		 */
+		private void write(GameMode mode, int page, GetRankingResponse ranking, List<RankingEntry> entries, GetUsersResponse users)
+		{
+			Map<Long, CompactUser> profiles = new HashMap<>();
+			if(users != null && users.getUsers() != null)
+			{
+				for(CompactUser user : users.getUsers())
+				{
+					profiles.put(user.getId(), user);
+				}
+			}
+			try
+			{
+				ByteBuffer record = encode(mode, page, entries, profiles);
+				lock.lock();
+				try
+				{
+					if(record != null)
+					{
+						while(record.hasRemaining())
+						{
+							outputLength += channel.write(record, outputLength);
+						}
+					}
+					checkpoint.complete(mode, page, page);
+					if(ranking.getCursor() == null || entries.isEmpty())
+					{
+						// Pages past the end of ranking are empty
+						checkpoint.complete(mode, page + 1, pages);
+					}
+					if(System.nanoTime() - lastCheckpointAt >= TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMillis))
+					{
+						checkpoint();
+					}
+				}
+				finally
+				{
+					lock.unlock();
+				}
+				crawledPages.incrementAndGet();
+			}
+			catch(IOException e)
+			{
+				throw new CompletionException(e);
+			}
+		}
+
+		/**
+		 * @return record of page, null if page has no users
+		 */
+		private ByteBuffer encode(GameMode mode, int page, List<RankingEntry> entries, Map<Long, CompactUser> profiles) throws IOException
+		{
+			List<CrawledUser> crawled = new ArrayList<>(entries.size());
+			for(RankingEntry entry : entries)
+			{
+				if(entry.getUser() != null)
+				{
+					crawled.add(CrawledUser.of(mode, entry, profiles.get(entry.getUser().getId())));
+				}
+			}
+			if(crawled.isEmpty())
+			{
+				return null;
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_SIZE + crawled.size() * 128);
+			DataOutputStream data = new DataOutputStream(bytes);
+			// Header is filled once payload length is known
+			data.writeLong(0);
+			data.writeByte(mode.ordinal());
+			data.writeShort(page);
+			data.writeShort(crawled.size());
+			for(CrawledUser user : crawled)
+			{
+				user.write(data);
+			}
+			data.writeInt(0);
+			ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+			int payloadLength = record.capacity() - HEADER_SIZE - CRC_SIZE;
+			CRC32 crc = new CRC32();
+			crc.update(record.array(), HEADER_SIZE, payloadLength);
+			record.putInt(0, MAGIC);
+			record.putInt(4, payloadLength);
+			record.putInt(HEADER_SIZE + payloadLength, (int) crc.getValue());
+			return record;
+		}
+
+		/**
+		 * Flushes output and stores completed pages. Called under lock.
+		 */
+		private void checkpoint() throws IOException
+		{
+			channel.force(false);
+			checkpoint.setOutputLength(outputLength);
+			checkpoint.store(checkpointFile());
+			lastCheckpointAt = System.nanoTime();
+		}
+
+		private boolean isCompleted(GameMode mode, int page)
+		{
+			lock.lock();
+			try
+			{
+				return checkpoint.isCompleted(mode, page);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		private int countCompleted()
+		{
+			lock.lock();
+			try
+			{
+				int completed = 0;
+				for(GameMode mode : modes)
+				{
+					completed += checkpoint.countCompleted(mode, pages);
+				}
+				return completed;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+
+		private long estimateRemainingMillis()
+		{
+			int remaining = getTotalPages() - countCompleted();
+			if(remaining <= 0)
+			{
+				return 0;
+			}
+			long estimate = 0;
+			RateLimiter rateLimiter = api.getRateLimiter();
+			if(rateLimiter != null)
+			{
+				long calls = fetchProfiles ? remaining * 2L : remaining;
+				estimate = calls * TimeUnit.MINUTES.toMillis(1) / rateLimiter.getPermitsPerMinute();
+			}
+			int crawled = crawledPages.get();
+			if(crawled > 0)
+			{
+				long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+				estimate = Math.max(estimate, elapsed * remaining / crawled);
+			}
+			return estimate;
+		}
+
+	}
+
+}
@@ -1,9 +1,12 @@
 package org.osumm.apiv2.endpoints;
 
 import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import org.osumm.apiv2.HttpClientProviderBase;
 import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.ResponseReader;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
@@ -31,4 +34,68 @@ public abstract class Endpoint<R, R1>
 	 */
 	public abstract R1 request(R paramHolder, String authToken) throws IOException;
 	
+	/**
+	 * Declares for how long responses of this endpoint may be served from {@link org.osumm.apiv2.cache.ResponseCache ResponseCache}. 
+	 * Endpoints opting into caching should use request objects implementing equals and hashCode.
+	 * @return time to live in milliseconds, 0 (default) disables caching
+	 */
+	public long getCacheTtlMillis()
+	{
+		return 0;
+	}
+	
+	/**
+	 * Declares whether sending the same request twice is harmless, which lets {@link org.osumm.apiv2.retry.HedgePolicy HedgePolicy} 
+	 * send second request while first one is taking too long and {@link org.osumm.apiv2.retry.RetryPolicy RetryPolicy} retry it after network errors.
+	 * @return true for read-only requests, false (default) otherwise
+	 */
+	public boolean isIdempotent()
+	{
+		return false;
+	}
+	
+	/**
+	 * Makes asynchronous request using provided HTTP(S) client. 
+	 * Default implementation calls blocking {@link #request(Object, String) request} on calling thread, 
+	 * endpoints should override it to use async methods of {@link HttpClientProviderBase}.
+	 * @param paramHolder - request object
+	 * @param authToken - authentication token
+	 * @return future completed with response object or exceptionally with {@link IOException}
+	 */
+	public CompletableFuture<R1> requestAsync(R paramHolder, String authToken)
+	{
+		CompletableFuture<R1> future = new CompletableFuture<>();
+		try
+		{
+			future.complete(request(paramHolder, authToken));
+		}
+		catch(IOException | RuntimeException e)
+		{
+			future.completeExceptionally(e);
+		}
+		return future;
+	}
+	
+	/**
+	 * @return reader deserializing response body stream straight into provided type
+	 */
+	protected <T> ResponseReader<T> jsonReader(Class<T> type)
+	{
+		return body -> jsonProvider.fromJson(body, type);
+	}
+	
+	/**
+	 * @param fields - json names of top-level properties to bind, null binds all of them
+	 * @return reader deserializing only listed properties of response body
+	 * @see JsonSerializationProviderBase#fromJson(java.io.InputStream, Class, Set)
+	 */
+	protected <T> ResponseReader<T> jsonReader(Class<T> type, Set<String> fields)
+	{
+		if(fields == null)
+		{
+			return jsonReader(type);
+		}
+		return body -> jsonProvider.fromJson(body, type, fields);
+	}
+	
 }
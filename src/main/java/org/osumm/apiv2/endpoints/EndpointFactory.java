@@ -0,0 +1,19 @@
+package org.osumm.apiv2.endpoints;
+
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.JsonSerializationProviderBase;
+
+/**
+ * Creates endpoint instance bound to API settings. Endpoint constructors match this interface, 
+ * so constructor reference can be used: <code>api.registerEndpoint(GetUserEndpoint.class, GetUserEndpoint::new)</code>.
+ * @author Master-chan
+ *
+ * @param <E> endpoint type
+ */
+@FunctionalInterface
+public interface EndpointFactory<E extends Endpoint<?, ?>>
+{
+	
+	public E create(String baseUrl, HttpClientProviderBase httpClientProvider, JsonSerializationProviderBase jsonProvider);
+	
+}
@@ -0,0 +1,264 @@
+package org.osumm.apiv2.endpoints;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.osumm.apiv2.concurrent.Futures;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Lazy iterator over items of {@link PagedEndpoint}, loading next pages in background while current one is consumed.
+ * <br/><br/>
+ * Up to {@link #readAhead readAhead} pages are loaded or loading ahead of consumer. Pages of endpoints which
+ * {@link PagedEndpoint#predictNextPageRequest(Object) predict} next request are loaded concurrently,
+ * cursor-chained pages are requested one after another as soon as previous page arrives, without waiting for consumer.
+ * <br/><br/>
+ * Failed page is thrown as {@link UncheckedIOException} once consumer reaches it.
+ * Iterator should be {@link #close() closed} if it isn't consumed to the end, so pages loading ahead are cancelled.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * try(Stream<RankingEntry> ranking = api.stream(GetRankingEndpoint.class, GetRankingRequest.builder().mode(GameMode.OSU).build()))
+ * {
+ * 	ranking.limit(1000).forEach(entry -> System.out.println(entry.getUser().getUsername()));
+ * }
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ * @param <R> Page request object data type
+ * @param <P> Page response object data type
+ * @param <T> Item data type
+ */
+public class PageIterator<R, P, T> implements Iterator<T>, Closeable
+{
+
+	private final PagedEndpoint<R, P, T> endpoint;
+	private final Function<R, CompletableFuture<P>> fetcher;
+	@Getter private final int readAhead;
+	private final Lock lock = new ReentrantLock();
+
+	// Guarded by lock
+	private final ArrayDeque<Page> pages = new ArrayDeque<>();
+	private Page tail;
+	private boolean finished;
+
+	// Used by consuming thread only
+	private Iterator<T> items = Collections.emptyIterator();
+
+	/**
+	 * @param endpoint - paged endpoint
+	 * @param firstRequest - request of first page
+	 * @param fetcher - loads page in background, e.g. request through {@link org.osumm.apiv2.OsuApi OsuApi}
+	 * @param readAhead - number of pages loaded ahead of consumer
+	 */
+	public PageIterator(PagedEndpoint<R, P, T> endpoint, R firstRequest, Function<R, CompletableFuture<P>> fetcher, int readAhead)
+	{
+		if(readAhead < 1)
+		{
+			throw new IllegalArgumentException("Read-ahead should be at least 1 page");
+		}
+		this.endpoint = endpoint;
+		this.fetcher = fetcher;
+		this.readAhead = readAhead;
+		lock.lock();
+		try
+		{
+			load(firstRequest, 0);
+			fill();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public boolean hasNext()
+	{
+		while(!items.hasNext())
+		{
+			Page page;
+			lock.lock();
+			try
+			{
+				page = pages.poll();
+				fill();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			if(page == null)
+			{
+				return false;
+			}
+			P response;
+			try
+			{
+				response = Futures.await(page.future);
+			}
+			catch(IOException e)
+			{
+				close();
+				throw new UncheckedIOException(e);
+			}
+			lock.lock();
+			try
+			{
+				// Completion callback might not have run yet
+				onLoaded(page, response);
+			}
+			finally
+			{
+				lock.unlock();
+			}
+			List<T> pageItems = endpoint.getItems(response);
+			items = pageItems != null ? pageItems.iterator() : Collections.emptyIterator();
+		}
+		return true;
+	}
+
+	@Override
+	public T next()
+	{
+		if(!hasNext())
+		{
+			throw new NoSuchElementException();
+		}
+		return items.next();
+	}
+
+	/**
+	 * @return sequential ordered stream over remaining items, closing it closes this iterator
+	 */
+	public Stream<T> stream()
+	{
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(this::close);
+	}
+
+	/**
+	 * Cancels pages loading ahead, iterator returns remaining items of current page only.
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+		try
+		{
+			finished = true;
+			for(Page page : pages)
+			{
+				page.future.cancel(true);
+			}
+			pages.clear();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Requests pages until {@link #readAhead readAhead} of them are queued or next request isn't known yet. Called under lock.
+	 */
+	private void fill()
+	{
+		while(!finished && pages.size() < readAhead)
+		{
+			R next = endpoint.predictNextPageRequest(tail.request);
+			if(next == null)
+			{
+				// Cursor-chained page is requested by completion of current tail
+				if(!tail.future.isDone() || tail.future.isCompletedExceptionally())
+				{
+					return;
+				}
+				next = endpoint.nextPageRequest(tail.request, tail.future.join());
+				if(next == null)
+				{
+					finished = true;
+					return;
+				}
+			}
+			load(next, tail.index + 1);
+		}
+	}
+
+	/**
+	 * Called under lock.
+	 */
+	private void load(R request, int index)
+	{
+		Page page = new Page(request, index, fetcher.apply(request));
+		pages.add(page);
+		tail = page;
+		page.future.whenComplete((response, e) ->
+		{
+			lock.lock();
+			try
+			{
+				if(e != null)
+				{
+					// Failure is thrown to consumer once it reaches this page
+					finished = true;
+					return;
+				}
+				onLoaded(page, response);
+				fill();
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		});
+	}
+
+	/**
+	 * Drops pages requested past provided one if it turned out to be the last. Called under lock.
+	 */
+	private void onLoaded(Page page, P response)
+	{
+		if(finished && tail.index <= page.index)
+		{
+			return;
+		}
+		if(endpoint.nextPageRequest(page.request, response) != null)
+		{
+			return;
+		}
+		finished = true;
+		while(!pages.isEmpty() && pages.peekLast().index > page.index)
+		{
+			pages.pollLast().future.cancel(true);
+		}
+		tail = page;
+	}
+
+	@RequiredArgsConstructor
+	private class Page
+	{
+		private final R request;
+		private final int index;
+		private final CompletableFuture<P> future;
+	}
+
+}
@@ -0,0 +1,51 @@
+package org.osumm.apiv2.endpoints;
+
+import java.util.List;
+
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.JsonSerializationProviderBase;
+
+/**
+ * Endpoint returning results page by page, which can be walked lazily with {@link PageIterator}
+ * (see {@link org.osumm.apiv2.OsuApi#stream(Class, Object) OsuApi.stream}).
+ * Every page is a regular request, so it goes through the same rate limiting, retries and caching as any other one.
+ * @author Master-chan
+ *
+ * @param <R> Page request object data type
+ * @param <P> Page response object data type
+ * @param <T> Item data type
+ */
+public abstract class PagedEndpoint<R, P, T> extends Endpoint<R, P>
+{
+
+	public PagedEndpoint(String baseUrl, HttpClientProviderBase httpClientProvider, JsonSerializationProviderBase jsonProvider)
+	{
+		super(baseUrl, httpClientProvider, jsonProvider);
+	}
+
+	/**
+	 * @return items of provided page in order, null or empty list if it has none
+	 */
+	public abstract List<T> getItems(P page);
+
+	/**
+	 * Builds request of page following provided one, usually from cursor returned in its response.
+	 * @param request - request of current page
+	 * @param page - response of current page
+	 * @return next page request, null if current page is the last one
+	 */
+	public abstract R nextPageRequest(R request, P page);
+
+	/**
+	 * Builds request of page following provided one before its response arrives,
+	 * which is possible for endpoints paginated by page number or offset.
+	 * This lets {@link PageIterator} load several pages concurrently, pages fetched past the last one are dropped.
+	 * @param request - request of current page
+	 * @return next page request, null (default) if it depends on response of current page
+	 */
+	public R predictNextPageRequest(R request)
+	{
+		return null;
+	}
+
+}
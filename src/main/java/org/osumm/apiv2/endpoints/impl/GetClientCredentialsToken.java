@@ -2,19 +2,21 @@ package org.osumm.apiv2.endpoints.impl;
 
 import java.io.IOException;
 import java.net.URL;
+import java.util.concurrent.CompletableFuture;
 
 import org.osumm.apiv2.HttpClientProviderBase;
 import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.concurrent.Futures;
 import org.osumm.apiv2.endpoints.Endpoint;
 import org.osumm.apiv2.endpoints.impl.GetClientCredentialsToken.ClientCredentialsRequest;
 import org.osumm.apiv2.endpoints.impl.GetClientCredentialsToken.ClientCredentialsResponse;
+import org.osumm.apiv2.json.CompiledJson;
+import org.osumm.apiv2.json.JsonName;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.gson.annotations.SerializedName;
-
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.RequiredArgsConstructor;
+import lombok.Setter;
 
 /**
  * APIv2 authorization flow
@@ -35,35 +37,54 @@ public class GetClientCredentialsToken extends Endpoint<ClientCredentialsRequest
 	@Override
 	public ClientCredentialsResponse request(ClientCredentialsRequest paramHolder, String authToken) throws IOException
 	{
-		return getJsonProvider()
-				.fromJson(
-						getHttpClientProvider().post(new URL(urlFormat), getJsonProvider().toJson(paramHolder), 5000), 
-						ClientCredentialsResponse.class);
+		return getHttpClientProvider().post(new URL(urlFormat), getJsonProvider().toJson(paramHolder), 5000, null, jsonReader(ClientCredentialsResponse.class));
+	}
+	
+	@Override
+	public CompletableFuture<ClientCredentialsResponse> requestAsync(ClientCredentialsRequest paramHolder, String authToken)
+	{
+		try
+		{
+			return getHttpClientProvider().postAsync(new URL(urlFormat), getJsonProvider().toJson(paramHolder), 5000, null, jsonReader(ClientCredentialsResponse.class));
+		}
+		catch(IOException e)
+		{
+			return Futures.failed(e);
+		}
 	}
 
+	@CompiledJson
 	@Getter
-	@RequiredArgsConstructor
+	@Setter(AccessLevel.PACKAGE)
+	@NoArgsConstructor(access = AccessLevel.PACKAGE)
 	public static class ClientCredentialsRequest
 	{
-		@JsonProperty("client_id") @SerializedName("client_id")
-		private final long clientId;
-		@JsonProperty("client_secret") @SerializedName("client_secret")
-		private final String clientSecret;
-		@JsonProperty("grant_type") @SerializedName("grant_type")			
+		@JsonName("client_id")
+		private long clientId;
+		@JsonName("client_secret")
+		private String clientSecret;
+		@JsonName("grant_type")
 		private String grantType = "client_credentials";
-		@JsonProperty("scope") @SerializedName("scope")				
 		private String scope = "public"; // Might change to "bot" for bot accounts in the future
+		
+		public ClientCredentialsRequest(long clientId, String clientSecret)
+		{
+			this.clientId = clientId;
+			this.clientSecret = clientSecret;
+		}
 	}
 	
+	@CompiledJson
 	@Getter
+	@Setter(AccessLevel.PACKAGE)
 	@NoArgsConstructor
 	public static class ClientCredentialsResponse
 	{
-		@JsonProperty("token_type")	@SerializedName("token_type")	
+		@JsonName("token_type")
 		private String tokenType;
-		@JsonProperty("expires_in")	@SerializedName("expires_in")	
+		@JsonName("expires_in")
 		private long expiresIn;
-		@JsonProperty("access_token") @SerializedName("access_token")	
+		@JsonName("access_token")
 		private String accessToken;
 	}
 
@@ -0,0 +1,199 @@
+package org.osumm.apiv2.endpoints.impl;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.endpoints.PagedEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.GetRankingRequest;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.GetRankingResponse;
+import org.osumm.apiv2.endpoints.impl.GetRankingEndpoint.RankingEntry;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse.ProfileStatistics;
+import org.osumm.apiv2.json.CompiledJson;
+import org.osumm.apiv2.json.JsonName;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Endpoint for getting performance or score leaderboard of game mode, {@link #PAGE_SIZE 50} users per page
+ * up to {@link #MAX_PAGES 200} pages. Pages are numbered, so whole leaderboard can be streamed with several pages loading at once.
+ * Entries are user statistics with compact {@link RankingEntry#getUser() user} (profile details are missing).
+ * <br/>
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * GetRankingResponse page = api.request(GetRankingEndpoint.class, GetRankingEndpoint.GetRankingRequest.builder().mode(GameMode.OSU).country("JP").page(2).build());
+ * Stream<RankingEntry> ranking = api.stream(GetRankingEndpoint.class, GetRankingEndpoint.GetRankingRequest.builder().mode(GameMode.OSU).build());
+ * }
+ * </pre>
+ *
+ * @see <a href="https://osu.ppy.sh/docs/index.html#get-ranking">Official osu!wiki reference</a>
+ * @author Master-chan
+ *
+ */
+public class GetRankingEndpoint extends PagedEndpoint<GetRankingRequest, GetRankingResponse, RankingEntry>
+{
+
+	public static final int PAGE_SIZE = 50;
+	public static final int MAX_PAGES = 200;
+
+	public GetRankingEndpoint(String baseUrl, HttpClientProviderBase httpClientProvider, JsonSerializationProviderBase jsonProvider)
+	{
+		super(baseUrl, httpClientProvider, jsonProvider);
+		urlFormat = baseUrl + "/api/v2/rankings/%s/%s?cursor%%5Bpage%%5D=%d";
+	}
+
+	private final String urlFormat;
+
+	@Override
+	public GetRankingResponse request(GetRankingRequest paramHolder, String authToken) throws IOException
+	{
+		return getHttpClientProvider().get(buildUrl(paramHolder), 5000, authToken, jsonReader(GetRankingResponse.class));
+	}
+
+	@Override
+	public CompletableFuture<GetRankingResponse> requestAsync(GetRankingRequest paramHolder, String authToken)
+	{
+		URL url;
+		try
+		{
+			url = buildUrl(paramHolder);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			return Futures.failed(e);
+		}
+		return getHttpClientProvider().getAsync(url, 5000, authToken, jsonReader(GetRankingResponse.class));
+	}
+
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+
+	@Override
+	public List<RankingEntry> getItems(GetRankingResponse page)
+	{
+		return page.getRanking();
+	}
+
+	@Override
+	public GetRankingRequest nextPageRequest(GetRankingRequest request, GetRankingResponse page)
+	{
+		if(page.getCursor() == null || page.getRanking() == null || page.getRanking().isEmpty())
+		{
+			return null;
+		}
+		return request.toBuilder().page((int) page.getCursor().getPage()).build();
+	}
+
+	@Override
+	public GetRankingRequest predictNextPageRequest(GetRankingRequest request)
+	{
+		return request.getPage() < MAX_PAGES ? request.toBuilder().page(request.getPage() + 1).build() : null;
+	}
+
+	private URL buildUrl(GetRankingRequest paramHolder) throws IOException
+	{
+		if(paramHolder.getMode() == null || paramHolder.getType() == null || paramHolder.getPage() < 1 || paramHolder.getPage() > MAX_PAGES)
+		{
+			throw new IllegalArgumentException("Ranking request should have mode, type and page from 1 to " + MAX_PAGES);
+		}
+		StringBuilder url = new StringBuilder(String.format(urlFormat, paramHolder.getMode(), paramHolder.getType(), paramHolder.getPage()));
+		if(paramHolder.getCountry() != null)
+		{
+			url.append("&country=").append(URLEncoder.encode(paramHolder.getCountry(), "UTF-8"));
+		}
+		if(paramHolder.getVariant() != null)
+		{
+			url.append("&variant=").append(URLEncoder.encode(paramHolder.getVariant(), "UTF-8"));
+		}
+		return new URL(url.toString());
+	}
+
+	public static enum RankingType
+	{
+
+		PERFORMANCE, SCORE;
+
+		@Override
+		public String toString()
+		{
+			return name().toLowerCase();
+		}
+	}
+
+	@Getter
+	@EqualsAndHashCode
+	@Builder(toBuilder = true)
+	public static class GetRankingRequest
+	{
+
+		private final GameMode mode;
+		@Builder.Default private final RankingType type = RankingType.PERFORMANCE;
+		/**
+		 * Two letter country code, only for {@link RankingType#PERFORMANCE PERFORMANCE} ranking.
+		 */
+		private final String country;
+		/**
+		 * Key count of mania ranking, "4k" or "7k".
+		 */
+		private final String variant;
+		@Builder.Default private final int page = 1;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class GetRankingResponse
+	{
+
+		private List<RankingEntry> ranking;
+		/**
+		 * Cursor of next page, null on the last page.
+		 */
+		private RankingCursor cursor;
+		private long total;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class RankingCursor
+	{
+
+		private long page;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode(callSuper = true)
+	@NoArgsConstructor
+	public static class RankingEntry extends ProfileStatistics
+	{
+
+		@JsonName("country_rank")
+		private long countryRank;
+		private GetUserResponse user;
+	}
+
+}
@@ -3,21 +3,28 @@ package org.osumm.apiv2.endpoints.impl;
 import java.io.IOException;
 import java.net.URL;
 import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.osumm.apiv2.HttpClientProviderBase;
 import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.concurrent.Futures;
 import org.osumm.apiv2.endpoints.Endpoint;
 import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserRequest;
 import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.json.CompiledJson;
+import org.osumm.apiv2.json.JsonName;
 
-import com.fasterxml.jackson.annotation.JsonProperty;
-import com.google.gson.annotations.SerializedName;
-
+import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 /**
  * Endpoint for getting user information. Request parameters should contain userId or username and gamemode (optional). API request will always be made using userId if it is present.
@@ -29,6 +36,12 @@ import lombok.NoArgsConstructor;
  * GetUserResponse user = api.request(GetUserEndpoint.class, GetUserEndpoint.GetUserRequest.builder().username("Anemic Witch").build());
  * }
  * </pre>
+ * Heavy profile parts (achievements, badges) can be skipped when only some fields are needed, unlisted fields are left null:
+ * <pre>
+ * {@code
+ * GetUserRequest.builder().userId(2).fields(GetUserRequest.STATISTICS_FIELDS).build();
+ * }
+ * </pre>
  * 
  * @see <a href="https://osu.ppy.sh/docs/index.html?bash#get-user">Official osu!wiki reference</a>
  * @author Master-chan
@@ -47,6 +60,38 @@ public class GetUserEndpoint extends Endpoint<GetUserRequest, GetUserResponse>
 
 	@Override
 	public GetUserResponse request(GetUserRequest paramHolder, String authToken) throws IOException
+	{
+		return getHttpClientProvider().get(buildUrl(paramHolder), 5000, authToken, jsonReader(GetUserResponse.class, paramHolder.getFields()));
+	}
+	
+	@Override
+	public CompletableFuture<GetUserResponse> requestAsync(GetUserRequest paramHolder, String authToken)
+	{
+		URL url;
+		try
+		{
+			url = buildUrl(paramHolder);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			return Futures.failed(e);
+		}
+		return getHttpClientProvider().getAsync(url, 5000, authToken, jsonReader(GetUserResponse.class, paramHolder.getFields()));
+	}
+	
+	@Override
+	public long getCacheTtlMillis()
+	{
+		return TimeUnit.MINUTES.toMillis(1);
+	}
+	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+	
+	private URL buildUrl(GetUserRequest paramHolder) throws IOException
 	{
 		if(paramHolder.getUserId() < 1 && paramHolder.getUsername() == null)
 		{
@@ -56,9 +101,7 @@ public class GetUserEndpoint extends Endpoint<GetUserRequest, GetUserResponse>
 				paramHolder.getUserId() >= 1 ? paramHolder.getUserId() : paramHolder.getUsername(),
 				paramHolder.getMode() != null ? paramHolder.getMode() : "",
 				paramHolder.getUserId() >= 1 ? "id" : "username");
-		String value = getHttpClientProvider().get(new URL(url), 5000, authToken);
-		GetUserResponse response = getJsonProvider().fromJson(value, GetUserResponse.class);
-		return response;
+		return new URL(url);
 	}
 
 	public static enum GameMode
@@ -82,9 +125,21 @@ public class GetUserEndpoint extends Endpoint<GetUserRequest, GetUserResponse>
 		@Builder.Default private final long userId = -1;
 		private final GameMode mode;
 		private final String username;
+		/**
+		 * Json names of top-level response properties to deserialize, null (default) deserializes all of them.
+		 */
+		private final Set<String> fields;
+		
+		/**
+		 * Id, username, country and statistics only.
+		 */
+		public static final Set<String> STATISTICS_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+				"id", "username", "playmode", "country_code", "is_active", "statistics")));
 	}
 
+	@CompiledJson
 	@Getter
+	@Setter(AccessLevel.PACKAGE)
 	@EqualsAndHashCode
 	@NoArgsConstructor
 	public static class GetUserResponse
@@ -102,54 +157,56 @@ public class GetUserEndpoint extends Endpoint<GetUserRequest, GetUserResponse>
 		private String title;
 		private ProfileStatistics statistics;
 		private ProfileStatisticsKudosu kudosu;
-		@JsonProperty("avatar_url") @SerializedName("avatar_url")
+		@JsonName("avatar_url")
 		private String avatarUrl;
-		@JsonProperty("cover_url") @SerializedName("cover_url")
+		@JsonName("cover_url")
 		private String coverUrl;
-		@JsonProperty("has_supported") @SerializedName("has_supported")
+		@JsonName("has_supported")
 		private boolean hasSupported;
-		@JsonProperty("join_date") @SerializedName("join_date")
+		@JsonName("join_date")
 		private Timestamp joinDate;
-		@JsonProperty("last_visit") @SerializedName("last_visit")
+		@JsonName("last_visit")
 		private Timestamp lastVisitDate;
-		@JsonProperty("user_achievements") @SerializedName("user_achievements")
+		@JsonName("user_achievements")
 		private Set<ProfileAchievement> achievements;
-		@JsonProperty("country_code") @SerializedName("country_code")
+		@JsonName("country_code")
 		private String countryCode;
-		@JsonProperty("default_group") @SerializedName("default_group")
+		@JsonName("default_group")
 		private String defaultGroup;
-		@JsonProperty("profile_colour") @SerializedName("profile_colour")
+		@JsonName("profile_colour")
 		private String profileColor;
-		@JsonProperty("is_active") @SerializedName("is_active")
+		@JsonName("is_active")
 		private boolean active;
-		@JsonProperty("is_bot") @SerializedName("is_bot")
+		@JsonName("is_bot")
 		private boolean bot;
-		@JsonProperty("is_deleted") @SerializedName("is_deleted")
+		@JsonName("is_deleted")
 		private boolean deleted;
-		@JsonProperty("is_online") @SerializedName("is_online")
+		@JsonName("is_online")
 		private boolean online;
-		@JsonProperty("is_supporter") @SerializedName("is_supporter")
+		@JsonName("is_supporter")
 		private boolean supporter;
-		@JsonProperty("pm_friends_only") @SerializedName("pm_friends_only")
+		@JsonName("pm_friends_only")
 		private boolean pmFriendsOnly;
-		@JsonProperty("support_level") @SerializedName("support_level")
+		@JsonName("support_level")
 		private long supportLevel;
-		@JsonProperty("scores_first_count") @SerializedName("scores_first_count")
+		@JsonName("scores_first_count")
 		private long firstPlaces;
-		@JsonProperty("follower_count") @SerializedName("follower_count")
+		@JsonName("follower_count")
 		private long followers;
-		@JsonProperty("favourite_beatmapset_count") @SerializedName("favourite_beatmapset_count")
+		@JsonName("favourite_beatmapset_count")
 		private long favoriteBeatmapsCount;
-		@JsonProperty("unranked_beatmapset_count") @SerializedName("unranked_beatmapset_count")
+		@JsonName("unranked_beatmapset_count")
 		private long unrankedBeatmapsCount;
-		@JsonProperty("graveyard_beatmapset_count") @SerializedName("graveyard_beatmapset_count")
+		@JsonName("graveyard_beatmapset_count")
 		private long graveyeardBeatmapsCount;
-		@JsonProperty("loved_beatmapset_count") @SerializedName("loved_beatmapset_count")
+		@JsonName("loved_beatmapset_count")
 		private long lovedBeatmapsCount;
-		@JsonProperty("ranked_and_approved_beatmapset_count") @SerializedName("ranked_and_approved_beatmapset_count")
+		@JsonName("ranked_and_approved_beatmapset_count")
 		private long rankedAndApprovedBeatmapsCount;
 
+		@CompiledJson
 		@Getter
+		@Setter(AccessLevel.PACKAGE)
 		@EqualsAndHashCode
 		@NoArgsConstructor
 		public static class ProfileBadge
@@ -157,25 +214,29 @@ public class GetUserEndpoint extends Endpoint<GetUserRequest, GetUserResponse>
 
 			private String description;
 			private String url;
-			@JsonProperty("awarded_at") @SerializedName("awarded_at")
+			@JsonName("awarded_at")
 			private Timestamp awardedAt;
-			@JsonProperty("image_url") @SerializedName("image_url")
+			@JsonName("image_url")
 			private String imageUrl;
 		}
 
+		@CompiledJson
 		@Getter
+		@Setter(AccessLevel.PACKAGE)
 		@EqualsAndHashCode
 		@NoArgsConstructor
 		public static class ProfileAchievement
 		{
 
-			@JsonProperty("achievement_id") @SerializedName("achievement_id")
+			@JsonName("achievement_id")
 			private long id;
-			@JsonProperty("achieved_at") @SerializedName("achieved_at")
+			@JsonName("achieved_at")
 			private Timestamp achievedAt;
 		}
 
+		@CompiledJson
 		@Getter
+		@Setter(AccessLevel.PACKAGE)
 		@EqualsAndHashCode
 		@NoArgsConstructor
 		public static class ProfileStatisticsKudosu
@@ -185,41 +246,44 @@ public class GetUserEndpoint extends Endpoint<GetUserRequest, GetUserResponse>
 			private long available;
 		}
 
+		@CompiledJson
 		@Getter
+		@Setter(AccessLevel.PACKAGE)
 		@EqualsAndHashCode
 		@NoArgsConstructor
 		public static class ProfileStatistics
 		{
 
 			private ProfileStatisticsLevel level;
-			@JsonProperty("pp") @SerializedName("pp")
+			@JsonName("pp")
 			private double performancePoints;
-			@JsonProperty("global_rank") @SerializedName("global_rank")
+			@JsonName("global_rank")
 			private long globalRank;
-			@JsonProperty("ranked_score") @SerializedName("ranked_score")
+			@JsonName("ranked_score")
 			private long rankedScore;
-			@JsonProperty("hit_accuracy") @SerializedName("hit_accuracy")
+			@JsonName("hit_accuracy")
 			private double hitAccuracy;
-			@JsonProperty("play_count") @SerializedName("play_count")
+			@JsonName("play_count")
 			private long playcount;
-			@JsonProperty("play_time") @SerializedName("play_time")
+			@JsonName("play_time")
 			private long playtime;
-			@JsonProperty("total_score") @SerializedName("total_score")
+			@JsonName("total_score")
 			private long totalScore;
-			@JsonProperty("total_hits") @SerializedName("total_hits")
+			@JsonName("total_hits")
 			private long totalHits;
-			@JsonProperty("maximum_combo") @SerializedName("maximum_combo")
+			@JsonName("maximum_combo")
 			private long maximumCombo;
-			@JsonProperty("is_ranked") @SerializedName("is_ranked")
+			@JsonName("is_ranked")
 			private boolean ranked;
-			@JsonProperty("grade_counts") @SerializedName("grade_counts")
+			@JsonName("grade_counts")
 			private ProfileStatisticsGrades grades;
-			@JsonProperty("rank") @SerializedName("rank")
 			private ProfileStatisticsRank rank;
-			@JsonProperty("replays_watched_by_others") @SerializedName("replays_watched_by_others")
+			@JsonName("replays_watched_by_others")
 			private long replaysWatchedByOthers;
 
+			@CompiledJson
 			@Getter
+			@Setter(AccessLevel.PACKAGE)
 			@EqualsAndHashCode
 			@NoArgsConstructor
 			public static class ProfileStatisticsLevel
@@ -229,24 +293,28 @@ public class GetUserEndpoint extends Endpoint<GetUserRequest, GetUserResponse>
 				private double progress;
 			}
 
+			@CompiledJson
 			@Getter
+			@Setter(AccessLevel.PACKAGE)
 			@EqualsAndHashCode
 			@NoArgsConstructor
 			public static class ProfileStatisticsGrades
 			{
-				@JsonProperty("s") @SerializedName("s")
+				@JsonName("s")
 				private long sRanks;
-				@JsonProperty("ss") @SerializedName("ss")
+				@JsonName("ss")
 				private long ssRanks;
-				@JsonProperty("sh") @SerializedName("sh")
+				@JsonName("sh")
 				private long shRanks;
-				@JsonProperty("ssh") @SerializedName("ssh")
+				@JsonName("ssh")
 				private long sshRanks;
-				@JsonProperty("a") @SerializedName("a")
+				@JsonName("a")
 				private long aRanks;
 			}
 
+			@CompiledJson
 			@Getter
+			@Setter(AccessLevel.PACKAGE)
 			@EqualsAndHashCode
 			@NoArgsConstructor
 			public static class ProfileStatisticsRank
@@ -0,0 +1,275 @@
+package org.osumm.apiv2.endpoints.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.ResponseReader;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.endpoints.PagedEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+import org.osumm.apiv2.endpoints.impl.GetUserScoresEndpoint.GetUserScoresRequest;
+import org.osumm.apiv2.endpoints.impl.GetUserScoresEndpoint.GetUserScoresResponse;
+import org.osumm.apiv2.endpoints.impl.GetUserScoresEndpoint.Score;
+import org.osumm.apiv2.json.CompiledJson;
+import org.osumm.apiv2.json.JsonName;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Endpoint for getting best, first place, recent or pinned scores of user, up to {@link #MAX_LIMIT 100} per page.
+ * Pages are selected by offset, so all scores can be streamed with several pages loading at once.
+ * <br/>
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * List<Score> best = api.stream(GetUserScoresEndpoint.class, GetUserScoresEndpoint.GetUserScoresRequest.builder().userId(2).mode(GameMode.OSU).build())
+ * 		.collect(Collectors.toList());
+ * }
+ * </pre>
+ *
+ * @see <a href="https://osu.ppy.sh/docs/index.html#get-user-scores">Official osu!wiki reference</a>
+ * @author Master-chan
+ *
+ */
+public class GetUserScoresEndpoint extends PagedEndpoint<GetUserScoresRequest, GetUserScoresResponse, Score>
+{
+
+	public static final int MAX_LIMIT = 100;
+
+	/**
+	 * Response is top-level json array, it is wrapped into object so every json provider can bind it.
+	 */
+	private static final byte[] WRAPPER_PREFIX = "{\"scores\":".getBytes(StandardCharsets.UTF_8);
+	private static final byte[] WRAPPER_SUFFIX = "}".getBytes(StandardCharsets.UTF_8);
+
+	public GetUserScoresEndpoint(String baseUrl, HttpClientProviderBase httpClientProvider, JsonSerializationProviderBase jsonProvider)
+	{
+		super(baseUrl, httpClientProvider, jsonProvider);
+		urlFormat = baseUrl + "/api/v2/users/%d/scores/%s?limit=%d&offset=%d&include_fails=%d";
+	}
+
+	private final String urlFormat;
+
+	@Override
+	public GetUserScoresResponse request(GetUserScoresRequest paramHolder, String authToken) throws IOException
+	{
+		return getHttpClientProvider().get(buildUrl(paramHolder), 5000, authToken, scoresReader());
+	}
+
+	@Override
+	public CompletableFuture<GetUserScoresResponse> requestAsync(GetUserScoresRequest paramHolder, String authToken)
+	{
+		URL url;
+		try
+		{
+			url = buildUrl(paramHolder);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			return Futures.failed(e);
+		}
+		return getHttpClientProvider().getAsync(url, 5000, authToken, scoresReader());
+	}
+
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+
+	@Override
+	public List<Score> getItems(GetUserScoresResponse page)
+	{
+		return page.getScores();
+	}
+
+	@Override
+	public GetUserScoresRequest nextPageRequest(GetUserScoresRequest request, GetUserScoresResponse page)
+	{
+		// Short page is the last one
+		if(page.getScores() == null || page.getScores().size() < request.getLimit())
+		{
+			return null;
+		}
+		return predictNextPageRequest(request);
+	}
+
+	@Override
+	public GetUserScoresRequest predictNextPageRequest(GetUserScoresRequest request)
+	{
+		return request.toBuilder().offset(request.getOffset() + request.getLimit()).build();
+	}
+
+	private ResponseReader<GetUserScoresResponse> scoresReader()
+	{
+		ResponseReader<GetUserScoresResponse> reader = jsonReader(GetUserScoresResponse.class);
+		return body ->
+		{
+			List<InputStream> parts = Arrays.asList(new ByteArrayInputStream(WRAPPER_PREFIX), body, new ByteArrayInputStream(WRAPPER_SUFFIX));
+			return reader.read(new SequenceInputStream(Collections.enumeration(parts)));
+		};
+	}
+
+	private URL buildUrl(GetUserScoresRequest paramHolder) throws IOException
+	{
+		if(paramHolder.getUserId() < 1 || paramHolder.getType() == null || paramHolder.getLimit() < 1 || paramHolder.getLimit() > MAX_LIMIT || paramHolder.getOffset() < 0)
+		{
+			throw new IllegalArgumentException("Scores request should have valid userId (>=1), type, limit from 1 to " + MAX_LIMIT + " and non-negative offset");
+		}
+		String url = String.format(urlFormat, paramHolder.getUserId(), paramHolder.getType(), paramHolder.getLimit(), paramHolder.getOffset(),
+				paramHolder.isIncludeFails() ? 1 : 0);
+		if(paramHolder.getMode() != null)
+		{
+			url += "&mode=" + paramHolder.getMode();
+		}
+		return new URL(url);
+	}
+
+	public static enum ScoreType
+	{
+
+		BEST, FIRSTS, RECENT, PINNED;
+
+		@Override
+		public String toString()
+		{
+			return name().toLowerCase();
+		}
+	}
+
+	@Getter
+	@EqualsAndHashCode
+	@Builder(toBuilder = true)
+	public static class GetUserScoresRequest
+	{
+
+		@Builder.Default private final long userId = -1;
+		@Builder.Default private final ScoreType type = ScoreType.BEST;
+		/**
+		 * User's own playmode if null.
+		 */
+		private final GameMode mode;
+		/**
+		 * Include failed scores, only for {@link ScoreType#RECENT RECENT} scores.
+		 */
+		private final boolean includeFails;
+		@Builder.Default private final int limit = MAX_LIMIT;
+		private final int offset;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class GetUserScoresResponse
+	{
+
+		private List<Score> scores;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class Score
+	{
+
+		private long id;
+		@JsonName("user_id")
+		private long userId;
+		private long score;
+		private double accuracy;
+		/**
+		 * Null for scores which don't award pp (e.g. on loved beatmaps).
+		 */
+		private Double pp;
+		private String rank;
+		private String mode;
+		private List<String> mods;
+		@JsonName("max_combo")
+		private long maxCombo;
+		private boolean perfect;
+		private boolean passed;
+		@JsonName("created_at")
+		private Timestamp createdAt;
+		private ScoreStatistics statistics;
+		private ScoreBeatmap beatmap;
+		private ScoreBeatmapset beatmapset;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class ScoreStatistics
+	{
+
+		@JsonName("count_300")
+		private long count300;
+		@JsonName("count_100")
+		private long count100;
+		@JsonName("count_50")
+		private long count50;
+		@JsonName("count_geki")
+		private long countGeki;
+		@JsonName("count_katu")
+		private long countKatu;
+		@JsonName("count_miss")
+		private long countMiss;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class ScoreBeatmap
+	{
+
+		private long id;
+		@JsonName("beatmapset_id")
+		private long beatmapsetId;
+		private String version;
+		private String mode;
+		private String status;
+		@JsonName("difficulty_rating")
+		private double difficultyRating;
+		@JsonName("total_length")
+		private long totalLength;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class ScoreBeatmapset
+	{
+
+		private long id;
+		private String artist;
+		private String title;
+		private String creator;
+	}
+
+}
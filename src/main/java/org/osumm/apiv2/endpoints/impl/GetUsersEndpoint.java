@@ -0,0 +1,169 @@
+package org.osumm.apiv2.endpoints.impl;
+
+import java.io.IOException;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.endpoints.Endpoint;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersRequest;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersResponse;
+import org.osumm.apiv2.json.CompiledJson;
+import org.osumm.apiv2.json.JsonName;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.Singular;
+
+/**
+ * Endpoint for getting up to {@link #MAX_IDS 50} users by their ids in single call. 
+ * Returned users are compact: they carry statistics of every game mode, but miss profile details like badges or achievements. 
+ * Users which don't exist are simply missing from response.
+ * <br/>
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * GetUsersResponse users = api.request(GetUsersEndpoint.class, GetUsersEndpoint.GetUsersRequest.builder().id(2).id(124493).build());
+ * }
+ * </pre>
+ * 
+ * @see <a href="https://osu.ppy.sh/docs/index.html#get-users">Official osu!wiki reference</a>
+ * @author Master-chan
+ *
+ */
+public class GetUsersEndpoint extends Endpoint<GetUsersRequest, GetUsersResponse>
+{
+	
+	public static final int MAX_IDS = 50;
+
+	public GetUsersEndpoint(String baseUrl, HttpClientProviderBase httpClientProvider, JsonSerializationProviderBase jsonProvider)
+	{
+		super(baseUrl, httpClientProvider, jsonProvider);
+		urlPrefix = baseUrl + "/api/v2/users?";
+	}
+
+	private final String urlPrefix;
+
+	@Override
+	public GetUsersResponse request(GetUsersRequest paramHolder, String authToken) throws IOException
+	{
+		GetUsersResponse response = getHttpClientProvider().get(buildUrl(paramHolder), 5000, authToken, jsonReader(GetUsersResponse.class));
+		return response.selectMode(paramHolder.getMode());
+	}
+	
+	@Override
+	public CompletableFuture<GetUsersResponse> requestAsync(GetUsersRequest paramHolder, String authToken)
+	{
+		URL url;
+		try
+		{
+			url = buildUrl(paramHolder);
+		}
+		catch(IOException | RuntimeException e)
+		{
+			return Futures.failed(e);
+		}
+		return getHttpClientProvider().getAsync(url, 5000, authToken, jsonReader(GetUsersResponse.class))
+				.thenApply(response -> response.selectMode(paramHolder.getMode()));
+	}
+	
+	@Override
+	public boolean isIdempotent()
+	{
+		return true;
+	}
+	
+	private URL buildUrl(GetUsersRequest paramHolder) throws IOException
+	{
+		if(paramHolder.getIds().isEmpty() || paramHolder.getIds().size() > MAX_IDS)
+		{
+			throw new IllegalArgumentException("Users request should have from 1 to " + MAX_IDS + " ids");
+		}
+		StringBuilder url = new StringBuilder(urlPrefix.length() + paramHolder.getIds().size() * 16).append(urlPrefix);
+		for(Long id : paramHolder.getIds())
+		{
+			// ids[]=
+			url.append("ids%5B%5D=").append(id).append('&');
+		}
+		url.setLength(url.length() - 1);
+		return new URL(url.toString());
+	}
+
+	@Getter
+	@EqualsAndHashCode
+	@Builder
+	public static class GetUsersRequest
+	{
+		
+		@Singular private final List<Long> ids;
+		/**
+		 * Game mode of {@link GetUserResponse#getStatistics() statistics} in returned users, each user's own playmode if null.
+		 * Not sent to API since it always returns statistics of all modes.
+		 */
+		private final GameMode mode;
+	}
+
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode
+	@NoArgsConstructor
+	public static class GetUsersResponse
+	{
+		
+		private List<CompactUser> users;
+		
+		private GetUsersResponse selectMode(GameMode mode)
+		{
+			if(users != null)
+			{
+				for(CompactUser user : users)
+				{
+					user.mode = mode;
+				}
+			}
+			return this;
+		}
+	}
+	
+	/**
+	 * User returned by batch lookup. Unlike full profile it has statistics of every game mode, 
+	 * {@link #getStatistics() getStatistics} returns ones of mode requested in {@link GetUsersRequest}.
+	 */
+	@CompiledJson
+	@Getter
+	@Setter(AccessLevel.PACKAGE)
+	@EqualsAndHashCode(callSuper = true)
+	@NoArgsConstructor
+	public static class CompactUser extends GetUserResponse
+	{
+		
+		@JsonName("statistics_rulesets")
+		private Map<String, ProfileStatistics> statisticsRulesets;
+		@Getter(AccessLevel.NONE)
+		private transient GameMode mode;
+		
+		@Override
+		public ProfileStatistics getStatistics()
+		{
+			String ruleset = mode != null ? mode.toString() : getPlaymode();
+			if(statisticsRulesets != null && ruleset != null && statisticsRulesets.containsKey(ruleset))
+			{
+				return statisticsRulesets.get(ruleset);
+			}
+			return super.getStatistics();
+		}
+	}
+
+}
@@ -0,0 +1,150 @@
+package org.osumm.apiv2.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.json.CompiledJson;
+import org.osumm.apiv2.json.JsonAdapter;
+import org.osumm.apiv2.json.JsonAdapters;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Serialization provider using {@link JsonAdapter JsonAdapters} generated at compile time for {@link CompiledJson} classes.
+ * Generated adapters stream tokens straight into fields without reflection, so there is no binding metadata to build
+ * on first request and much less code for JIT to warm up. Only jackson-core is needed at runtime.
+ * <br/>
+ * Types without generated adapter (custom endpoints not annotated with {@link CompiledJson}) are handled by fallback provider,
+ * which is only created once it is needed.
+ * <br/>
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * OsuApi api = OsuApi.builder().clientId(id).clientSecret(secret).jsonSerializationProvider(new CompiledJsonSerializationProvider()).build();
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+public class CompiledJsonSerializationProvider implements JsonSerializationProviderBase
+{
+
+	private static final ClassValue<JsonAdapter<?>> ADAPTERS = new ClassValue<JsonAdapter<?>>()
+	{
+		@Override
+		protected JsonAdapter<?> computeValue(Class<?> type)
+		{
+			return JsonAdapters.generated(type);
+		}
+	};
+
+	// Stream is owned by http client provider
+	private final JsonFactory jsonFactory = new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+	private final Supplier<JsonSerializationProviderBase> fallbackFactory;
+	private volatile JsonSerializationProviderBase fallback;
+
+	/**
+	 * Creates provider falling back to {@link JacksonSerializationProvider} for types without generated adapters.
+	 */
+	public CompiledJsonSerializationProvider()
+	{
+		this(JacksonSerializationProvider::new);
+	}
+
+	/**
+	 * @param fallbackFactory - creates provider for types without generated adapters, called at most once
+	 */
+	public CompiledJsonSerializationProvider(Supplier<JsonSerializationProviderBase> fallbackFactory)
+	{
+		this.fallbackFactory = fallbackFactory;
+	}
+
+	@Override
+	public <T> T fromJson(String data, Class<T> type) throws IOException
+	{
+		JsonAdapter<T> adapter = adapter(type);
+		if(adapter == null)
+		{
+			return fallback().fromJson(data, type);
+		}
+		return read(jsonFactory.createParser(data), adapter, null);
+	}
+
+	@Override
+	public <T> T fromJson(InputStream data, Class<T> type) throws IOException
+	{
+		return fromJson(data, type, null);
+	}
+
+	@Override
+	public <T> T fromJson(InputStream data, Class<T> type, Set<String> fields) throws IOException
+	{
+		JsonAdapter<T> adapter = adapter(type);
+		if(adapter == null)
+		{
+			return fallback().fromJson(data, type, fields);
+		}
+		return read(jsonFactory.createParser(data), adapter, fields);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public String toJson(Object data) throws IOException
+	{
+		JsonAdapter<Object> adapter = data == null ? null : (JsonAdapter<Object>) adapter(data.getClass());
+		if(adapter == null)
+		{
+			return fallback().toJson(data);
+		}
+		StringWriter writer = new StringWriter();
+		try(JsonGenerator generator = jsonFactory.createGenerator(writer))
+		{
+			adapter.write(generator, data);
+		}
+		return writer.toString();
+	}
+
+	private <T> T read(JsonParser parser, JsonAdapter<T> adapter, Set<String> fields) throws IOException
+	{
+		try(JsonParser p = parser)
+		{
+			if(p.nextToken() == null)
+			{
+				throw new JsonParseException(p, "No content to read");
+			}
+			return adapter.read(p, fields);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> JsonAdapter<T> adapter(Class<T> type)
+	{
+		return (JsonAdapter<T>) ADAPTERS.get(type);
+	}
+
+	private JsonSerializationProviderBase fallback()
+	{
+		JsonSerializationProviderBase current = fallback;
+		if(current == null)
+		{
+			synchronized(this)
+			{
+				current = fallback;
+				if(current == null)
+				{
+					fallback = current = fallbackFactory.get();
+				}
+			}
+		}
+		return current;
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.osumm.apiv2.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts bytes read from wrapped stream, used for reporting transferred response sizes. 
+ * Optionally keeps copy of read bytes for {@link org.osumm.apiv2.cache.HttpDiskCache HttpDiskCache}.
+ * @author Master-chan
+ *
+ */
+class CountingInputStream extends FilterInputStream
+{
+	
+	private final ByteArrayOutputStream copy;
+	private long count;
+	
+	CountingInputStream(InputStream in)
+	{
+		this(in, false);
+	}
+	
+	/**
+	 * @param capture - keep copy of read bytes
+	 */
+	CountingInputStream(InputStream in, boolean capture)
+	{
+		super(in);
+		copy = capture ? new ByteArrayOutputStream(8192) : null;
+	}
+	
+	long getCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * @return bytes read so far, only available if stream was created with capture enabled
+	 */
+	byte[] getCopy()
+	{
+		return copy.toByteArray();
+	}
+
+	@Override
+	public int read() throws IOException
+	{
+		int b = super.read();
+		if(b >= 0)
+		{
+			count++;
+			if(copy != null)
+			{
+				copy.write(b);
+			}
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException
+	{
+		int read = super.read(b, off, len);
+		if(read > 0)
+		{
+			count += read;
+			if(copy != null)
+			{
+				copy.write(b, off, read);
+			}
+		}
+		return read;
+	}
+
+	@Override
+	public long skip(long n) throws IOException
+	{
+		if(copy != null)
+		{
+			return Math.max(read(new byte[(int) Math.min(n, 8192)]), 0);
+		}
+		long skipped = super.skip(n);
+		count += skipped;
+		return skipped;
+	}
+
+	@Override
+	public boolean markSupported()
+	{
+		return false;
+	}
+	
+	/**
+	 * Reads stream till the end. Json parsers stop at the end of root value, which leaves gzip trailer unread.
+	 */
+	static void skipRemaining(InputStream inputStream) throws IOException
+	{
+		byte[] buf = new byte[1024];
+		while(inputStream.read(buf) >= 0);
+	}
+	
+}
@@ -1,12 +1,28 @@
 package org.osumm.apiv2.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Set;
 
 import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.json.JsonName;
 
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 
 public class GsonSerializationProvider implements JsonSerializationProviderBase
 {
@@ -15,7 +31,14 @@ public class GsonSerializationProvider implements JsonSerializationProviderBase
 	
 	public GsonSerializationProvider()
 	{
-		gson = new GsonBuilder().setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES).create();
+		gson = new GsonBuilder()
+				.setFieldNamingStrategy(field -> 
+				{
+					JsonName name = field.getAnnotation(JsonName.class);
+					return name != null ? name.value() : FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES.translateName(field);
+				})
+				.registerTypeAdapter(Timestamp.class, new TimestampAdapter().nullSafe())
+				.create();
 	}
 	
 	@Override
@@ -24,9 +47,93 @@ public class GsonSerializationProvider implements JsonSerializationProviderBase
 		return gson.fromJson(data, type);
 	}
 
+	@Override
+	public <T> T fromJson(InputStream data, Class<T> type) throws IOException
+	{
+		try
+		{
+			return gson.fromJson(new InputStreamReader(data, StandardCharsets.UTF_8), type);
+		}
+		catch(JsonParseException e)
+		{
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public <T> T fromJson(InputStream data, Class<T> type, Set<String> fields) throws IOException
+	{
+		if(fields == null)
+		{
+			return fromJson(data, type);
+		}
+		try
+		{
+			JsonReader reader = gson.newJsonReader(new InputStreamReader(data, StandardCharsets.UTF_8));
+			if(reader.peek() != JsonToken.BEGIN_OBJECT)
+			{
+				return gson.fromJson(reader, type);
+			}
+			// Listed properties are collected into small tree, skipValue() scans the rest without building strings or objects
+			TypeAdapter<JsonElement> elementAdapter = gson.getAdapter(JsonElement.class);
+			JsonObject projection = new JsonObject();
+			reader.beginObject();
+			while(reader.hasNext())
+			{
+				String name = reader.nextName();
+				if(fields.contains(name))
+				{
+					projection.add(name, elementAdapter.read(reader));
+				}
+				else
+				{
+					reader.skipValue();
+				}
+			}
+			reader.endObject();
+			return gson.fromJson(projection, type);
+		}
+		catch(JsonParseException | IllegalStateException e)
+		{
+			throw new IOException(e);
+		}
+	}
+
 	@Override
 	public String toJson(Object data) throws IOException
 	{
 		return gson.toJson(data);
 	}
+	
+	/**
+	 * API returns ISO-8601 dates (2007-08-28T03:09:12+00:00), while default Gson adapter expects locale specific format.
+	 */
+	private static class TimestampAdapter extends TypeAdapter<Timestamp>
+	{
+		
+		@Override
+		public void write(JsonWriter out, Timestamp value) throws IOException
+		{
+			out.value(value.toInstant().toString());
+		}
+
+		@Override
+		public Timestamp read(JsonReader in) throws IOException
+		{
+			if(in.peek() == JsonToken.NULL)
+			{
+				in.nextNull();
+				return null;
+			}
+			String value = in.nextString();
+			try
+			{
+				return Timestamp.from(OffsetDateTime.parse(value).toInstant());
+			}
+			catch(DateTimeParseException e)
+			{
+				throw new JsonSyntaxException("Invalid timestamp: " + value, e);
+			}
+		}
+	}
 }
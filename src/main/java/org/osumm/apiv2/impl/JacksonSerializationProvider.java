@@ -1,12 +1,21 @@
 package org.osumm.apiv2.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Set;
 
 import org.osumm.apiv2.JsonSerializationProviderBase;
+import org.osumm.apiv2.json.JsonName;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.introspect.Annotated;
+import com.fasterxml.jackson.databind.introspect.JacksonAnnotationIntrospector;
 
 /**
  * Default serialization provider using jackson json library.
@@ -20,8 +29,10 @@ public class JacksonSerializationProvider implements JsonSerializationProviderBa
 	
 	public JacksonSerializationProvider()
 	{
-		jsonMapper = new ObjectMapper(new JsonFactory());
+		// Stream is owned by http client provider
+		jsonMapper = new ObjectMapper(new JsonFactory().disable(JsonParser.Feature.AUTO_CLOSE_SOURCE));
 		jsonMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+		jsonMapper.setAnnotationIntrospector(new JsonNameIntrospector());
 		jsonMapper.findAndRegisterModules();
 	}
 
@@ -31,9 +42,84 @@ public class JacksonSerializationProvider implements JsonSerializationProviderBa
 		return jsonMapper.readValue(data, type);
 	}
 
+	@Override
+	public <T> T fromJson(InputStream data, Class<T> type) throws IOException
+	{
+		return jsonMapper.readValue(data, type);
+	}
+
+	@Override
+	public <T> T fromJson(InputStream data, Class<T> type, Set<String> fields) throws IOException
+	{
+		if(fields == null)
+		{
+			return fromJson(data, type);
+		}
+		// Filtered out properties are skipped with skipChildren(), which scans tokens without decoding or binding them
+		try(JsonParser parser = new FilteringParserDelegate(jsonMapper.getFactory().createParser(data), new TopLevelFilter(fields), true, true))
+		{
+			if(parser.nextToken() == null)
+			{
+				// None of listed properties were present, in which case filter drops root object altogether
+				return jsonMapper.readValue("{}", type);
+			}
+			return jsonMapper.readValue(parser, type);
+		}
+	}
+
 	@Override
 	public String toJson(Object data) throws IOException
 	{
 		return jsonMapper.writeValueAsString(data);
 	}
+	
+	/**
+	 * Passes listed properties of root object with all their contents, drops everything else.
+	 */
+	private static class TopLevelFilter extends TokenFilter
+	{
+		
+		private final Set<String> fields;
+		
+		private TopLevelFilter(Set<String> fields)
+		{
+			this.fields = fields;
+		}
+		
+		@Override
+		public TokenFilter includeProperty(String name)
+		{
+			return fields.contains(name) ? TokenFilter.INCLUDE_ALL : null;
+		}
+		
+		@Override
+		public TokenFilter filterStartArray()
+		{
+			// Root arrays are not projected
+			return TokenFilter.INCLUDE_ALL;
+		}
+	}
+	
+	/**
+	 * Reads property names from {@link JsonName}, falling back to regular Jackson annotations.
+	 */
+	private static class JsonNameIntrospector extends JacksonAnnotationIntrospector
+	{
+		
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public PropertyName findNameForSerialization(Annotated annotated)
+		{
+			JsonName name = annotated.getAnnotation(JsonName.class);
+			return name != null ? PropertyName.construct(name.value()) : super.findNameForSerialization(annotated);
+		}
+		
+		@Override
+		public PropertyName findNameForDeserialization(Annotated annotated)
+		{
+			JsonName name = annotated.getAnnotation(JsonName.class);
+			return name != null ? PropertyName.construct(name.value()) : super.findNameForDeserialization(annotated);
+		}
+	}
 }
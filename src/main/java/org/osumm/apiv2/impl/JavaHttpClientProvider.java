@@ -1,22 +1,51 @@
 package org.osumm.apiv2.impl;
 
-import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.zip.GZIPInputStream;
 
 import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.HttpResponseListener;
+import org.osumm.apiv2.HttpStatusException;
+import org.osumm.apiv2.ResponseReader;
+import org.osumm.apiv2.cache.HttpDiskCache;
+import org.osumm.apiv2.cache.HttpDiskCache.CachedResponse;
 
 /**
- * Default https client implementation using java built-in client
+ * Default https client implementation using java built-in client. 
+ * GET responses can be persisted and revalidated with {@link HttpDiskCache}.
  * @author Master-chan
  *
  */
 public class JavaHttpClientProvider implements HttpClientProviderBase
 {
+	
+	private final List<HttpResponseListener> listeners = new CopyOnWriteArrayList<>();
+	private final HttpDiskCache diskCache;
+	
+	public JavaHttpClientProvider()
+	{
+		this(null);
+	}
+	
+	/**
+	 * @param diskCache - persistent cache revalidating GET responses, null to disable
+	 */
+	public JavaHttpClientProvider(HttpDiskCache diskCache)
+	{
+		this.diskCache = diskCache;
+	}
+	
+	@Override
+	public void addResponseListener(HttpResponseListener listener)
+	{
+		listeners.add(listener);
+	}
 
 	@Override
 	public String post(URL url, String params, int timeout) throws IOException
@@ -27,6 +56,13 @@ public class JavaHttpClientProvider implements HttpClientProviderBase
 	@Override
 	public String post(URL url, String params, int timeout, String authToken) throws IOException
 	{
+		return post(url, params, timeout, authToken, ResponseReader.utf8String());
+	}
+	
+	@Override
+	public <T> T post(URL url, String params, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		long start = System.nanoTime();
 		HttpURLConnection connection = openConnection(url, timeout, null);
 		connection.setRequestProperty("Accept","application/json");
 		connection.setRequestProperty("Content-Type","application/json");
@@ -39,12 +75,8 @@ public class JavaHttpClientProvider implements HttpClientProviderBase
 			dos.flush();
 		}
 		
-		if(connection.getResponseCode() != 200) 
-		{
-			throw new IOException("HTTP Response code: " + connection.getResponseCode());
-		}
-		
-		return readContent(connection);
+		long received = checkResponse(connection, start, false);
+		return readContent(connection, url, reader, start, received, false);
 	}
 
 	@Override
@@ -56,40 +88,105 @@ public class JavaHttpClientProvider implements HttpClientProviderBase
 	@Override
 	public String get(URL url, int timeout, String authToken) throws IOException
 	{
+		return get(url, timeout, authToken, ResponseReader.utf8String());
+	}
+	
+	@Override
+	public <T> T get(URL url, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		long start = System.nanoTime();
 		HttpURLConnection connection = openConnection(url, timeout, authToken);
-		try
+		CachedResponse cached = diskCache != null ? diskCache.get(url.toString()) : null;
+		if(cached != null)
 		{
-			connection.connect();
-			if(connection.getResponseCode() != 200) 
+			cached.addValidators(connection::setRequestProperty);
+		}
+		// Connection is not disconnected: closing fully read stream returns socket into JDK keep-alive cache
+		connection.connect();
+		long received = checkResponse(connection, start, cached != null);
+		if(connection.getResponseCode() == 304)
+		{
+			discard(connection.getInputStream());
+			try(InputStream body = cached.openBody())
 			{
-				throw new IOException("HTTP Response code: " + connection.getResponseCode());
+				T value = reader.read(body);
+				notifyComplete(connection.getURL(), 304, 0, received - start, System.nanoTime() - received);
+				return value;
 			}
-			return readContent(connection);
 		}
-		finally
+		return readContent(connection, url, reader, start, received, diskCache != null);
+	}
+	
+	/**
+	 * @param revalidating - request was conditional, so 304 response is expected
+	 * @return {@link System#nanoTime()} at which response headers were received
+	 */
+	private long checkResponse(HttpURLConnection connection, long start, boolean revalidating) throws IOException
+	{
+		int code = connection.getResponseCode();
+		long received = System.nanoTime();
+		for(HttpResponseListener listener : listeners)
+		{
+			listener.onResponse(connection.getURL(), code, connection::getHeaderField);
+		}
+		if(code != 200 && !(revalidating && code == 304)) 
+		{
+			discard(connection.getErrorStream());
+			notifyComplete(connection.getURL(), code, 0, received - start, 0);
+			throw new HttpStatusException(code, HttpStatusException.parseRetryAfter(connection.getHeaderField("Retry-After")));
+		}
+		return received;
+	}
+	
+	private void notifyComplete(URL url, int code, long bytes, long networkNanos, long readNanos)
+	{
+		for(HttpResponseListener listener : listeners)
+		{
+			listener.onResponseComplete(url, code, bytes, networkNanos, readNanos);
+		}
+	}
+	
+	/**
+	 * Reads and drops error response body, so connection can be reused.
+	 */
+	private void discard(InputStream errorStream)
+	{
+		if(errorStream == null)
 		{
-			connection.disconnect();
+			return;
+		}
+		try(InputStream inputStream = errorStream)
+		{
+			byte[] buf = new byte[1024];
+			while(inputStream.read(buf) > 0);
+		}
+		catch(IOException e)
+		{
+			// Connection will just not be reused
 		}
 	}
 	
-	private String readContent(HttpURLConnection connection) throws IOException
+	/**
+	 * @param store - store response in disk cache
+	 */
+	private <T> T readContent(HttpURLConnection connection, URL url, ResponseReader<T> reader, long start, long received, boolean store) throws IOException
 	{
-		try(InputStream inputStream = connection.getInputStream())
+		try(CountingInputStream inputStream = new CountingInputStream(connection.getInputStream(), store))
 		{
 			String contentEncoding = connection.getContentEncoding();
 			InputStream wrapper = inputStream;
 			if(contentEncoding != null && contentEncoding.equalsIgnoreCase("gzip"))
 			{
-				wrapper = new GZIPInputStream(inputStream);
+				wrapper = new GZIPInputStream(inputStream, 8192);
 			}
-			byte[] buf = new byte[1024];
-			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
-			for(int len; (len = wrapper.read(buf)) > 0;)
+			T value = reader.read(wrapper);
+			if(store)
 			{
-				outputStream.write(buf, 0, len);
+				CountingInputStream.skipRemaining(wrapper);
+				diskCache.put(url.toString(), connection::getHeaderField, inputStream.getCopy());
 			}
-			// Would be better to use guava Charsets here probably(?)
-			return outputStream.toString("UTF-8");
+			notifyComplete(connection.getURL(), 200, inputStream.getCount(), received - start, System.nanoTime() - received);
+			return value;
 		}
 	}
 	
@@ -1,24 +1,39 @@
 package org.osumm.apiv2.impl;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.Proxy;
 import java.net.URL;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 
 import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.HttpResponseListener;
+import org.osumm.apiv2.HttpStatusException;
+import org.osumm.apiv2.ResponseReader;
+import org.osumm.apiv2.cache.HttpDiskCache;
+import org.osumm.apiv2.cache.HttpDiskCache.CachedResponse;
+import org.osumm.apiv2.concurrent.Futures;
 
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okhttp3.ResponseBody;
+import okio.Buffer;
 import okio.BufferedSource;
+import okio.ForwardingSource;
 import okio.GzipSource;
 import okio.Okio;
+import okio.Source;
 
 /**
- * Http provider using OkHttp library
+ * Http provider using OkHttp library. 
+ * GET responses can be persisted and revalidated with {@link HttpDiskCache}.
  * @author Master-chan
  *
  */
@@ -27,9 +42,21 @@ public class OkHttpClientProvider implements HttpClientProviderBase
 	
 	
 	private OkHttpClient client;
+	private final List<HttpResponseListener> listeners = new CopyOnWriteArrayList<>();
+	private final HttpDiskCache diskCache;
 	
 	public OkHttpClientProvider(Proxy proxy)
 	{
+		this(proxy, null);
+	}
+	
+	/**
+	 * @param proxy - proxy to use, direct connection if null
+	 * @param diskCache - persistent cache revalidating GET responses, null to disable
+	 */
+	public OkHttpClientProvider(Proxy proxy, HttpDiskCache diskCache)
+	{
+		this.diskCache = diskCache;
 		client = new OkHttpClient.Builder()
 				// OkHttp doesn't support timeout per-request without creating new client every time;
 				.readTimeout(5, TimeUnit.SECONDS)
@@ -43,6 +70,12 @@ public class OkHttpClientProvider implements HttpClientProviderBase
 		this(null);
 	}
 
+	@Override
+	public void addResponseListener(HttpResponseListener listener)
+	{
+		listeners.add(listener);
+	}
+
 	@Override
 	public String post(URL url, String params, int timeout) throws IOException
 	{
@@ -52,31 +85,24 @@ public class OkHttpClientProvider implements HttpClientProviderBase
 	@Override
 	public String post(URL url, String params, int timeout, String authToken) throws IOException
 	{
-		Request request = new Request.Builder()
-				.url(url)
-				.addHeader("Authorization", String.format("Bearer %s", authToken))
-				.addHeader("Accept-Encoding", "gzip")
-				.post(RequestBody.create(params, MediaType.get("appliation/json")))
-				.build();
-		
-		try(Response response = client.newCall(request).execute())
+		return post(url, params, timeout, authToken, ResponseReader.utf8String());
+	}
+	
+	@Override
+	public <T> T post(URL url, String params, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		long start = System.nanoTime();
+		try(Response response = client.newCall(buildPost(url, params, authToken)).execute())
 		{
-			// Mimic default HTTP client provide behavior
-			if(response.code() != 200) 
-			{
-				throw new IOException("HTTP Response code: " + response.code());
-			}
-			
-			if("gzip".equalsIgnoreCase(response.header("Content-Encoding")))
-			{
-				return unzip(response.body());
-			}
-			else
-			{
-				return response.body().string();
-			}
+			return readContent(response, reader, start, null, null);
 		}
 	}
+	
+	@Override
+	public <T> CompletableFuture<T> postAsync(URL url, String params, int timeout, String authToken, ResponseReader<T> reader)
+	{
+		return enqueue(buildPost(url, params, authToken), reader, null, null);
+	}
 
 	@Override
 	public String get(URL url, int timeout) throws IOException
@@ -87,37 +113,183 @@ public class OkHttpClientProvider implements HttpClientProviderBase
 	@Override
 	public String get(URL url, int timeout, String authToken) throws IOException
 	{
-		Request request = new Request.Builder()
+		return get(url, timeout, authToken, ResponseReader.utf8String());
+	}
+	
+	@Override
+	public <T> T get(URL url, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		long start = System.nanoTime();
+		CachedResponse cached = diskCache != null ? diskCache.get(url.toString()) : null;
+		try(Response response = client.newCall(buildGet(url, authToken, cached)).execute())
+		{
+			return readContent(response, reader, start, cached, diskCache != null ? url.toString() : null);
+		}
+	}
+	
+	@Override
+	public <T> CompletableFuture<T> getAsync(URL url, int timeout, String authToken, ResponseReader<T> reader)
+	{
+		CachedResponse cached;
+		try
+		{
+			cached = diskCache != null ? diskCache.get(url.toString()) : null;
+		}
+		catch(IOException e)
+		{
+			return Futures.failed(e);
+		}
+		return enqueue(buildGet(url, authToken, cached), reader, cached, diskCache != null ? url.toString() : null);
+	}
+	
+	private Request buildGet(URL url, String authToken, CachedResponse cached)
+	{
+		Request.Builder builder = new Request.Builder()
+				.url(url)
+				.addHeader("Authorization", String.format("Bearer %s", authToken))
+				.addHeader("Accept-Encoding", "gzip");
+		if(cached != null)
+		{
+			cached.addValidators(builder::header);
+		}
+		return builder.build();
+	}
+	
+	private Request buildPost(URL url, String params, String authToken)
+	{
+		return new Request.Builder()
 				.url(url)
 				.addHeader("Authorization", String.format("Bearer %s", authToken))
 				.addHeader("Accept-Encoding", "gzip")
+				.post(RequestBody.create(params, MediaType.get("appliation/json")))
 				.build();
-		
-		try(Response response = client.newCall(request).execute())
+	}
+	
+	/**
+	 * Schedules call on OkHttp dispatcher, future is completed from its callback thread.
+	 */
+	private <T> CompletableFuture<T> enqueue(Request request, ResponseReader<T> reader, CachedResponse cached, String cacheKey)
+	{
+		long start = System.nanoTime();
+		CompletableFuture<T> future = new CompletableFuture<>();
+		Call call = client.newCall(request);
+		call.enqueue(new Callback()
 		{
-			// Mimic default HTTP client provide behavior
-			if(response.code() != 200) 
+			@Override
+			public void onFailure(Call call, IOException e)
 			{
-				throw new IOException("HTTP Response code: " + response.code());
+				future.completeExceptionally(e);
 			}
 			
-			if("gzip".equalsIgnoreCase(response.header("Content-Encoding")))
+			@Override
+			public void onResponse(Call call, Response response)
 			{
-				return unzip(response.body());
+				try(Response body = response)
+				{
+					future.complete(readContent(body, reader, start, cached, cacheKey));
+				}
+				catch(IOException | RuntimeException e)
+				{
+					future.completeExceptionally(e);
+				}
 			}
-			else
+		});
+		// Propagate cancellation to underlying call
+		future.whenComplete((value, e) -> 
+		{
+			if(future.isCancelled())
 			{
-				return response.body().string();
+				call.cancel();
 			}
+		});
+		return future;
+	}
+	
+	/**
+	 * @param cached - response request was revalidating, if any
+	 * @param cacheKey - key to store response in disk cache with, null if it shouldn't be stored
+	 */
+	private <T> T readContent(Response response, ResponseReader<T> reader, long start, CachedResponse cached, String cacheKey) throws IOException
+	{
+		long received = System.nanoTime();
+		URL url = response.request().url().url();
+		for(HttpResponseListener listener : listeners)
+		{
+			listener.onResponse(url, response.code(), response::header);
+		}
+		T value;
+		if(response.code() == 304 && cached != null)
+		{
+			try(InputStream body = cached.openBody())
+			{
+				value = reader.read(body);
+			}
+			notifyComplete(url, 304, 0, received - start, System.nanoTime() - received);
+			return value;
+		}
+		// Mimic default HTTP client provide behavior
+		if(response.code() != 200) 
+		{
+			notifyComplete(url, response.code(), 0, received - start, 0);
+			throw new HttpStatusException(response.code(), HttpStatusException.parseRetryAfter(response.header("Retry-After")));
 		}
+		
+		CountingSource counter = new CountingSource(response.body().source(), cacheKey != null);
+		Source body = "gzip".equalsIgnoreCase(response.header("Content-Encoding")) ? new GzipSource(counter) : counter;
+		try(BufferedSource source = Okio.buffer(body))
+		{
+			value = reader.read(source.inputStream());
+			if(cacheKey != null)
+			{
+				// Json parsers stop at the end of root value, which leaves gzip trailer unread
+				source.readAll(Okio.blackhole());
+			}
+		}
+		if(cacheKey != null)
+		{
+			diskCache.put(cacheKey, response::header, counter.copy.readByteArray());
+		}
+		notifyComplete(url, 200, counter.count, received - start, System.nanoTime() - received);
+		return value;
 	}
-
-	private String unzip(ResponseBody body) throws IOException
+	
+	private void notifyComplete(URL url, int code, long bytes, long networkNanos, long readNanos)
+	{
+		for(HttpResponseListener listener : listeners)
+		{
+			listener.onResponseComplete(url, code, bytes, networkNanos, readNanos);
+		}
+	}
+	
+	/**
+	 * Counts bytes of response body as transferred, optionally keeping their copy for disk cache.
+	 */
+	private static class CountingSource extends ForwardingSource
 	{
-		try(GzipSource responseBody = new GzipSource(body.source());
-		BufferedSource source = Okio.buffer(responseBody))
+		
+		private final Buffer copy;
+		private long count;
+		
+		private CountingSource(Source delegate, boolean capture)
 		{
-			return source.readUtf8();
+			super(delegate);
+			copy = capture ? new Buffer() : null;
 		}
+
+		@Override
+		public long read(Buffer sink, long byteCount) throws IOException
+		{
+			long read = super.read(sink, byteCount);
+			if(read > 0)
+			{
+				count += read;
+				if(copy != null)
+				{
+					sink.copyTo(copy, sink.size() - read, read);
+				}
+			}
+			return read;
+		}
+		
 	}
-}
+}
\ No newline at end of file
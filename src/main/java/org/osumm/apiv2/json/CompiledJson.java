@@ -0,0 +1,28 @@
+package org.osumm.apiv2.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks class for which {@link org.osumm.apiv2.json.processor.CompiledJsonProcessor CompiledJsonProcessor} generates 
+ * reflection-free streaming {@link JsonAdapter} named {@code <Outer>_<Class>_JsonAdapter} in the same package. 
+ * Generated adapters are used by {@link org.osumm.apiv2.impl.CompiledJsonSerializationProvider CompiledJsonSerializationProvider}.
+ * <br/>
+ * Private fields are accessed through getters and setters (declared or generated by Lombok), other fields directly. Transient and static fields are ignored. 
+ * Property name is field name unless it is overridden with {@link JsonName}. 
+ * Supported field types are primitives and their wrappers, String, Timestamp, enums, other {@code @CompiledJson} classes, 
+ * and Lists, Sets, Collections and String keyed Maps of them. 
+ * Classes can't be abstract and their fields can't be final, since adapter creates and fills them when reading.
+ * @author Master-chan
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface CompiledJson
+{
+
+}
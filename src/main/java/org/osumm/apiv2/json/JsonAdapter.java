@@ -0,0 +1,31 @@
+package org.osumm.apiv2.json;
+
+import java.io.IOException;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Streaming reader and writer of single type, usually generated for {@link CompiledJson} classes.
+ * @author Master-chan
+ *
+ * @param <T> value type
+ */
+public interface JsonAdapter<T>
+{
+	
+	/**
+	 * Reads value starting at current token of parser, leaving parser at last token of value.
+	 * @param parser - parser positioned at first token of value
+	 * @param fields - json names of top-level properties to read, null reads all of them
+	 * @return value or null if current token is null
+	 */
+	public T read(JsonParser parser, Set<String> fields) throws IOException;
+	
+	/**
+	 * Writes value, null is written as json null.
+	 */
+	public void write(JsonGenerator generator, T value) throws IOException;
+	
+}
@@ -0,0 +1,558 @@
+package org.osumm.apiv2.json;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Adapters of common types and field readers used by code generated for {@link CompiledJson} classes.
+ * Readers coerce values the same way default Jackson provider does: numbers from strings, null into primitive default.
+ * @author Master-chan
+ *
+ */
+public final class JsonAdapters
+{
+
+	/**
+	 * Suffix of generated adapter class names.
+	 */
+	public static final String ADAPTER_SUFFIX = "_JsonAdapter";
+
+	public static final JsonAdapter<String> STRING = new ScalarAdapter<String>()
+	{
+		@Override
+		protected String readValue(JsonParser parser) throws IOException
+		{
+			return readString(parser);
+		}
+
+		@Override
+		protected void writeValue(JsonGenerator generator, String value) throws IOException
+		{
+			generator.writeString(value);
+		}
+	};
+
+	public static final JsonAdapter<Long> LONG = new ScalarAdapter<Long>()
+	{
+		@Override
+		protected Long readValue(JsonParser parser) throws IOException
+		{
+			return readLong(parser);
+		}
+
+		@Override
+		protected void writeValue(JsonGenerator generator, Long value) throws IOException
+		{
+			generator.writeNumber(value);
+		}
+	};
+
+	public static final JsonAdapter<Integer> INTEGER = new ScalarAdapter<Integer>()
+	{
+		@Override
+		protected Integer readValue(JsonParser parser) throws IOException
+		{
+			return readInt(parser);
+		}
+
+		@Override
+		protected void writeValue(JsonGenerator generator, Integer value) throws IOException
+		{
+			generator.writeNumber(value);
+		}
+	};
+
+	public static final JsonAdapter<Double> DOUBLE = new ScalarAdapter<Double>()
+	{
+		@Override
+		protected Double readValue(JsonParser parser) throws IOException
+		{
+			return readDouble(parser);
+		}
+
+		@Override
+		protected void writeValue(JsonGenerator generator, Double value) throws IOException
+		{
+			generator.writeNumber(value);
+		}
+	};
+
+	public static final JsonAdapter<Float> FLOAT = new ScalarAdapter<Float>()
+	{
+		@Override
+		protected Float readValue(JsonParser parser) throws IOException
+		{
+			return readFloat(parser);
+		}
+
+		@Override
+		protected void writeValue(JsonGenerator generator, Float value) throws IOException
+		{
+			generator.writeNumber(value);
+		}
+	};
+
+	public static final JsonAdapter<Boolean> BOOLEAN = new ScalarAdapter<Boolean>()
+	{
+		@Override
+		protected Boolean readValue(JsonParser parser) throws IOException
+		{
+			return readBoolean(parser);
+		}
+
+		@Override
+		protected void writeValue(JsonGenerator generator, Boolean value) throws IOException
+		{
+			generator.writeBoolean(value);
+		}
+	};
+
+	/**
+	 * ISO-8601 timestamps (2007-08-28T03:09:12+00:00) as returned by API, epoch milliseconds are accepted as well.
+	 */
+	public static final JsonAdapter<Timestamp> TIMESTAMP = new ScalarAdapter<Timestamp>()
+	{
+		@Override
+		protected Timestamp readValue(JsonParser parser) throws IOException
+		{
+			if(parser.currentToken() == JsonToken.VALUE_NUMBER_INT)
+			{
+				return new Timestamp(parser.getLongValue());
+			}
+			String value = readString(parser);
+			try
+			{
+				return parseTimestamp(value);
+			}
+			catch(DateTimeParseException e)
+			{
+				throw new JsonParseException(parser, "Invalid timestamp: " + value, e);
+			}
+		}
+
+		@Override
+		protected void writeValue(JsonGenerator generator, Timestamp value) throws IOException
+		{
+			generator.writeString(value.toInstant().toString());
+		}
+	};
+
+	private JsonAdapters()
+	{
+	}
+
+	/**
+	 * Looks up adapter generated for {@link CompiledJson} class.
+	 * @return generated adapter or null if there isn't any
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> JsonAdapter<T> generated(Class<T> type)
+	{
+		String name = type.getName();
+		int packageEnd = name.lastIndexOf('.') + 1;
+		String adapterName = name.substring(0, packageEnd) + name.substring(packageEnd).replace('$', '_') + ADAPTER_SUFFIX;
+		try
+		{
+			return (JsonAdapter<T>) Class.forName(adapterName, true, type.getClassLoader()).getField("INSTANCE").get(null);
+		}
+		catch(ClassNotFoundException e)
+		{
+			return null;
+		}
+		catch(ReflectiveOperationException | ClassCastException e)
+		{
+			throw new IllegalStateException("Malformed generated adapter " + adapterName, e);
+		}
+	}
+
+	/**
+	 * @param element - adapter of collection elements
+	 * @param factory - creates empty collection
+	 * @return adapter of json arrays
+	 */
+	public static <E, C extends Collection<E>> JsonAdapter<C> collection(JsonAdapter<E> element, Supplier<C> factory)
+	{
+		return new ScalarAdapter<C>()
+		{
+			@Override
+			protected C readValue(JsonParser parser) throws IOException
+			{
+				if(parser.currentToken() != JsonToken.START_ARRAY)
+				{
+					throw mismatch(parser, "array");
+				}
+				C collection = factory.get();
+				while(parser.nextToken() != JsonToken.END_ARRAY)
+				{
+					collection.add(element.read(parser, null));
+				}
+				return collection;
+			}
+
+			@Override
+			protected void writeValue(JsonGenerator generator, C value) throws IOException
+			{
+				generator.writeStartArray();
+				for(E item : value)
+				{
+					element.write(generator, item);
+				}
+				generator.writeEndArray();
+			}
+		};
+	}
+
+	/**
+	 * @param element - adapter of map values
+	 * @param factory - creates empty map
+	 * @return adapter of json objects with arbitrary property names
+	 */
+	public static <V, M extends Map<String, V>> JsonAdapter<M> map(JsonAdapter<V> element, Supplier<M> factory)
+	{
+		return new ScalarAdapter<M>()
+		{
+			@Override
+			protected M readValue(JsonParser parser) throws IOException
+			{
+				if(parser.currentToken() != JsonToken.START_OBJECT)
+				{
+					throw mismatch(parser, "object");
+				}
+				M map = factory.get();
+				for(String name = parser.nextFieldName(); name != null; name = parser.nextFieldName())
+				{
+					parser.nextToken();
+					map.put(name, element.read(parser, null));
+				}
+				return map;
+			}
+
+			@Override
+			protected void writeValue(JsonGenerator generator, M value) throws IOException
+			{
+				generator.writeStartObject();
+				for(Map.Entry<String, V> entry : value.entrySet())
+				{
+					generator.writeFieldName(entry.getKey());
+					element.write(generator, entry.getValue());
+				}
+				generator.writeEndObject();
+			}
+		};
+	}
+
+	/**
+	 * @param values - all enum constants, as returned by {@code values()}
+	 * @return adapter of enum constants by their exact names
+	 */
+	public static <E extends Enum<E>> JsonAdapter<E> enumNamed(E[] values)
+	{
+		Map<String, E> constants = new HashMap<>();
+		for(E value : values)
+		{
+			constants.put(value.name(), value);
+		}
+		return new ScalarAdapter<E>()
+		{
+			@Override
+			protected E readValue(JsonParser parser) throws IOException
+			{
+				String name = readString(parser);
+				E value = constants.get(name);
+				if(value == null)
+				{
+					throw new JsonParseException(parser, "Unknown enum constant: " + name);
+				}
+				return value;
+			}
+
+			@Override
+			protected void writeValue(JsonGenerator generator, E value) throws IOException
+			{
+				generator.writeString(value.name());
+			}
+		};
+	}
+
+	/**
+	 * Parses ISO-8601 timestamp with offset. Format used by API (2007-08-28T03:09:12+00:00) is parsed by hand, 
+	 * since {@link OffsetDateTime#parse(CharSequence)} allocates several times more than the rest of profile, 
+	 * anything else goes through it.
+	 * @throws DateTimeParseException if value is not valid timestamp
+	 */
+	public static Timestamp parseTimestamp(String value)
+	{
+		long millis = parseIsoMillis(value);
+		return millis != Long.MIN_VALUE ? new Timestamp(millis) : Timestamp.from(OffsetDateTime.parse(value).toInstant());
+	}
+
+	/**
+	 * @return epoch millis of yyyy-MM-ddTHH:mm:ss[.SSS](Z|+HH:mm), Long.MIN_VALUE for any other or invalid value
+	 */
+	private static long parseIsoMillis(String value)
+	{
+		int length = value.length();
+		if(length < 20 || value.charAt(4) != '-' || value.charAt(7) != '-' || value.charAt(10) != 'T' || value.charAt(13) != ':' || value.charAt(16) != ':')
+		{
+			return Long.MIN_VALUE;
+		}
+		int year = digits(value, 0, 4);
+		int month = digits(value, 5, 2);
+		int day = digits(value, 8, 2);
+		int hour = digits(value, 11, 2);
+		int minute = digits(value, 14, 2);
+		int second = digits(value, 17, 2);
+		int pos = 19;
+		int fraction = 0;
+		if(value.charAt(pos) == '.')
+		{
+			int end = pos + 1;
+			while(end < length && end - pos <= 3 && Character.isDigit(value.charAt(end)))
+			{
+				end++;
+			}
+			if(end == pos + 1 || (end < length && Character.isDigit(value.charAt(end))))
+			{
+				// No digits, or more precision than millis
+				return Long.MIN_VALUE;
+			}
+			fraction = digits(value, pos + 1, end - pos - 1);
+			for(int i = end - pos - 1; i < 3; i++)
+			{
+				fraction *= 10;
+			}
+			pos = end;
+		}
+		int offsetMinutes;
+		if(pos == length - 1 && value.charAt(pos) == 'Z')
+		{
+			offsetMinutes = 0;
+		}
+		else if(pos == length - 6 && (value.charAt(pos) == '+' || value.charAt(pos) == '-') && value.charAt(pos + 3) == ':')
+		{
+			int offsetHours = digits(value, pos + 1, 2);
+			int offset = digits(value, pos + 4, 2);
+			if(offsetHours < 0 || offsetHours > 18 || offset < 0 || offset > 59)
+			{
+				return Long.MIN_VALUE;
+			}
+			offsetMinutes = (offsetHours * 60 + offset) * (value.charAt(pos) == '-' ? -1 : 1);
+		}
+		else
+		{
+			return Long.MIN_VALUE;
+		}
+		if(year < 0 || month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month) 
+				|| hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59)
+		{
+			return Long.MIN_VALUE;
+		}
+		long seconds = ((epochDay(year, month, day) * 24 + hour) * 60 + minute - offsetMinutes) * 60 + second;
+		return seconds * 1000 + fraction;
+	}
+
+	/**
+	 * @return value of decimal digits, -1 if any character isn't digit
+	 */
+	private static int digits(String value, int offset, int count)
+	{
+		int result = 0;
+		for(int i = offset; i < offset + count; i++)
+		{
+			int digit = value.charAt(i) - '0';
+			if(digit < 0 || digit > 9)
+			{
+				return -1;
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+	private static int daysInMonth(int year, int month)
+	{
+		if(month == 2)
+		{
+			return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+		}
+		return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+	}
+
+	/**
+	 * Days since 1970-01-01 of proleptic Gregorian date.
+	 */
+	private static long epochDay(int year, int month, int day)
+	{
+		// Years start in March, so leap day is the last one
+		long y = month <= 2 ? year - 1 : year;
+		long era = y / 400;
+		long yearOfEra = y - era * 400;
+		long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Handles non-object token at start of {@link CompiledJson} class.
+	 * @return null if current token is null
+	 * @throws JsonParseException otherwise
+	 */
+	public static <T> T readNonObject(JsonParser parser, String type) throws IOException
+	{
+		if(parser.currentToken() == JsonToken.VALUE_NULL)
+		{
+			return null;
+		}
+		throw mismatch(parser, type);
+	}
+
+	public static String readString(JsonParser parser) throws IOException
+	{
+		JsonToken token = parser.currentToken();
+		if(token == JsonToken.VALUE_STRING)
+		{
+			return parser.getText();
+		}
+		if(token == JsonToken.VALUE_NULL)
+		{
+			return null;
+		}
+		if(token.isScalarValue())
+		{
+			return parser.getText();
+		}
+		throw mismatch(parser, "String");
+	}
+
+	public static long readLong(JsonParser parser) throws IOException
+	{
+		switch(parser.currentToken())
+		{
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				return parser.getLongValue();
+			case VALUE_NULL:
+				return 0;
+			case VALUE_STRING:
+				try
+				{
+					return Long.parseLong(parser.getText().trim());
+				}
+				catch(NumberFormatException e)
+				{
+					throw mismatch(parser, "long");
+				}
+			default:
+				throw mismatch(parser, "long");
+		}
+	}
+
+	public static int readInt(JsonParser parser) throws IOException
+	{
+		long value = readLong(parser);
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE)
+		{
+			throw mismatch(parser, "int");
+		}
+		return (int) value;
+	}
+
+	public static double readDouble(JsonParser parser) throws IOException
+	{
+		switch(parser.currentToken())
+		{
+			case VALUE_NUMBER_INT:
+			case VALUE_NUMBER_FLOAT:
+				return parser.getDoubleValue();
+			case VALUE_NULL:
+				return 0;
+			case VALUE_STRING:
+				try
+				{
+					return Double.parseDouble(parser.getText().trim());
+				}
+				catch(NumberFormatException e)
+				{
+					throw mismatch(parser, "double");
+				}
+			default:
+				throw mismatch(parser, "double");
+		}
+	}
+
+	public static float readFloat(JsonParser parser) throws IOException
+	{
+		return (float) readDouble(parser);
+	}
+
+	public static boolean readBoolean(JsonParser parser) throws IOException
+	{
+		switch(parser.currentToken())
+		{
+			case VALUE_TRUE:
+				return true;
+			case VALUE_FALSE:
+			case VALUE_NULL:
+				return false;
+			case VALUE_NUMBER_INT:
+				return parser.getLongValue() != 0;
+			case VALUE_STRING:
+				String value = parser.getText().trim();
+				if("true".equals(value) || "false".equals(value))
+				{
+					return "true".equals(value);
+				}
+				throw mismatch(parser, "boolean");
+			default:
+				throw mismatch(parser, "boolean");
+		}
+	}
+
+	private static JsonParseException mismatch(JsonParser parser, String type)
+	{
+		return new JsonParseException(parser, "Cannot read " + parser.currentToken() + " as " + type);
+	}
+
+	/**
+	 * Adapter handling nulls on its own, so implementations only deal with actual values.
+	 */
+	private static abstract class ScalarAdapter<T> implements JsonAdapter<T>
+	{
+
+		protected abstract T readValue(JsonParser parser) throws IOException;
+
+		protected abstract void writeValue(JsonGenerator generator, T value) throws IOException;
+
+		@Override
+		public T read(JsonParser parser, Set<String> fields) throws IOException
+		{
+			return parser.currentToken() == JsonToken.VALUE_NULL ? null : readValue(parser);
+		}
+
+		@Override
+		public void write(JsonGenerator generator, T value) throws IOException
+		{
+			if(value == null)
+			{
+				generator.writeNull();
+			}
+			else
+			{
+				writeValue(generator, value);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,23 @@
+package org.osumm.apiv2.json;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Json property name of field, honoured by every shipped json provider 
+ * (Jackson, Gson and generated {@link CompiledJson} adapters).
+ * @author Master-chan
+ *
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface JsonName
+{
+	
+	public String value();
+	
+}
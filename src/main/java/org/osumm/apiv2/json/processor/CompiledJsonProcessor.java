@@ -0,0 +1,402 @@
+package org.osumm.apiv2.json.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic.Kind;
+
+/**
+ * Generates reflection-free streaming {@code JsonAdapter} for every {@code @CompiledJson} class.
+ * It is registered as service, so javac runs it whenever library is on classpath or annotation processor path.
+ * <br/>
+ * Processor is compiled ahead of the rest of library (see pom.xml), so it refers to library classes by name only.
+ * @author Master-chan
+ *
+ */
+public class CompiledJsonProcessor extends AbstractProcessor
+{
+
+	private static final String COMPILED_JSON = "org.osumm.apiv2.json.CompiledJson";
+	private static final String JSON_NAME = "org.osumm.apiv2.json.JsonName";
+	private static final String JSON_ADAPTER = "org.osumm.apiv2.json.JsonAdapter";
+	private static final String JSON_ADAPTERS = "org.osumm.apiv2.json.JsonAdapters";
+	private static final String ADAPTER_SUFFIX = "_JsonAdapter";
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes()
+	{
+		return Collections.singleton(COMPILED_JSON);
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion()
+	{
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv)
+	{
+		for(TypeElement annotation : annotations)
+		{
+			for(Element element : roundEnv.getElementsAnnotatedWith(annotation))
+			{
+				try
+				{
+					generate(element);
+				}
+				catch(ProcessingException e)
+				{
+					processingEnv.getMessager().printMessage(Kind.ERROR, e.getMessage(), e.element);
+				}
+				catch(IOException e)
+				{
+					processingEnv.getMessager().printMessage(Kind.ERROR, "Failed to write json adapter: " + e, element);
+				}
+			}
+		}
+		return true;
+	}
+
+	private void generate(Element element) throws ProcessingException, IOException
+	{
+		if(element.getKind() != ElementKind.CLASS)
+		{
+			throw new ProcessingException(element, "@CompiledJson can only be put on classes");
+		}
+		TypeElement type = (TypeElement) element;
+		if(!type.getTypeParameters().isEmpty())
+		{
+			throw new ProcessingException(type, "@CompiledJson classes can't be generic");
+		}
+		if(type.getModifiers().contains(Modifier.PRIVATE))
+		{
+			throw new ProcessingException(type, "@CompiledJson classes can't be private");
+		}
+		if(type.getNestingKind() != NestingKind.TOP_LEVEL && !type.getModifiers().contains(Modifier.STATIC))
+		{
+			throw new ProcessingException(type, "Nested @CompiledJson classes must be static");
+		}
+		if(type.getModifiers().contains(Modifier.ABSTRACT))
+		{
+			throw new ProcessingException(type, "@CompiledJson classes can't be abstract, generated adapter creates them when reading");
+		}
+		String packageName = processingEnv.getElementUtils().getPackageOf(type).getQualifiedName().toString();
+		List<JsonField> fields = collectFields(type, packageName);
+		for(JsonField field : fields)
+		{
+			if(field.element.getModifiers().contains(Modifier.FINAL))
+			{
+				throw new ProcessingException(field.element, "Field " + field.element.getSimpleName() + " of " + type.getSimpleName() 
+						+ " can't be final since generated json adapter sets it, it should be non-final or transient");
+			}
+		}
+
+		String typeName = type.getQualifiedName().toString();
+		String adapterName = adapterSimpleName(type);
+		StringBuilder code = new StringBuilder();
+		if(!packageName.isEmpty())
+		{
+			code.append("package ").append(packageName).append(";\n\n");
+		}
+		code.append("/**\n * Generated by CompiledJsonProcessor from {@link ").append(typeName).append("}, do not edit.\n */\n");
+		code.append("public final class ").append(adapterName).append(" implements ").append(JSON_ADAPTER).append('<').append(typeName).append(">\n{\n\n");
+		code.append("\tpublic static final ").append(adapterName).append(" INSTANCE = new ").append(adapterName).append("();\n\n");
+		for(JsonField field : fields)
+		{
+			if(field.adapter != null)
+			{
+				code.append("\tprivate static final ").append(JSON_ADAPTER).append('<').append(field.element.asType()).append("> ")
+						.append(field.adapterConstant()).append(" = ").append(field.adapter).append(";\n");
+			}
+		}
+		code.append("\n\tprivate ").append(adapterName).append("()\n\t{\n\t}\n\n");
+
+		code.append("\t@Override\n\tpublic ").append(typeName).append(" read(com.fasterxml.jackson.core.JsonParser parser, java.util.Set<String> fields) throws java.io.IOException\n\t{\n");
+		code.append("\t\tif(parser.currentToken() != com.fasterxml.jackson.core.JsonToken.START_OBJECT)\n\t\t{\n")
+				.append("\t\t\treturn ").append(JSON_ADAPTERS).append(".readNonObject(parser, ").append(literal(type.getSimpleName().toString())).append(");\n\t\t}\n");
+		code.append("\t\t").append(typeName).append(" value = new ").append(typeName).append("();\n");
+		code.append("\t\tfor(String name = parser.nextFieldName(); name != null; name = parser.nextFieldName())\n\t\t{\n");
+		code.append("\t\t\tparser.nextToken();\n");
+		code.append("\t\t\tif(fields != null && !fields.contains(name))\n\t\t\t{\n\t\t\t\tparser.skipChildren();\n\t\t\t\tcontinue;\n\t\t\t}\n");
+		code.append("\t\t\tswitch(name)\n\t\t\t{\n");
+		for(JsonField field : fields)
+		{
+			code.append("\t\t\t\tcase ").append(literal(field.name)).append(":\n");
+			field.appendRead(code);
+			code.append("\t\t\t\t\tbreak;\n");
+		}
+		code.append("\t\t\t\tdefault:\n\t\t\t\t\tparser.skipChildren();\n\t\t\t}\n\t\t}\n\t\treturn value;\n\t}\n\n");
+
+		code.append("\t@Override\n\tpublic void write(com.fasterxml.jackson.core.JsonGenerator generator, ").append(typeName).append(" value) throws java.io.IOException\n\t{\n");
+		code.append("\t\tif(value == null)\n\t\t{\n\t\t\tgenerator.writeNull();\n\t\t\treturn;\n\t\t}\n");
+		code.append("\t\tgenerator.writeStartObject();\n");
+		for(JsonField field : fields)
+		{
+			field.appendWrite(code);
+		}
+		code.append("\t\tgenerator.writeEndObject();\n\t}\n\n}\n");
+
+		try(Writer writer = processingEnv.getFiler().createSourceFile(packageName.isEmpty() ? adapterName : packageName + "." + adapterName, type).openWriter())
+		{
+			writer.write(code.toString());
+		}
+	}
+
+	/**
+	 * Collects non-static, non-transient fields of class and its superclasses, superclass fields first. 
+	 * Fields accessible from adapter's package are accessed directly, private ones through getter and setter 
+	 * (written by hand or generated by Lombok).
+	 */
+	private List<JsonField> collectFields(TypeElement type, String packageName) throws ProcessingException
+	{
+		List<TypeElement> hierarchy = new ArrayList<>();
+		for(TypeElement current = type; current != null; current = superclass(current))
+		{
+			hierarchy.add(0, current);
+		}
+		List<JsonField> fields = new ArrayList<>();
+		Set<String> names = new HashSet<>();
+		for(TypeElement current : hierarchy)
+		{
+			boolean samePackage = processingEnv.getElementUtils().getPackageOf(current).getQualifiedName().contentEquals(packageName);
+			for(VariableElement field : ElementFilter.fieldsIn(current.getEnclosedElements()))
+			{
+				Set<Modifier> modifiers = field.getModifiers();
+				if(modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.TRANSIENT))
+				{
+					continue;
+				}
+				JsonField jsonField = new JsonField(field, jsonName(field));
+				if(modifiers.contains(Modifier.PRIVATE))
+				{
+					jsonField.useAccessors();
+					if(!hasAccessor(current, field, jsonField.getter, "lombok.Getter") || !hasAccessor(current, field, jsonField.setter, "lombok.Setter"))
+					{
+						throw new ProcessingException(field, "Private field " + field.getSimpleName() + " of " + current.getSimpleName() 
+								+ " needs getter and setter (e.g. Lombok @Getter and @Setter(AccessLevel.PACKAGE)) to be accessed by generated json adapter, or it should be transient");
+					}
+				}
+				else if(!samePackage && !modifiers.contains(Modifier.PUBLIC))
+				{
+					throw new ProcessingException(field, "Field " + field.getSimpleName() + " must be accessible from " + packageName
+							+ " to be set by generated json adapter of " + type.getSimpleName() + ", or it should be transient");
+				}
+				if(!names.add(jsonField.name))
+				{
+					throw new ProcessingException(field, "Duplicate json property " + jsonField.name + " in " + type.getSimpleName());
+				}
+				if(!field.asType().getKind().isPrimitive())
+				{
+					jsonField.adapter = adapterExpression(field.asType(), field);
+				}
+				else if(!JsonField.PRIMITIVES.contains(field.asType().getKind()))
+				{
+					throw new ProcessingException(field, "Unsupported json field type " + field.asType());
+				}
+				fields.add(jsonField);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Lombok might not have generated accessors yet when this processor runs, so its annotations count as well.
+	 */
+	private static boolean hasAccessor(TypeElement owner, VariableElement field, String name, String lombokAnnotation)
+	{
+		for(ExecutableElement method : ElementFilter.methodsIn(owner.getEnclosedElements()))
+		{
+			if(method.getSimpleName().contentEquals(name))
+			{
+				return true;
+			}
+		}
+		return findAnnotation(field, lombokAnnotation) != null || findAnnotation(owner, lombokAnnotation) != null;
+	}
+
+	private TypeElement superclass(TypeElement type)
+	{
+		TypeMirror superclass = type.getSuperclass();
+		if(superclass.getKind() != TypeKind.DECLARED)
+		{
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) superclass).asElement();
+		return element.getQualifiedName().contentEquals("java.lang.Object") ? null : element;
+	}
+
+	private String jsonName(VariableElement field)
+	{
+		AnnotationMirror annotation = findAnnotation(field, JSON_NAME);
+		if(annotation != null)
+		{
+			for(Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : annotation.getElementValues().entrySet())
+			{
+				if(entry.getKey().getSimpleName().contentEquals("value"))
+				{
+					return (String) entry.getValue().getValue();
+				}
+			}
+		}
+		return field.getSimpleName().toString();
+	}
+
+	/**
+	 * @return java expression creating adapter of provided reference type
+	 */
+	private String adapterExpression(TypeMirror type, Element field) throws ProcessingException
+	{
+		if(type.getKind() != TypeKind.DECLARED)
+		{
+			throw new ProcessingException(field, "Unsupported json field type " + type);
+		}
+		DeclaredType declared = (DeclaredType) type;
+		TypeElement element = (TypeElement) declared.asElement();
+		List<? extends TypeMirror> arguments = declared.getTypeArguments();
+		switch(element.getQualifiedName().toString())
+		{
+			case "java.lang.String":
+				return JSON_ADAPTERS + ".STRING";
+			case "java.lang.Long":
+				return JSON_ADAPTERS + ".LONG";
+			case "java.lang.Integer":
+				return JSON_ADAPTERS + ".INTEGER";
+			case "java.lang.Double":
+				return JSON_ADAPTERS + ".DOUBLE";
+			case "java.lang.Float":
+				return JSON_ADAPTERS + ".FLOAT";
+			case "java.lang.Boolean":
+				return JSON_ADAPTERS + ".BOOLEAN";
+			case "java.sql.Timestamp":
+				return JSON_ADAPTERS + ".TIMESTAMP";
+			case "java.util.Collection":
+			case "java.util.List":
+			case "java.util.ArrayList":
+				return collectionExpression(arguments, "java.util.ArrayList", field, type);
+			case "java.util.Set":
+			case "java.util.HashSet":
+				return collectionExpression(arguments, "java.util.HashSet", field, type);
+			case "java.util.LinkedHashSet":
+				return collectionExpression(arguments, "java.util.LinkedHashSet", field, type);
+			case "java.util.Map":
+			case "java.util.LinkedHashMap":
+				return mapExpression(arguments, "java.util.LinkedHashMap", field, type);
+			case "java.util.HashMap":
+				return mapExpression(arguments, "java.util.HashMap", field, type);
+			default:
+		}
+		if(element.getKind() == ElementKind.ENUM)
+		{
+			return JSON_ADAPTERS + ".enumNamed(" + element.getQualifiedName() + ".values())";
+		}
+		if(findAnnotation(element, COMPILED_JSON) != null)
+		{
+			String packageName = processingEnv.getElementUtils().getPackageOf(element).getQualifiedName().toString();
+			return (packageName.isEmpty() ? "" : packageName + ".") + adapterSimpleName(element) + ".INSTANCE";
+		}
+		throw new ProcessingException(field, "Unsupported json field type " + type + ", it should be annotated with @CompiledJson");
+	}
+
+	private String collectionExpression(List<? extends TypeMirror> arguments, String implementation, Element field, TypeMirror type) throws ProcessingException
+	{
+		if(arguments.size() != 1)
+		{
+			throw new ProcessingException(field, "Raw collection type " + type + " is not supported");
+		}
+		return JSON_ADAPTERS + ".collection(" + adapterExpression(arguments.get(0), field) + ", " + implementation + "::new)";
+	}
+
+	private String mapExpression(List<? extends TypeMirror> arguments, String implementation, Element field, TypeMirror type) throws ProcessingException
+	{
+		if(arguments.size() != 2 || arguments.get(0).getKind() != TypeKind.DECLARED
+				|| !((TypeElement) ((DeclaredType) arguments.get(0)).asElement()).getQualifiedName().contentEquals("java.lang.String"))
+		{
+			throw new ProcessingException(field, "Only maps with String keys are supported, got " + type);
+		}
+		return JSON_ADAPTERS + ".map(" + adapterExpression(arguments.get(1), field) + ", " + implementation + "::new)";
+	}
+
+	private static AnnotationMirror findAnnotation(Element element, String annotationName)
+	{
+		for(AnnotationMirror annotation : element.getAnnotationMirrors())
+		{
+			if(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName))
+			{
+				return annotation;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Outer_Nested_JsonAdapter, matching lookup in JsonAdapters.generated().
+	 */
+	private static String adapterSimpleName(TypeElement type)
+	{
+		StringBuilder name = new StringBuilder(type.getSimpleName());
+		for(Element outer = type.getEnclosingElement(); outer.getKind().isClass() || outer.getKind().isInterface(); outer = outer.getEnclosingElement())
+		{
+			name.insert(0, '_').insert(0, outer.getSimpleName());
+		}
+		return name.append(ADAPTER_SUFFIX).toString();
+	}
+
+	static String literal(String value)
+	{
+		StringBuilder literal = new StringBuilder(value.length() + 2).append('"');
+		for(char c : value.toCharArray())
+		{
+			if(c == '"' || c == '\\')
+			{
+				literal.append('\\').append(c);
+			}
+			else if(c < 0x20 || c > 0x7e)
+			{
+				literal.append(String.format("\\u%04x", (int) c));
+			}
+			else
+			{
+				literal.append(c);
+			}
+		}
+		return literal.append('"').toString();
+	}
+
+	private static class ProcessingException extends Exception
+	{
+
+		private static final long serialVersionUID = 1L;
+
+		private final transient Element element;
+
+		private ProcessingException(Element element, String message)
+		{
+			super(message);
+			this.element = element;
+		}
+	}
+
+}
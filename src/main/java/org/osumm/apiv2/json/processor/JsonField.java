@@ -0,0 +1,113 @@
+package org.osumm.apiv2.json.processor;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeKind;
+
+/**
+ * Field of {@code @CompiledJson} class and code reading and writing it.
+ * @author Master-chan
+ *
+ */
+class JsonField
+{
+
+	/**
+	 * Primitives read and written without boxing.
+	 */
+	static final Set<TypeKind> PRIMITIVES = EnumSet.of(TypeKind.BOOLEAN, TypeKind.INT, TypeKind.LONG, TypeKind.FLOAT, TypeKind.DOUBLE);
+
+	final VariableElement element;
+	final String name;
+	/**
+	 * Accessor methods of private field (following Lombok naming), null if field is accessed directly.
+	 */
+	String getter;
+	String setter;
+	/**
+	 * Expression creating adapter of reference typed field, null for primitives.
+	 */
+	String adapter;
+
+	JsonField(VariableElement element, String name)
+	{
+		this.element = element;
+		this.name = name;
+	}
+
+	String adapterConstant()
+	{
+		return element.getSimpleName() + "Adapter";
+	}
+
+	/**
+	 * Names accessors the way Lombok generates them: isActive()/setActive() for boolean active or isActive, getId()/setId() otherwise.
+	 */
+	void useAccessors()
+	{
+		String field = element.getSimpleName().toString();
+		boolean bool = element.asType().getKind() == TypeKind.BOOLEAN;
+		if(bool && field.length() > 2 && field.startsWith("is") && Character.isUpperCase(field.charAt(2)))
+		{
+			getter = field;
+			setter = "set" + field.substring(2);
+			return;
+		}
+		String capitalized = Character.toUpperCase(field.charAt(0)) + field.substring(1);
+		getter = (bool ? "is" : "get") + capitalized;
+		setter = "set" + capitalized;
+	}
+
+	void appendRead(StringBuilder code)
+	{
+		if(setter != null)
+		{
+			code.append("\t\t\t\t\tvalue.").append(setter).append('(').append(readExpression()).append(");\n");
+		}
+		else
+		{
+			code.append("\t\t\t\t\tvalue.").append(element.getSimpleName()).append(" = ").append(readExpression()).append(";\n");
+		}
+	}
+
+	String readExpression()
+	{
+		if(adapter != null)
+		{
+			return adapterConstant() + ".read(parser, null)";
+		}
+		switch(element.asType().getKind())
+		{
+			case BOOLEAN:
+				return "org.osumm.apiv2.json.JsonAdapters.readBoolean(parser)";
+			case INT:
+				return "org.osumm.apiv2.json.JsonAdapters.readInt(parser)";
+			case LONG:
+				return "org.osumm.apiv2.json.JsonAdapters.readLong(parser)";
+			case FLOAT:
+				return "org.osumm.apiv2.json.JsonAdapters.readFloat(parser)";
+			default:
+				return "org.osumm.apiv2.json.JsonAdapters.readDouble(parser)";
+		}
+	}
+
+	void appendWrite(StringBuilder code)
+	{
+		String value = getter != null ? "value." + getter + "()" : "value." + element.getSimpleName();
+		String literal = CompiledJsonProcessor.literal(name);
+		if(adapter == null)
+		{
+			String method = element.asType().getKind() == TypeKind.BOOLEAN ? "writeBooleanField" : "writeNumberField";
+			code.append("\t\tgenerator.").append(method).append('(').append(literal).append(", ").append(value).append(");\n");
+			return;
+		}
+		// Nulls are omitted
+		code.append("\t\tif(").append(value).append(" != null)\n\t\t{\n");
+		code.append("\t\t\tgenerator.writeFieldName(").append(literal).append(");\n");
+		code.append("\t\t\t").append(adapterConstant()).append(".write(generator, ").append(value).append(");\n");
+		code.append("\t\t}\n");
+	}
+
+}
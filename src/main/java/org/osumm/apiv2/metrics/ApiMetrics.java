@@ -0,0 +1,219 @@
+package org.osumm.apiv2.metrics;
+
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import lombok.Getter;
+
+/**
+ * Built-in {@link ApiMetricsListener} keeping in-memory statistics:
+ * <ul>
+ * <li>per-endpoint latency histograms, call and error counts</li>
+ * <li>HTTP response counts by status code</li>
+ * <li>response body sizes as transferred (before decompression)</li>
+ * <li>network time (until response headers) and body read time (reading and deserialization, which overlap for streamed bodies)</li>
+ * <li>auth token requests latency and failures</li>
+ * </ul>
+ * Recording is lock-free and doesn't allocate once endpoint was seen first time, so it can stay enabled in production. 
+ * Getters read live counters, use {@link #toString()} for human-readable report.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * ApiMetrics metrics = new ApiMetrics();
+ * OsuApi api = OsuApi.builder()
+ * 		...
+ * 		.metricsListener(metrics)
+ * 		.build();
+ * ...
+ * long p99 = metrics.getEndpoint(GetUserEndpoint.class).getLatency().getValueAtPercentile(99);
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+public class ApiMetrics implements ApiMetricsListener
+{
+	
+	private static final int MAX_STATUS = 600;
+	
+	private final Map<Class<?>, EndpointMetrics> endpoints = new ConcurrentHashMap<>();
+	private final AtomicLongArray statusCounts = new AtomicLongArray(MAX_STATUS);
+	@Getter private final Histogram responseSize = new Histogram();
+	@Getter private final Histogram networkTime = new Histogram();
+	@Getter private final Histogram readTime = new Histogram();
+	@Getter private final Histogram tokenRefreshTime = new Histogram();
+	private final LongAdder tokenRefreshErrors = new LongAdder();
+	private volatile long startNanos = System.nanoTime();
+
+	@Override
+	public void onRequest(Class<?> endpointClass, long latencyNanos, Throwable error)
+	{
+		EndpointMetrics metrics = endpoints.get(endpointClass);
+		if(metrics == null)
+		{
+			metrics = endpoints.computeIfAbsent(endpointClass, key -> new EndpointMetrics());
+		}
+		metrics.latency.record(latencyNanos);
+		if(error != null)
+		{
+			metrics.errors.increment();
+		}
+	}
+
+	@Override
+	public void onTokenRefresh(long latencyNanos, Throwable error)
+	{
+		tokenRefreshTime.record(latencyNanos);
+		if(error != null)
+		{
+			tokenRefreshErrors.increment();
+		}
+	}
+
+	@Override
+	public void onResponseComplete(URL url, int statusCode, long bytes, long networkNanos, long readNanos)
+	{
+		if(statusCode >= 0 && statusCode < MAX_STATUS)
+		{
+			statusCounts.incrementAndGet(statusCode);
+		}
+		networkTime.record(networkNanos);
+		if(statusCode == 200)
+		{
+			responseSize.record(bytes);
+			readTime.record(readNanos);
+		}
+	}
+	
+	/**
+	 * @return metrics of provided endpoint, null if it wasn't requested yet
+	 */
+	public EndpointMetrics getEndpoint(Class<?> endpointClass)
+	{
+		return endpoints.get(endpointClass);
+	}
+	
+	/**
+	 * @return live view of metrics of all requested endpoints
+	 */
+	public Map<Class<?>, EndpointMetrics> getEndpoints()
+	{
+		return Collections.unmodifiableMap(endpoints);
+	}
+	
+	/**
+	 * @return number of received HTTP responses with provided status code
+	 */
+	public long getStatusCount(int statusCode)
+	{
+		return statusCode >= 0 && statusCode < MAX_STATUS ? statusCounts.get(statusCode) : 0;
+	}
+	
+	/**
+	 * @return number of received HTTP responses by status code, only seen codes are included
+	 */
+	public Map<Integer, Long> getStatusCounts()
+	{
+		Map<Integer, Long> counts = new TreeMap<>();
+		for(int i = 0; i < MAX_STATUS; i++)
+		{
+			long count = statusCounts.get(i);
+			if(count > 0)
+			{
+				counts.put(i, count);
+			}
+		}
+		return counts;
+	}
+	
+	public long getTokenRefreshErrorCount()
+	{
+		return tokenRefreshErrors.sum();
+	}
+	
+	/**
+	 * @return time since creation or last {@link #reset()} in milliseconds, which counters and rates are relative to
+	 */
+	public long getElapsedMillis()
+	{
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+	}
+	
+	/**
+	 * Clears all counters. Values recorded concurrently with reset may be partially lost.
+	 */
+	public void reset()
+	{
+		endpoints.clear();
+		for(int i = 0; i < MAX_STATUS; i++)
+		{
+			statusCounts.set(i, 0);
+		}
+		responseSize.reset();
+		networkTime.reset();
+		readTime.reset();
+		tokenRefreshTime.reset();
+		tokenRefreshErrors.reset();
+		startNanos = System.nanoTime();
+	}
+	
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder("ApiMetrics over ").append(getElapsedMillis()).append("ms\n");
+		for(Map.Entry<Class<?>, EndpointMetrics> entry : endpoints.entrySet())
+		{
+			EndpointMetrics metrics = entry.getValue();
+			builder.append("  ").append(entry.getKey().getSimpleName())
+					.append(String.format(": %.2f req/s, errors=%d, ", metrics.getRequestsPerSecond(), metrics.getErrorCount()))
+					.append(metrics.latency.toMillisString()).append('\n');
+		}
+		builder.append("  statuses: ").append(getStatusCounts()).append('\n');
+		builder.append("  network: ").append(networkTime.toMillisString()).append('\n');
+		builder.append("  read: ").append(readTime.toMillisString()).append('\n');
+		builder.append("  response bytes: ").append(responseSize).append('\n');
+		builder.append("  token refresh: ").append(tokenRefreshTime.toMillisString()).append(", errors=").append(getTokenRefreshErrorCount());
+		return builder.toString();
+	}
+	
+	/**
+	 * Statistics of single endpoint.
+	 */
+	public class EndpointMetrics
+	{
+		
+		/**
+		 * Call latency in nanoseconds.
+		 */
+		@Getter private final Histogram latency = new Histogram();
+		private final LongAdder errors = new LongAdder();
+		
+		public long getRequestCount()
+		{
+			return latency.getCount();
+		}
+		
+		public long getErrorCount()
+		{
+			return errors.sum();
+		}
+		
+		/**
+		 * @return average request rate since metrics creation or last reset
+		 */
+		public double getRequestsPerSecond()
+		{
+			long elapsed = System.nanoTime() - startNanos;
+			return elapsed <= 0 ? 0 : (double) getRequestCount() * TimeUnit.SECONDS.toNanos(1) / elapsed;
+		}
+		
+	}
+	
+}
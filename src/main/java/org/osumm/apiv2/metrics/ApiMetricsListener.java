@@ -0,0 +1,46 @@
+package org.osumm.apiv2.metrics;
+
+import java.net.URL;
+import java.util.function.Function;
+
+import org.osumm.apiv2.HttpResponseListener;
+
+/**
+ * Instrumentation callbacks of {@link org.osumm.apiv2.OsuApi OsuApi}. Provided into API builder listener is also subscribed 
+ * to its http client provider, so it receives both per-endpoint calls and raw HTTP responses. 
+ * All methods have empty default implementations, so only needed ones should be overridden.
+ * <br/><br/>
+ * Callbacks are invoked on request threads, implementations should be fast, thread-safe and must not throw. 
+ * {@link ApiMetrics} is built-in allocation-free implementation.
+ * @author Master-chan
+ *
+ */
+public interface ApiMetricsListener extends HttpResponseListener
+{
+	
+	/**
+	 * Called once per {@link org.osumm.apiv2.OsuApi#request(Class, Object) request} or 
+	 * {@link org.osumm.apiv2.OsuApi#requestAsync(Class, Object) requestAsync} call completion, including responses served from cache.
+	 * @param endpointClass - requested endpoint
+	 * @param latencyNanos - time from call until response (or failure) was available, including rate limiter and auth token waits
+	 * @param error - exception call failed with, null if call succeeded
+	 */
+	public default void onRequest(Class<?> endpointClass, long latencyNanos, Throwable error)
+	{
+	}
+	
+	/**
+	 * Called once per auth token request.
+	 * @param latencyNanos - token request duration
+	 * @param error - exception request failed with, null if new token was received
+	 */
+	public default void onTokenRefresh(long latencyNanos, Throwable error)
+	{
+	}
+	
+	@Override
+	public default void onResponse(URL url, int statusCode, Function<String, String> headers)
+	{
+	}
+	
+}
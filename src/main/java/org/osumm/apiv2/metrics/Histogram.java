@@ -0,0 +1,153 @@
+package org.osumm.apiv2.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of non-negative long values (nanoseconds, bytes) with log-linear buckets: 
+ * each power of two is split into 16 buckets, so reported percentiles are within 6.25% of recorded values. 
+ * Values below 16 are counted exactly. Memory footprint is fixed (~8KB), {@link #record(long) recording} is lock-free and doesn't allocate.
+ * @author Master-chan
+ *
+ */
+public class Histogram
+{
+	
+	private static final int SUB_BUCKET_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder sum = new LongAdder();
+	private final AtomicLong max = new AtomicLong();
+	
+	/**
+	 * Records value, negative values are recorded as 0.
+	 */
+	public void record(long value)
+	{
+		if(value < 0)
+		{
+			value = 0;
+		}
+		buckets.incrementAndGet(bucketIndex(value));
+		count.increment();
+		sum.add(value);
+		long current = max.get();
+		while(value > current && !max.compareAndSet(current, value))
+		{
+			current = max.get();
+		}
+	}
+	
+	public long getCount()
+	{
+		return count.sum();
+	}
+	
+	public long getMax()
+	{
+		return max.get();
+	}
+	
+	/**
+	 * @return arithmetic mean of recorded values, 0 if histogram is empty
+	 */
+	public double getMean()
+	{
+		long total = count.sum();
+		return total == 0 ? 0 : (double) sum.sum() / total;
+	}
+	
+	/**
+	 * Values are recorded concurrently with this call, so percentile of busy histogram is approximate beyond bucket precision as well.
+	 * @param percentile - percentile in (0, 100] range, e.g. 99.9
+	 * @return highest value equivalent to provided percentile, 0 if histogram is empty
+	 */
+	public long getValueAtPercentile(double percentile)
+	{
+		if(percentile <= 0 || percentile > 100)
+		{
+			throw new IllegalArgumentException("Percentile should be in (0, 100] range");
+		}
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			seen += counts[i];
+			if(seen >= target)
+			{
+				return Math.min(bucketUpperBound(i), getMax());
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Clears recorded values. Values recorded concurrently with reset may be partially lost.
+	 */
+	public void reset()
+	{
+		for(int i = 0; i < BUCKETS; i++)
+		{
+			buckets.set(i, 0);
+		}
+		count.reset();
+		sum.reset();
+		max.set(0);
+	}
+	
+	/**
+	 * Formats count, mean, p50, p99 and max of histogram recording nanoseconds in milliseconds.
+	 */
+	public String toMillisString()
+	{
+		return String.format("count=%d, mean=%.3fms, p50=%.3fms, p99=%.3fms, max=%.3fms", getCount(), 
+				getMean() / TimeUnit.MILLISECONDS.toNanos(1), millis(50), millis(99), (double) getMax() / TimeUnit.MILLISECONDS.toNanos(1));
+	}
+	
+	@Override
+	public String toString()
+	{
+		return String.format("count=%d, mean=%.1f, p50=%d, p99=%d, max=%d", getCount(), getMean(), 
+				getCount() == 0 ? 0 : getValueAtPercentile(50), getCount() == 0 ? 0 : getValueAtPercentile(99), getMax());
+	}
+	
+	private double millis(double percentile)
+	{
+		return getCount() == 0 ? 0 : (double) getValueAtPercentile(percentile) / TimeUnit.MILLISECONDS.toNanos(1);
+	}
+	
+	private static int bucketIndex(long value)
+	{
+		if(value < SUB_BUCKETS)
+		{
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	private static long bucketUpperBound(int index)
+	{
+		if(index < SUB_BUCKETS)
+		{
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long lower = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lower + (1L << shift) - 1;
+	}
+	
+}
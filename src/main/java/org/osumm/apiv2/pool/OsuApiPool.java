@@ -0,0 +1,385 @@
+package org.osumm.apiv2.pool;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osumm.apiv2.OsuApi;
+import org.osumm.apiv2.concurrent.BulkExecutor;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.concurrent.IoExecutor;
+import org.osumm.apiv2.endpoints.Endpoint;
+import org.osumm.apiv2.endpoints.EndpointFactory;
+import org.osumm.apiv2.endpoints.EndpointNotRegisteredException;
+import org.osumm.apiv2.endpoints.EndpointRegistrationException;
+import org.osumm.apiv2.ratelimit.RateLimiter;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Spreads requests across several {@link OsuApi} instances, each built with credentials of its own osu! application,
+ * so throughput grows with number of registered applications.
+ * Every member keeps its own auth token lifecycle, {@link RateLimiter}, retries and caches, pool only chooses which member serves request:
+ * <ul>
+ * <li>{@link Strategy#LEAST_LOADED LEAST_LOADED} - member with fewest requests in flight relative to its weight</li>
+ * <li>{@link Strategy#WEIGHTED_ROUND_ROBIN WEIGHTED_ROUND_ROBIN} - members in turn, proportionally to their weights</li>
+ * </ul>
+ * Weight of member is {@link RateLimiter#getPermitsPerMinute() permitsPerMinute} of its rate limiter (default osu! quota if it has none).
+ * <br/><br/>
+ * Member whose request failed while its last {@link #maxTokenRefreshFailures maxTokenRefreshFailures} token requests failed
+ * is evicted for {@link #evictionMillis evictionMillis} and request is retried on another member.
+ * <br/><br/>
+ * Members shouldn't share {@link org.osumm.apiv2.HttpClientProviderBase HttpClientProviderBase} instance,
+ * since rate limiters follow quota headers of all responses of their provider.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * OsuApiPool pool = new OsuApiPool(Arrays.asList(
+ * 		OsuApi.builder().clientId(id1).clientSecret(secret1).build(),
+ * 		OsuApi.builder().clientId(id2).clientSecret(secret2).build()));
+ * pool.registerEndpoint(GetUserEndpoint.class);
+ * GetUserResponse user = pool.request(GetUserEndpoint.class, GetUserRequest.builder().userId(2).build());
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+public class OsuApiPool implements Closeable
+{
+
+	public enum Strategy
+	{
+		LEAST_LOADED, WEIGHTED_ROUND_ROBIN
+	}
+
+	/**
+	 * Weight of members without rate limiter, default osu! API quota.
+	 */
+	private static final int DEFAULT_WEIGHT = 1200;
+
+	@Getter private final Strategy strategy;
+	@Getter private final int maxTokenRefreshFailures;
+	@Getter private final long evictionMillis;
+
+	private final Member[] members;
+	private final AtomicInteger cursor = new AtomicInteger();
+	private final Lock lock = new ReentrantLock();
+	private final BulkExecutor bulkExecutor = new BulkExecutor();
+
+	/**
+	 * @param apis - members of pool, each with own credentials
+	 * @param strategy - member selection strategy
+	 * @param maxTokenRefreshFailures - consecutive token request failures after which failing member is evicted
+	 * @param evictionMillis - time evicted member isn't used for
+	 */
+	public OsuApiPool(Collection<OsuApi> apis, Strategy strategy, int maxTokenRefreshFailures, long evictionMillis)
+	{
+		if(apis.isEmpty() || strategy == null || maxTokenRefreshFailures < 1 || evictionMillis < 0)
+		{
+			throw new IllegalArgumentException("Pool requires members, strategy, positive failure threshold and non-negative eviction time");
+		}
+		this.strategy = strategy;
+		this.maxTokenRefreshFailures = maxTokenRefreshFailures;
+		this.evictionMillis = evictionMillis;
+		members = new Member[apis.size()];
+		int i = 0;
+		for(OsuApi api : apis)
+		{
+			members[i++] = new Member(api, api.getRateLimiter() != null ? api.getRateLimiter().getPermitsPerMinute() : DEFAULT_WEIGHT);
+		}
+	}
+
+	/**
+	 * Creates least loaded pool evicting members after 3 token request failures for 5 minutes.
+	 * @param apis - members of pool, each with own credentials
+	 */
+	public OsuApiPool(Collection<OsuApi> apis)
+	{
+		this(apis, Strategy.LEAST_LOADED, 3, TimeUnit.MINUTES.toMillis(5));
+	}
+
+	/**
+	 * Registers endpoint in every member, see {@link OsuApi#registerEndpoint(Class)}.
+	 */
+	public void registerEndpoint(Class<? extends Endpoint<?, ?>> endpointClass) throws EndpointRegistrationException
+	{
+		for(Member member : members)
+		{
+			member.api.registerEndpoint(endpointClass);
+		}
+	}
+
+	/**
+	 * Registers endpoint in every member using provided factory, see {@link OsuApi#registerEndpoint(Class, EndpointFactory)}.
+	 */
+	public <E extends Endpoint<?, ?>> void registerEndpoint(Class<E> endpointClass, EndpointFactory<? extends E> factory) throws EndpointRegistrationException
+	{
+		for(Member member : members)
+		{
+			member.api.registerEndpoint(endpointClass, factory);
+		}
+	}
+
+	/**
+	 * @return all members of pool
+	 */
+	public List<OsuApi> getMembers()
+	{
+		List<OsuApi> result = new ArrayList<>(members.length);
+		for(Member member : members)
+		{
+			result.add(member.api);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * @return members which aren't evicted right now
+	 */
+	public List<OsuApi> getAvailableMembers()
+	{
+		long now = System.currentTimeMillis();
+		List<OsuApi> result = new ArrayList<>(members.length);
+		for(Member member : members)
+		{
+			if(member.isAvailable(now))
+			{
+				result.add(member.api);
+			}
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Makes a request using one of members, see {@link OsuApi#request(Class, Object)}.
+	 * @throws IOException also when every member is evicted
+	 */
+	public <R, R1> R1 request(Class<? extends Endpoint<R, R1>> endpointClass, R request) throws EndpointNotRegisteredException, IOException
+	{
+		List<Member> tried = new ArrayList<>(1);
+		Member member = select(tried);
+		if(member == null)
+		{
+			throw allEvicted();
+		}
+		while(true)
+		{
+			Member current = member;
+			current.inFlight.incrementAndGet();
+			try
+			{
+				return current.api.request(endpointClass, request);
+			}
+			catch(IOException e)
+			{
+				member = failover(current, tried);
+				if(member == null)
+				{
+					throw e;
+				}
+			}
+			finally
+			{
+				current.inFlight.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Makes a non-blocking request using one of members, see {@link OsuApi#requestAsync(Class, Object)}.
+	 * @return Future of response object, also completes exceptionally with {@link IOException} when every member is evicted.
+	 */
+	public <R, R1> CompletableFuture<R1> requestAsync(Class<? extends Endpoint<R, R1>> endpointClass, R request)
+	{
+		List<Member> tried = new ArrayList<>(1);
+		Member member = select(tried);
+		if(member == null)
+		{
+			return Futures.failed(allEvicted());
+		}
+		return requestAsync(member, tried, endpointClass, request);
+	}
+
+	private <R, R1> CompletableFuture<R1> requestAsync(Member member, List<Member> tried, Class<? extends Endpoint<R, R1>> endpointClass, R request)
+	{
+		CompletableFuture<R1> result = new CompletableFuture<>();
+		member.inFlight.incrementAndGet();
+		member.api.requestAsync(endpointClass, request).whenComplete((value, e) ->
+		{
+			member.inFlight.decrementAndGet();
+			if(e == null)
+			{
+				result.complete(value);
+				return;
+			}
+			Throwable error = Futures.unwrap(e);
+			Member next = error instanceof IOException ? failover(member, tried) : null;
+			if(next == null)
+			{
+				result.completeExceptionally(error);
+				return;
+			}
+			// Next request might block on synchronous http providers, so it is not run on completing thread
+			CompletableFuture.supplyAsync(() -> requestAsync(next, tried, endpointClass, request), IoExecutor.get())
+					.thenCompose(retried -> retried)
+					.whenComplete((retried, retryError) ->
+					{
+						if(retryError == null)
+						{
+							result.complete(retried);
+						}
+						else
+						{
+							result.completeExceptionally(Futures.unwrap(retryError));
+						}
+					});
+		});
+		return result;
+	}
+
+	/**
+	 * Makes blocking requests concurrently using members of pool, see {@link OsuApi#requestAll(Class, Collection)}.
+	 */
+	public <R, R1> List<R1> requestAll(Class<? extends Endpoint<R, R1>> endpointClass, Collection<? extends R> requests) throws EndpointNotRegisteredException, IOException
+	{
+		if(!members[0].api.isEndpointRegistered(endpointClass)) { throw new EndpointNotRegisteredException(endpointClass); }
+		return bulkExecutor.invokeAll(requests, request ->
+		{
+			try
+			{
+				return request(endpointClass, request);
+			}
+			catch(EndpointNotRegisteredException e)
+			{
+				// Checked above and endpoints are never unregistered
+				throw new IllegalStateException(e);
+			}
+		});
+	}
+
+	/**
+	 * Evicts member if its failure is caused by failing token requests.
+	 * @return member to retry request on, null if request shouldn't be retried
+	 */
+	private Member failover(Member member, List<Member> tried)
+	{
+		if(member.api.getTokenRefreshFailures() < maxTokenRefreshFailures)
+		{
+			return null;
+		}
+		member.evictedUntil = System.currentTimeMillis() + evictionMillis;
+		// Attempts of single request are sequential, so list of tried members isn't shared
+		tried.add(member);
+		return select(tried);
+	}
+
+	/**
+	 * @param excluded - members which already failed serving current request
+	 * @return selected member, null if none is available
+	 */
+	private Member select(List<Member> excluded)
+	{
+		long now = System.currentTimeMillis();
+		if(strategy == Strategy.WEIGHTED_ROUND_ROBIN)
+		{
+			return selectWeighted(excluded, now);
+		}
+		// Scan starts at rotating position, so ties are spread evenly
+		int start = Math.floorMod(cursor.getAndIncrement(), members.length);
+		Member best = null;
+		for(int i = 0; i < members.length; i++)
+		{
+			Member member = members[(start + i) % members.length];
+			if(!member.isAvailable(now) || excluded.contains(member))
+			{
+				continue;
+			}
+			if(best == null || (long) member.inFlight.get() * best.weight < (long) best.inFlight.get() * member.weight)
+			{
+				best = member;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Smooth weighted round robin: every member gains its weight on each selection,
+	 * one with highest total is selected and loses sum of all weights, so heavier members are interleaved with lighter ones.
+	 */
+	private Member selectWeighted(List<Member> excluded, long now)
+	{
+		lock.lock();
+		try
+		{
+			Member best = null;
+			long total = 0;
+			for(Member member : members)
+			{
+				if(!member.isAvailable(now) || excluded.contains(member))
+				{
+					continue;
+				}
+				member.current += member.weight;
+				total += member.weight;
+				if(best == null || member.current > best.current)
+				{
+					best = member;
+				}
+			}
+			if(best != null)
+			{
+				best.current -= total;
+			}
+			return best;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@link OsuApi#close() Closes} every member.
+	 */
+	@Override
+	public void close()
+	{
+		for(Member member : members)
+		{
+			member.api.close();
+		}
+	}
+
+	private static IOException allEvicted()
+	{
+		return new IOException("All pooled credentials are evicted after failing token requests");
+	}
+
+	@RequiredArgsConstructor
+	private static class Member
+	{
+		private final OsuApi api;
+		private final int weight;
+		private final AtomicInteger inFlight = new AtomicInteger();
+		private volatile long evictedUntil;
+
+		// Guarded by pool lock
+		private long current;
+
+		private boolean isAvailable(long now)
+		{
+			return now >= evictedUntil;
+		}
+	}
+
+}
@@ -0,0 +1,28 @@
+package org.osumm.apiv2.ratelimit;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+/**
+ * Thrown by {@link RateLimiter} when permit couldn't be acquired within configured wait time.
+ * @author Master-chan
+ *
+ */
+public class RateLimitExceededException extends IOException
+{
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -1902845531527319618L;
+	
+	@Getter private final long waitMillis;
+	
+	public RateLimitExceededException(long waitMillis)
+	{
+		super("Rate limit exceeded, next permit available in " + waitMillis + "ms");
+		this.waitMillis = waitMillis;
+	}
+	
+}
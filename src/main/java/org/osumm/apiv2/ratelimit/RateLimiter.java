@@ -0,0 +1,281 @@
+package org.osumm.apiv2.ratelimit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+import org.osumm.apiv2.HttpResponseListener;
+import org.osumm.apiv2.concurrent.DaemonScheduler;
+
+import lombok.Getter;
+
+/**
+ * Client-side token bucket limiting outgoing API requests. 
+ * Bucket holds up to {@link #burst burst} permits and is refilled at {@link #permitsPerMinute permitsPerMinute} rate. 
+ * Permits are reserved in order of arrival, so waiting callers are released evenly instead of all at once.
+ * <br/><br/>
+ * Limiter also listens to responses of http client provider and adjusts itself to server side quota: 
+ * <code>X-RateLimit-Remaining</code> header caps stored permits and <code>Retry-After</code> header (or 429 response) 
+ * pauses all permits until server allows requests again.
+ * <br/><br/>
+ * Default osu! API quota is 1200 requests per minute with burst capability of 200 beyond that.
+ * 
+ * @see <a href="https://osu.ppy.sh/docs/index.html#terms-of-use">Official osu!wiki reference</a>
+ * @author Master-chan
+ *
+ */
+public class RateLimiter implements HttpResponseListener
+{
+	
+	@Getter private final int permitsPerMinute;
+	@Getter private final int burst;
+	@Getter private final long maxWaitMillis;
+	
+	private final double permitsPerNano;
+	private final Lock lock = new ReentrantLock();
+	
+	private double storedPermits;
+	private long lastUpdate = System.nanoTime();
+	
+	/**
+	 * @param permitsPerMinute - bucket refill rate
+	 * @param burst - bucket capacity
+	 * @param maxWaitMillis - maximum time request is allowed to wait for permit before failing with {@link RateLimitExceededException}, 0 to fail fast
+	 */
+	public RateLimiter(int permitsPerMinute, int burst, long maxWaitMillis)
+	{
+		if(permitsPerMinute < 1 || burst < 1 || maxWaitMillis < 0)
+		{
+			throw new IllegalArgumentException("Rate limiter requires positive rate and burst and non-negative wait time");
+		}
+		this.permitsPerMinute = permitsPerMinute;
+		this.burst = burst;
+		this.maxWaitMillis = maxWaitMillis;
+		this.permitsPerNano = permitsPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+		this.storedPermits = burst;
+	}
+	
+	/**
+	 * Creates limiter which waits for permits as long as needed.
+	 * @param permitsPerMinute - bucket refill rate
+	 * @param burst - bucket capacity
+	 */
+	public RateLimiter(int permitsPerMinute, int burst)
+	{
+		this(permitsPerMinute, burst, Long.MAX_VALUE);
+	}
+	
+	/**
+	 * Takes one permit, blocking until it is available.
+	 * @throws RateLimitExceededException if permit wouldn't be available within {@link #maxWaitMillis maxWaitMillis}
+	 * @throws InterruptedIOException if thread was interrupted while waiting
+	 */
+	public void acquire() throws IOException
+	{
+		long waitNanos = reserve();
+		if(waitNanos > 0)
+		{
+			try
+			{
+				TimeUnit.NANOSECONDS.sleep(waitNanos);
+			}
+			catch(InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for rate limit permit");
+			}
+		}
+	}
+	
+	/**
+	 * Takes one permit without blocking calling thread.
+	 * @return future completed once permit is available or exceptionally with {@link RateLimitExceededException}
+	 */
+	public CompletableFuture<Void> acquireAsync()
+	{
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		long waitNanos;
+		try
+		{
+			waitNanos = reserve();
+		}
+		catch(RateLimitExceededException e)
+		{
+			future.completeExceptionally(e);
+			return future;
+		}
+		if(waitNanos > 0)
+		{
+			DaemonScheduler.get().schedule(() -> future.complete(null), waitNanos, TimeUnit.NANOSECONDS);
+		}
+		else
+		{
+			future.complete(null);
+		}
+		return future;
+	}
+	
+	/**
+	 * Takes one permit only if it is available right now.
+	 * @return true if permit was taken
+	 */
+	public boolean tryAcquire()
+	{
+		lock.lock();
+		try
+		{
+			long now = System.nanoTime();
+			refill(now);
+			if(now < lastUpdate || storedPermits < 1)
+			{
+				return false;
+			}
+			storedPermits -= 1;
+			return true;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Returns permit which was taken but not used, e.g. one granted to request which has already given up waiting.
+	 */
+	public void release()
+	{
+		lock.lock();
+		try
+		{
+			refill(System.nanoTime());
+			storedPermits = Math.min(burst, storedPermits + 1);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return nanoseconds until next permit is available without taking it, 0 if one is available right now
+	 */
+	public long getWaitNanos()
+	{
+		lock.lock();
+		try
+		{
+			long now = System.nanoTime();
+			refill(now);
+			return Math.max(0, nextAvailable(now) - now);
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Reserves next free permit.
+	 * @return nanoseconds caller has to wait before using reserved permit
+	 */
+	private long reserve() throws RateLimitExceededException
+	{
+		lock.lock();
+		try
+		{
+			long now = System.nanoTime();
+			refill(now);
+			long available = nextAvailable(now);
+			long waitNanos = Math.max(0, available - now);
+			if(waitNanos > TimeUnit.MILLISECONDS.toNanos(maxWaitMillis))
+			{
+				throw new RateLimitExceededException(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+			}
+			if(available > lastUpdate)
+			{
+				storedPermits += (available - lastUpdate) * permitsPerNano;
+				lastUpdate = available;
+			}
+			storedPermits -= 1;
+			return waitNanos;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Earliest moment when bucket will hold at least one permit. Should be called under lock after refill.
+	 */
+	private long nextAvailable(long now)
+	{
+		return storedPermits >= 1 ? Math.max(now, lastUpdate) : lastUpdate + (long) Math.ceil((1 - storedPermits) / permitsPerNano);
+	}
+	
+	/**
+	 * Adds permits accumulated since last update. Should be called under lock.
+	 */
+	private void refill(long now)
+	{
+		if(now > lastUpdate)
+		{
+			storedPermits = Math.min(burst, storedPermits + (now - lastUpdate) * permitsPerNano);
+			lastUpdate = now;
+		}
+	}
+
+	@Override
+	public void onResponse(URL url, int statusCode, Function<String, String> headers)
+	{
+		long retryAfter = parseLong(headers.apply("Retry-After"));
+		long remaining = parseLong(headers.apply("X-RateLimit-Remaining"));
+		if(statusCode != 429 && retryAfter < 0 && remaining < 0)
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			long now = System.nanoTime();
+			refill(now);
+			if(statusCode == 429 || retryAfter >= 0)
+			{
+				// Server asked to stop: drop stored permits and pause refill until it allows requests again
+				storedPermits = Math.min(storedPermits, 0);
+				lastUpdate = Math.max(lastUpdate, now + TimeUnit.SECONDS.toNanos(Math.max(retryAfter, 1)));
+			}
+			else if(remaining < storedPermits)
+			{
+				storedPermits = remaining;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	private static long parseLong(String value)
+	{
+		if(value == null)
+		{
+			return -1;
+		}
+		try
+		{
+			return Long.parseLong(value.trim());
+		}
+		catch(NumberFormatException e)
+		{
+			// Retry-After might be HTTP date, which osu! doesn't use
+			return -1;
+		}
+	}
+	
+}
@@ -0,0 +1,24 @@
+package org.osumm.apiv2.ratelimit;
+
+/**
+ * Priority class of request, used by {@link RequestScheduler} to share rate limit between user-facing and background requests.
+ * @author Master-chan
+ *
+ */
+public enum RequestPriority
+{
+	
+	/**
+	 * User is waiting for response.
+	 */
+	INTERACTIVE, 
+	/**
+	 * Default priority.
+	 */
+	NORMAL, 
+	/**
+	 * Background crawls and polling, using capacity left by other classes.
+	 */
+	BULK
+	
+}
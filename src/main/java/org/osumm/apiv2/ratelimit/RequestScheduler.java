@@ -0,0 +1,380 @@
+package org.osumm.apiv2.ratelimit;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osumm.apiv2.concurrent.DaemonScheduler;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.metrics.Histogram;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Hands out permits of {@link RateLimiter} to requests of different {@link RequestPriority priority classes},
+ * so user-facing requests don't wait behind background crawl saturating the quota.
+ * <br/><br/>
+ * Permits are taken right away while nobody is waiting. Once limiter runs out of them, requests are queued per class
+ * and released as permits refill using weighted fair queuing (stride scheduling): while all classes are backlogged
+ * each gets share of permits proportional to its weight, idle class doesn't save up its share,
+ * so newly arriving interactive request waits for about one permit regardless of bulk backlog.
+ * <br/><br/>
+ * {@link RateLimiter#getMaxWaitMillis() maxWaitMillis} of limiter limits time spent in queue,
+ * requests waiting longer fail with {@link RateLimitExceededException}.
+ * Queue depth, wait time and granted permits are tracked per class.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * RateLimiter limiter = new RateLimiter(1200, 200);
+ * OsuApi api = OsuApi.builder()
+ * 		...
+ * 		.rateLimiter(limiter)
+ * 		.requestScheduler(new RequestScheduler(limiter))
+ * 		.build();
+ * api.request(GetUserEndpoint.class, request, RequestPriority.INTERACTIVE);
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+public class RequestScheduler
+{
+
+	private static final RequestPriority[] PRIORITIES = RequestPriority.values();
+	/**
+	 * Stride of class is this divided by its weight.
+	 */
+	private static final long STRIDE = 1 << 20;
+	/**
+	 * Shortest delay between dispatches, in case limiter permits are taken by someone else.
+	 */
+	private static final long MIN_DISPATCH_DELAY = TimeUnit.MILLISECONDS.toNanos(1);
+
+	@Getter private final RateLimiter rateLimiter;
+	private final int[] weights;
+	private final PriorityClass[] classes = new PriorityClass[PRIORITIES.length];
+	private final Lock lock = new ReentrantLock();
+
+	// Guarded by lock
+	private long virtualTime;
+	private boolean dispatchScheduled;
+
+	/**
+	 * @param rateLimiter - limiter of API instance using this scheduler
+	 * @param interactiveWeight - share of {@link RequestPriority#INTERACTIVE INTERACTIVE} requests
+	 * @param normalWeight - share of {@link RequestPriority#NORMAL NORMAL} requests
+	 * @param bulkWeight - share of {@link RequestPriority#BULK BULK} requests
+	 */
+	public RequestScheduler(RateLimiter rateLimiter, int interactiveWeight, int normalWeight, int bulkWeight)
+	{
+		if(rateLimiter == null || interactiveWeight < 1 || normalWeight < 1 || bulkWeight < 1)
+		{
+			throw new IllegalArgumentException("Scheduler requires rate limiter and positive weights");
+		}
+		this.rateLimiter = rateLimiter;
+		this.weights = new int[] { interactiveWeight, normalWeight, bulkWeight };
+		for(int i = 0; i < classes.length; i++)
+		{
+			classes[i] = new PriorityClass(STRIDE / weights[i]);
+		}
+	}
+
+	/**
+	 * Creates scheduler with 16:4:1 weights of interactive, normal and bulk requests.
+	 * @param rateLimiter - limiter of API instance using this scheduler
+	 */
+	public RequestScheduler(RateLimiter rateLimiter)
+	{
+		this(rateLimiter, 16, 4, 1);
+	}
+
+	/**
+	 * Takes one permit, blocking until it is granted.
+	 * @throws RateLimitExceededException if permit wasn't granted within {@link RateLimiter#getMaxWaitMillis() maxWaitMillis}
+	 * @throws java.io.InterruptedIOException if thread was interrupted while waiting
+	 */
+	public void acquire(RequestPriority priority) throws IOException
+	{
+		CompletableFuture<Void> permit = acquireAsync(priority);
+		try
+		{
+			Futures.await(permit);
+		}
+		finally
+		{
+			// Abandoned waiter is skipped by dispatch
+			permit.cancel(false);
+		}
+	}
+
+	/**
+	 * Takes one permit without blocking calling thread.
+	 * @return future completed once permit is granted or exceptionally with {@link RateLimitExceededException}
+	 */
+	public CompletableFuture<Void> acquireAsync(RequestPriority priority)
+	{
+		PriorityClass priorityClass = classes[priority.ordinal()];
+		Waiter waiter;
+		lock.lock();
+		try
+		{
+			if(!hasWaiters() && rateLimiter.tryAcquire())
+			{
+				priorityClass.granted.increment();
+				priorityClass.waitTime.record(0);
+				return CompletableFuture.completedFuture(null);
+			}
+			if(rateLimiter.getMaxWaitMillis() == 0)
+			{
+				return Futures.failed(new RateLimitExceededException(TimeUnit.NANOSECONDS.toMillis(rateLimiter.getWaitNanos())));
+			}
+			waiter = new Waiter(priorityClass, System.nanoTime());
+			if(priorityClass.queue.isEmpty())
+			{
+				// Class which was idle doesn't get credit for it
+				priorityClass.pass = Math.max(priorityClass.pass, virtualTime);
+			}
+			priorityClass.queue.add(waiter);
+			priorityClass.depth.incrementAndGet();
+			scheduleDispatch();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		// Covers waiters cancelled by caller
+		waiter.future.whenComplete((value, e) -> waiter.leave());
+		long maxWait = rateLimiter.getMaxWaitMillis();
+		if(maxWait < Long.MAX_VALUE)
+		{
+			waiter.timeout = DaemonScheduler.get().schedule(() -> 
+			{
+				waiter.leave();
+				waiter.future.completeExceptionally(new RateLimitExceededException(maxWait));
+			}, maxWait, TimeUnit.MILLISECONDS);
+			// Waiter might have been granted before its timeout was published
+			if(waiter.future.isDone())
+			{
+				waiter.timeout.cancel(false);
+			}
+		}
+		return waiter.future;
+	}
+
+	/**
+	 * Takes one permit only if it is available right now and no request is queued.
+	 * @return true if permit was taken
+	 */
+	public boolean tryAcquire()
+	{
+		lock.lock();
+		try
+		{
+			return !hasWaiters() && rateLimiter.tryAcquire();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return number of requests of provided class waiting for permit
+	 */
+	public int getQueueDepth(RequestPriority priority)
+	{
+		return classes[priority.ordinal()].depth.get();
+	}
+
+	/**
+	 * @return histogram of nanoseconds requests of provided class waited for permit
+	 */
+	public Histogram getWaitTime(RequestPriority priority)
+	{
+		return classes[priority.ordinal()].waitTime;
+	}
+
+	/**
+	 * @return number of permits granted to requests of provided class
+	 */
+	public long getGrantedCount(RequestPriority priority)
+	{
+		return classes[priority.ordinal()].granted.sum();
+	}
+
+	public int getWeight(RequestPriority priority)
+	{
+		return weights[priority.ordinal()];
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder("RequestScheduler");
+		for(RequestPriority priority : PRIORITIES)
+		{
+			builder.append("\n  ").append(priority).append(": queued=").append(getQueueDepth(priority))
+					.append(", granted=").append(getGrantedCount(priority)).append(", wait ").append(getWaitTime(priority).toMillisString());
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Grants available permits to queued requests and schedules next dispatch if some are left.
+	 */
+	private void dispatch()
+	{
+		List<Waiter> granted = new ArrayList<>();
+		lock.lock();
+		try
+		{
+			dispatchScheduled = false;
+			while(true)
+			{
+				PriorityClass next = nextClass();
+				if(next == null || !rateLimiter.tryAcquire())
+				{
+					break;
+				}
+				Waiter waiter = next.queue.poll();
+				virtualTime = next.pass;
+				next.pass += next.stride;
+				granted.add(waiter);
+			}
+			if(hasWaiters())
+			{
+				scheduleDispatch();
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		// Waiters are released outside of lock, since their continuations run on this thread
+		long now = System.nanoTime();
+		boolean returned = false;
+		for(Waiter waiter : granted)
+		{
+			// Queue depth is updated first, continuations of caller run before other dependents of future
+			waiter.leave();
+			if(waiter.future.complete(null))
+			{
+				waiter.priorityClass.granted.increment();
+				waiter.priorityClass.waitTime.record(now - waiter.enqueued);
+			}
+			else
+			{
+				// Waiter timed out or was cancelled after permit was taken for it
+				rateLimiter.release();
+				returned = true;
+			}
+		}
+		if(returned)
+		{
+			lock.lock();
+			try
+			{
+				if(hasWaiters())
+				{
+					scheduleDispatch();
+				}
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * Drops abandoned waiters from queue heads. Called under lock.
+	 * @return class with queued requests and lowest pass, higher priority on ties, null if nothing is queued
+	 */
+	private PriorityClass nextClass()
+	{
+		PriorityClass next = null;
+		for(PriorityClass priorityClass : classes)
+		{
+			while(!priorityClass.queue.isEmpty() && priorityClass.queue.peek().future.isDone())
+			{
+				priorityClass.queue.poll();
+			}
+			if(!priorityClass.queue.isEmpty() && (next == null || priorityClass.pass < next.pass))
+			{
+				next = priorityClass;
+			}
+		}
+		return next;
+	}
+
+	/**
+	 * Called under lock.
+	 */
+	private boolean hasWaiters()
+	{
+		return nextClass() != null;
+	}
+
+	/**
+	 * Schedules dispatch at the moment limiter refills next permit. Called under lock.
+	 */
+	private void scheduleDispatch()
+	{
+		if(!dispatchScheduled)
+		{
+			dispatchScheduled = true;
+			DaemonScheduler.get().schedule(this::dispatch, Math.max(MIN_DISPATCH_DELAY, rateLimiter.getWaitNanos()), TimeUnit.NANOSECONDS);
+		}
+	}
+
+	@RequiredArgsConstructor
+	private static class PriorityClass
+	{
+		private final long stride;
+		private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+		private final AtomicInteger depth = new AtomicInteger();
+		private final Histogram waitTime = new Histogram();
+		private final LongAdder granted = new LongAdder();
+
+		// Guarded by scheduler lock
+		private long pass;
+	}
+
+	@RequiredArgsConstructor
+	private static class Waiter
+	{
+		private final PriorityClass priorityClass;
+		private final long enqueued;
+		private final CompletableFuture<Void> future = new CompletableFuture<>();
+		private final AtomicBoolean left = new AtomicBoolean();
+		/**
+		 * Max-wait timer, cancelled once waiter leaves queue so granted waiters don't pile up in scheduler queue.
+		 */
+		private volatile ScheduledFuture<?> timeout;
+		
+		private void leave()
+		{
+			if(left.compareAndSet(false, true))
+			{
+				priorityClass.depth.decrementAndGet();
+				ScheduledFuture<?> current = timeout;
+				if(current != null)
+				{
+					current.cancel(false);
+				}
+			}
+		}
+	}
+
+}
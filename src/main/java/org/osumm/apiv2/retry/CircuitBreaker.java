@@ -0,0 +1,180 @@
+package org.osumm.apiv2.retry;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osumm.apiv2.HttpStatusException;
+import org.osumm.apiv2.ratelimit.RateLimitExceededException;
+
+import lombok.Getter;
+
+/**
+ * Stops requests to upstream which is considered degraded. 
+ * After {@link #failureThreshold failureThreshold} consecutive upstream failures (5xx responses, network errors) breaker opens 
+ * and every request fails fast with {@link CircuitOpenException} for {@link #openMillis openMillis}. 
+ * Then single trial request is let through: its success closes breaker, its failure opens it again.
+ * <br/><br/>
+ * Responses proving upstream is alive (404 and other 4xx, including 429) count as successes. 
+ * Checking closed breaker costs single volatile read.
+ * @author Master-chan
+ *
+ */
+public class CircuitBreaker
+{
+	
+	public enum State
+	{
+		CLOSED, OPEN, HALF_OPEN
+	}
+	
+	@Getter private final int failureThreshold;
+	@Getter private final long openMillis;
+	
+	private final Lock lock = new ReentrantLock();
+	@Getter private volatile State state = State.CLOSED;
+	private volatile int consecutiveFailures;
+	
+	// Guarded by lock
+	private long openedAt;
+	private boolean trialInProgress;
+	
+	/**
+	 * @param failureThreshold - consecutive failures opening breaker
+	 * @param openMillis - time breaker stays open before letting trial request through
+	 */
+	public CircuitBreaker(int failureThreshold, long openMillis)
+	{
+		if(failureThreshold < 1 || openMillis < 0)
+		{
+			throw new IllegalArgumentException("Failure threshold should be positive and open time non-negative");
+		}
+		this.failureThreshold = failureThreshold;
+		this.openMillis = openMillis;
+	}
+	
+	/**
+	 * Opens after 5 consecutive failures for 30 seconds.
+	 */
+	public CircuitBreaker()
+	{
+		this(5, TimeUnit.SECONDS.toMillis(30));
+	}
+	
+	/**
+	 * Checks whether request is allowed, every successful call should be followed by {@link #onResult(Throwable) onResult}.
+	 * @throws CircuitOpenException if breaker is open or trial request is in progress
+	 */
+	public void acquire() throws CircuitOpenException
+	{
+		if(state == State.CLOSED)
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			if(state == State.OPEN)
+			{
+				long remaining = openedAt + openMillis - System.currentTimeMillis();
+				if(remaining > 0)
+				{
+					throw new CircuitOpenException(remaining);
+				}
+				state = State.HALF_OPEN;
+			}
+			else if(state == State.HALF_OPEN && trialInProgress)
+			{
+				throw new CircuitOpenException(0);
+			}
+			trialInProgress = state == State.HALF_OPEN;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Records outcome of request allowed by {@link #acquire()}.
+	 * @param error - exception request failed with, null if it succeeded
+	 */
+	public void onResult(Throwable error)
+	{
+		if(error == null || isUpstreamAlive(error))
+		{
+			onSuccess();
+		}
+		else if(isUpstreamFailure(error))
+		{
+			onFailure();
+		}
+		else
+		{
+			// Request didn't reach upstream, just release trial slot
+			lock.lock();
+			try
+			{
+				trialInProgress = false;
+			}
+			finally
+			{
+				lock.unlock();
+			}
+		}
+	}
+	
+	private void onSuccess()
+	{
+		if(state == State.CLOSED && consecutiveFailures == 0)
+		{
+			return;
+		}
+		lock.lock();
+		try
+		{
+			consecutiveFailures = 0;
+			trialInProgress = false;
+			state = State.CLOSED;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	private void onFailure()
+	{
+		lock.lock();
+		try
+		{
+			consecutiveFailures++;
+			if(state == State.HALF_OPEN || (state == State.CLOSED && consecutiveFailures >= failureThreshold))
+			{
+				state = State.OPEN;
+				openedAt = System.currentTimeMillis();
+				trialInProgress = false;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	private static boolean isUpstreamAlive(Throwable error)
+	{
+		return error instanceof HttpStatusException && !((HttpStatusException) error).isServerError();
+	}
+	
+	private static boolean isUpstreamFailure(Throwable error)
+	{
+		if(error instanceof HttpStatusException)
+		{
+			return ((HttpStatusException) error).isServerError();
+		}
+		return error instanceof IOException && !(error instanceof RateLimitExceededException) && !(error instanceof CircuitOpenException);
+	}
+	
+}
@@ -0,0 +1,31 @@
+package org.osumm.apiv2.retry;
+
+import java.io.IOException;
+
+import lombok.Getter;
+
+/**
+ * Thrown instead of making request while {@link CircuitBreaker} is open.
+ * @author Master-chan
+ *
+ */
+public class CircuitOpenException extends IOException
+{
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = -3425836385287226716L;
+	
+	/**
+	 * Time until breaker lets trial request through, 0 if trial request is already in progress.
+	 */
+	@Getter private final long retryInMillis;
+	
+	public CircuitOpenException(long retryInMillis)
+	{
+		super("Circuit breaker is open, upstream considered unavailable for next " + retryInMillis + "ms");
+		this.retryInMillis = retryInMillis;
+	}
+	
+}
@@ -0,0 +1,225 @@
+package org.osumm.apiv2.retry;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.osumm.apiv2.metrics.Histogram;
+import org.osumm.apiv2.ratelimit.RateLimiter;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Decides when {@link org.osumm.apiv2.OsuApi OsuApi} sends second identical request (hedge) for attempt which is taking too long,
+ * cutting tail latency caused by occasional slow responses. First response wins and the other request is cancelled.
+ * Only {@link org.osumm.apiv2.endpoints.Endpoint#isIdempotent() idempotent} endpoints are hedged.
+ * <br/><br/>
+ * Hedge is sent after fixed {@link #delayMillis delayMillis} or, if it is 0, once attempt is slower than
+ * {@link #percentile percentile} of latencies observed for its endpoint (at least {@link #minSamples minSamples} of them are needed,
+ * before that attempts aren't hedged).
+ * Hedges are limited to {@link #maxHedgeRatio maxHedgeRatio} of attempts with burst of {@link #maxHedgeBurst maxHedgeBurst},
+ * and each takes {@link RateLimiter} permit: hedge is skipped rather than waiting when there is none available.
+ * <br/><br/>
+ * Hedged calls run on {@link org.osumm.apiv2.concurrent.IoExecutor IoExecutor} (blocking attempts move there too, so they can be abandoned), 
+ * where cancelled call keeps its platform thread on Java 8 until its socket read ends. At most {@link #maxHedgedCallsInFlight maxHedgedCallsInFlight} 
+ * such calls run at once: beyond that blocking attempts run on calling thread and hedges are skipped, so threads don't pile up when API slows down.
+ * <br/><br/>
+ * Policy keeps latencies and hedge budget, so it shouldn't be shared by unrelated API instances.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * HedgePolicy policy = HedgePolicy.builder()
+ * 		.percentile(95)
+ * 		.maxHedgeRatio(0.05)
+ * 		.build();
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+@Builder
+public class HedgePolicy
+{
+
+	/**
+	 * Budget is counted in thousandths of hedge.
+	 */
+	private static final long HEDGE_COST = 1000;
+	/**
+	 * Percentile is recalculated after this many new latencies.
+	 */
+	private static final long RECALCULATE_EVERY = 64;
+	/**
+	 * Latencies are forgotten after this many of them, so delay follows current latency.
+	 */
+	private static final long WINDOW = 10000;
+
+	/**
+	 * Fixed hedge delay, 0 to use {@link #percentile percentile} of observed latencies.
+	 */
+	@Builder.Default @Getter private final long delayMillis = 0;
+	@Builder.Default @Getter private final double percentile = 95;
+	@Builder.Default @Getter private final int minSamples = 100;
+	@Builder.Default @Getter private final double maxHedgeRatio = 0.05;
+	@Builder.Default @Getter private final int maxHedgeBurst = 10;
+	/**
+	 * Maximum number of calls of hedged attempts (original and hedge ones, including cancelled ones still running) occupying executor threads.
+	 */
+	@Builder.Default @Getter private final int maxHedgedCallsInFlight = 64;
+
+	private final ClassValue<EndpointLatency> latencies = new ClassValue<EndpointLatency>()
+	{
+		@Override
+		protected EndpointLatency computeValue(Class<?> type)
+		{
+			return new EndpointLatency();
+		}
+	};
+	private final AtomicLong budget = new AtomicLong();
+	private final AtomicInteger callsInFlight = new AtomicInteger();
+	private final LongAdder hedges = new LongAdder();
+	private final LongAdder hedgeWins = new LongAdder();
+
+	/**
+	 * Called for every attempt of hedged endpoint, adds its share into hedge budget.
+	 * @return delay in nanoseconds after which attempt should be hedged, -1 if it shouldn't be
+	 */
+	public long onAttempt(Class<?> endpointClass)
+	{
+		long share = (long) (maxHedgeRatio * HEDGE_COST);
+		long cap = maxHedgeBurst * HEDGE_COST;
+		long current = budget.get();
+		while(current < cap && !budget.compareAndSet(current, Math.min(cap, current + share)))
+		{
+			current = budget.get();
+		}
+		if(delayMillis > 0)
+		{
+			return TimeUnit.MILLISECONDS.toNanos(delayMillis);
+		}
+		return latencies.get(endpointClass).delayNanos;
+	}
+
+	/**
+	 * Takes hedge from budget.
+	 * @return false if hedge budget is exhausted
+	 */
+	public boolean tryHedge()
+	{
+		long current = budget.get();
+		while(current >= HEDGE_COST)
+		{
+			if(budget.compareAndSet(current, current - HEDGE_COST))
+			{
+				hedges.increment();
+				return true;
+			}
+			current = budget.get();
+		}
+		return false;
+	}
+
+	/**
+	 * Reserves executor thread for call of hedged attempt, released with {@link #onCallFinished() onCallFinished}.
+	 * @return false if {@link #maxHedgedCallsInFlight maxHedgedCallsInFlight} calls are already running
+	 */
+	public boolean tryStartCall()
+	{
+		int current = callsInFlight.get();
+		while(current < maxHedgedCallsInFlight)
+		{
+			if(callsInFlight.compareAndSet(current, current + 1))
+			{
+				return true;
+			}
+			current = callsInFlight.get();
+		}
+		return false;
+	}
+
+	/**
+	 * Called once call reserved by {@link #tryStartCall() tryStartCall} no longer occupies executor thread.
+	 */
+	public void onCallFinished()
+	{
+		callsInFlight.decrementAndGet();
+	}
+
+	/**
+	 * @return number of calls of hedged attempts occupying executor threads
+	 */
+	public int getCallsInFlight()
+	{
+		return callsInFlight.get();
+	}
+
+	/**
+	 * Records latency of successful request (original or hedge).
+	 */
+	public void recordLatency(Class<?> endpointClass, long latencyNanos)
+	{
+		latencies.get(endpointClass).record(latencyNanos);
+	}
+
+	/**
+	 * Called when hedge responded before original request.
+	 */
+	public void onHedgeWon()
+	{
+		hedgeWins.increment();
+	}
+
+	/**
+	 * @return number of hedges sent
+	 */
+	public long getHedgeCount()
+	{
+		return hedges.sum();
+	}
+
+	/**
+	 * @return number of hedges which responded before original request
+	 */
+	public long getHedgeWinCount()
+	{
+		return hedgeWins.sum();
+	}
+
+	/**
+	 * @return current hedge delay of endpoint in milliseconds, -1 if there aren't enough latencies observed yet
+	 */
+	public long getCurrentDelayMillis(Class<?> endpointClass)
+	{
+		if(delayMillis > 0)
+		{
+			return delayMillis;
+		}
+		long delay = latencies.get(endpointClass).delayNanos;
+		return delay < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(delay);
+	}
+
+	private class EndpointLatency
+	{
+		private final Histogram histogram = new Histogram();
+		private final AtomicLong recorded = new AtomicLong();
+		private volatile long delayNanos = -1;
+
+		private void record(long latencyNanos)
+		{
+			histogram.record(latencyNanos);
+			long count = recorded.incrementAndGet();
+			if(count >= minSamples && count % RECALCULATE_EVERY == 0)
+			{
+				delayNanos = histogram.getValueAtPercentile(percentile);
+				if(count >= WINDOW && recorded.compareAndSet(count, 0))
+				{
+					histogram.reset();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package org.osumm.apiv2.retry;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.osumm.apiv2.HttpStatusException;
+import org.osumm.apiv2.ratelimit.RateLimitExceededException;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Decides whether and when failed request is retried by {@link org.osumm.apiv2.OsuApi OsuApi}. 
+ * Retried are {@link HttpStatusException}s with {@link #retryableStatuses retryable status} and, if {@link #retryOnNetworkErrors enabled}, 
+ * other IOExceptions (timeouts, connection resets). 
+ * Requests to endpoints which aren't {@link org.osumm.apiv2.endpoints.Endpoint#isIdempotent() idempotent} might have been processed 
+ * by server before such failure, so they are only retried on {@link #NOT_PROCESSED_STATUSES 429 and 503} responses. 
+ * Client side failures ({@link RateLimitExceededException}, {@link CircuitOpenException}) and interrupted requests are never retried.
+ * <br/><br/>
+ * Delay grows exponentially from {@link #baseDelayMillis baseDelayMillis} up to {@link #maxDelayMillis maxDelayMillis} 
+ * with random jitter of half its value, so clients failed at the same time don't retry at the same time. 
+ * <code>Retry-After</code> sent by server is used instead when present, unless it is longer than {@link #maxRetryAfterMillis maxRetryAfterMillis}.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * RetryPolicy policy = RetryPolicy.builder()
+ * 		.maxAttempts(5)
+ * 		.baseDelayMillis(500)
+ * 		.build();
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+@Builder
+public class RetryPolicy
+{
+	
+	/**
+	 * Statuses server responds with before processing request (rate limited, unavailable), which makes retrying any request safe.
+	 */
+	public static final Set<Integer> NOT_PROCESSED_STATUSES = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(429, 503)));
+	
+	/**
+	 * Total number of attempts including first one.
+	 */
+	@Builder.Default @Getter private final int maxAttempts = 3;
+	@Builder.Default @Getter private final long baseDelayMillis = 250;
+	@Builder.Default @Getter private final long maxDelayMillis = 10000;
+	@Builder.Default @Getter private final long maxRetryAfterMillis = 60000;
+	@Builder.Default @Getter private final Set<Integer> retryableStatuses = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(429, 500, 502, 503, 504)));
+	@Builder.Default @Getter private final boolean retryOnNetworkErrors = true;
+	
+	/**
+	 * @return policy making single attempt only
+	 */
+	public static RetryPolicy disabled()
+	{
+		return RetryPolicy.builder().maxAttempts(1).build();
+	}
+	
+	/**
+	 * Delay before next attempt of idempotent request, see {@link #getDelayMillis(int, Throwable, boolean)}.
+	 */
+	public long getDelayMillis(int failedAttempts, Throwable error)
+	{
+		return getDelayMillis(failedAttempts, error, true);
+	}
+	
+	/**
+	 * @param failedAttempts - number of attempts made so far
+	 * @param error - exception last attempt failed with
+	 * @param idempotent - whether repeating request is harmless even if server has processed it
+	 * @return delay before next attempt in milliseconds, -1 if request shouldn't be retried
+	 */
+	public long getDelayMillis(int failedAttempts, Throwable error, boolean idempotent)
+	{
+		if(failedAttempts >= maxAttempts || !isRetryable(error, idempotent) || Thread.currentThread().isInterrupted())
+		{
+			return -1;
+		}
+		if(error instanceof HttpStatusException && ((HttpStatusException) error).getRetryAfterMillis() >= 0)
+		{
+			long retryAfter = ((HttpStatusException) error).getRetryAfterMillis();
+			return retryAfter <= maxRetryAfterMillis ? retryAfter : -1;
+		}
+		long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(failedAttempts - 1, 30));
+		return delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1);
+	}
+	
+	public boolean isRetryable(Throwable error)
+	{
+		return isRetryable(error, true);
+	}
+	
+	public boolean isRetryable(Throwable error, boolean idempotent)
+	{
+		if(error instanceof HttpStatusException)
+		{
+			int status = ((HttpStatusException) error).getStatusCode();
+			return retryableStatuses.contains(status) && (idempotent || NOT_PROCESSED_STATUSES.contains(status));
+		}
+		if(error instanceof RateLimitExceededException || error instanceof CircuitOpenException)
+		{
+			return false;
+		}
+		return idempotent && retryOnNetworkErrors && error instanceof IOException;
+	}
+	
+}
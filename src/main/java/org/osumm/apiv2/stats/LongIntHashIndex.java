@@ -0,0 +1,173 @@
+package org.osumm.apiv2.stats;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map of long keys to non-negative int values without boxing, used as user id to row index. 
+ * Not thread-safe.
+ * @author Master-chan
+ *
+ */
+final class LongIntHashIndex
+{
+	
+	static final long EMPTY = Long.MIN_VALUE;
+	private static final int MAX_CAPACITY = 1 << 30;
+	
+	private long[] keys;
+	private int[] values;
+	private int mask;
+	private int size;
+	private int resizeThreshold;
+	
+	LongIntHashIndex(int expectedSize)
+	{
+		allocate(capacityFor(expectedSize));
+	}
+	
+	int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * @return value of key, -1 if there is none
+	 */
+	int get(long key)
+	{
+		for(int slot = slot(key);; slot = (slot + 1) & mask)
+		{
+			long current = keys[slot];
+			if(current == key)
+			{
+				return values[slot];
+			}
+			if(current == EMPTY)
+			{
+				return -1;
+			}
+		}
+	}
+	
+	void put(long key, int value)
+	{
+		if(key == EMPTY)
+		{
+			throw new IllegalArgumentException("Key " + key + " is reserved");
+		}
+		int slot = slot(key);
+		while(keys[slot] != EMPTY && keys[slot] != key)
+		{
+			slot = (slot + 1) & mask;
+		}
+		values[slot] = value;
+		if(keys[slot] == EMPTY)
+		{
+			keys[slot] = key;
+			if(++size > resizeThreshold)
+			{
+				rehash(keys.length * 2);
+			}
+		}
+	}
+	
+	/**
+	 * Removes key shifting following entries of its probe chain back, so no tombstones are needed.
+	 * @return removed value, -1 if there was none
+	 */
+	int remove(long key)
+	{
+		int slot = slot(key);
+		while(keys[slot] != key)
+		{
+			if(keys[slot] == EMPTY)
+			{
+				return -1;
+			}
+			slot = (slot + 1) & mask;
+		}
+		int removed = values[slot];
+		size--;
+		int gap = slot;
+		for(int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask)
+		{
+			int home = slot(keys[next]);
+			// Entry can fill the gap only if its home slot isn't cyclically within (gap, next]
+			if(((next - home) & mask) >= ((next - gap) & mask))
+			{
+				keys[gap] = keys[next];
+				values[gap] = values[next];
+				gap = next;
+			}
+		}
+		keys[gap] = EMPTY;
+		return removed;
+	}
+	
+	/**
+	 * Grows table to hold expected number of keys without rehashing.
+	 */
+	void ensureCapacity(int expectedSize)
+	{
+		int capacity = capacityFor(expectedSize);
+		if(capacity > keys.length)
+		{
+			rehash(capacity);
+		}
+	}
+	
+	void clear()
+	{
+		Arrays.fill(keys, EMPTY);
+		size = 0;
+	}
+	
+	private void rehash(int capacity)
+	{
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		allocate(capacity);
+		for(int i = 0; i < oldKeys.length; i++)
+		{
+			if(oldKeys[i] != EMPTY)
+			{
+				int slot = slot(oldKeys[i]);
+				while(keys[slot] != EMPTY)
+				{
+					slot = (slot + 1) & mask;
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+	
+	private void allocate(int capacity)
+	{
+		keys = new long[capacity];
+		Arrays.fill(keys, EMPTY);
+		values = new int[capacity];
+		mask = capacity - 1;
+		resizeThreshold = capacity / 3 * 2;
+	}
+	
+	private int slot(long key)
+	{
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+	
+	/**
+	 * @return power of two table size keeping load factor under 2/3
+	 */
+	private static int capacityFor(int expectedSize)
+	{
+		long required = Math.max(16, (long) expectedSize * 3 / 2 + 1);
+		if(required > MAX_CAPACITY)
+		{
+			throw new IllegalArgumentException("Too many keys: " + expectedSize);
+		}
+		return Integer.highestOneBit((int) required - 1) << 1;
+	}
+	
+}
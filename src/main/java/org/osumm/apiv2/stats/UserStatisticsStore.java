@@ -0,0 +1,508 @@
+package org.osumm.apiv2.stats;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse.ProfileStatistics;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse.ProfileStatistics.ProfileStatisticsGrades;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse.ProfileStatistics.ProfileStatisticsRank;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Compact store of latest {@link ProfileStatistics} of large number of users, keyed by user id. 
+ * Each statistic is kept in own primitive array (column) and rows are kept dense, so store takes ~90 bytes per user 
+ * (including id index) instead of kilobytes of response object graph, doesn't create garbage on updates 
+ * and column scans are plain array loops which JIT can vectorize.
+ * <br/><br/>
+ * Stored are performance points, global and country rank (0 for unranked), ranked score, play count, hit accuracy and grade counts. 
+ * Store is thread-safe: updates take write lock, reads and {@link #scan(Function) scans} share read lock.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * UserStatisticsStore store = new UserStatisticsStore(5_000_000);
+ * store.putAll(api.request(GetUsersEndpoint.class, request).getUsers());
+ * double totalPp = store.scan(columns -> 
+ * {
+ * 	double sum = 0;
+ * 	double[] pp = columns.getPerformancePoints();
+ * 	for(int i = 0; i < columns.getSize(); i++)
+ * 	{
+ * 		sum += pp[i];
+ * 	}
+ * 	return sum;
+ * });
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+public class UserStatisticsStore
+{
+	
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	
+	// Guarded by lock
+	private final LongIntHashIndex index;
+	private int size;
+	private long[] userIds;
+	private double[] performancePoints;
+	private int[] globalRanks;
+	private int[] countryRanks;
+	private long[] rankedScores;
+	private long[] playCounts;
+	private double[] accuracies;
+	private int[] ssCounts;
+	private int[] sshCounts;
+	private int[] sCounts;
+	private int[] shCounts;
+	private int[] aCounts;
+	
+	public UserStatisticsStore()
+	{
+		this(1024);
+	}
+	
+	/**
+	 * @param expectedUsers - number of users store is sized for, it grows beyond that as needed
+	 */
+	public UserStatisticsStore(int expectedUsers)
+	{
+		if(expectedUsers < 1)
+		{
+			throw new IllegalArgumentException("Expected users count should be positive");
+		}
+		index = new LongIntHashIndex(expectedUsers);
+		allocate(expectedUsers);
+	}
+	
+	/**
+	 * Stores statistics of provided user, replacing previous ones.
+	 * @return false if response has no statistics
+	 */
+	public boolean put(GetUserResponse user)
+	{
+		return put(user.getId(), user.getStatistics());
+	}
+	
+	/**
+	 * Stores statistics of provided user, replacing previous ones.
+	 * @return false if statistics are null
+	 */
+	public boolean put(long userId, ProfileStatistics statistics)
+	{
+		if(statistics == null)
+		{
+			return false;
+		}
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try
+		{
+			store(userId, statistics);
+			return true;
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Stores statistics of all provided users under single lock acquisition, users without statistics are skipped.
+	 * @return number of stored users
+	 */
+	public int putAll(Collection<? extends GetUserResponse> users)
+	{
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try
+		{
+			ensureCapacity(size + users.size());
+			int stored = 0;
+			for(GetUserResponse user : users)
+			{
+				if(user.getStatistics() != null)
+				{
+					store(user.getId(), user.getStatistics());
+					stored++;
+				}
+			}
+			return stored;
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+	
+	/**
+	 * Removes user, last row is moved into its place to keep columns dense.
+	 * @return false if user wasn't stored
+	 */
+	public boolean remove(long userId)
+	{
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try
+		{
+			int row = index.remove(userId);
+			if(row < 0)
+			{
+				return false;
+			}
+			int last = --size;
+			if(row != last)
+			{
+				copyRow(last, row);
+				index.put(userIds[row], row);
+			}
+			return true;
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+	
+	public void clear()
+	{
+		Lock writeLock = lock.writeLock();
+		writeLock.lock();
+		try
+		{
+			index.clear();
+			size = 0;
+		}
+		finally
+		{
+			writeLock.unlock();
+		}
+	}
+	
+	public int size()
+	{
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try
+		{
+			return size;
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+	
+	public boolean contains(long userId)
+	{
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try
+		{
+			return index.get(userId) >= 0;
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+	
+	/**
+	 * @return copy of user's stored statistics, null if user isn't stored
+	 */
+	public Row get(long userId)
+	{
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try
+		{
+			int row = index.get(userId);
+			if(row < 0)
+			{
+				return null;
+			}
+			return new Row(userIds[row], performancePoints[row], globalRanks[row], countryRanks[row], rankedScores[row], playCounts[row], 
+					accuracies[row], ssCounts[row], sshCounts[row], sCounts[row], shCounts[row], aCounts[row]);
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+	
+	/**
+	 * Runs provided scan over columns under read lock. Scan must not keep references to column arrays after it returns, 
+	 * as they are modified by following updates.
+	 * @return scan result
+	 */
+	public <T> T scan(Function<Columns, T> scan)
+	{
+		Lock readLock = lock.readLock();
+		readLock.lock();
+		try
+		{
+			return scan.apply(new Columns(size, userIds, performancePoints, globalRanks, countryRanks, rankedScores, playCounts, 
+					accuracies, ssCounts, sshCounts, sCounts, shCounts, aCounts));
+		}
+		finally
+		{
+			readLock.unlock();
+		}
+	}
+	
+	/**
+	 * @return number of users having at least provided performance points
+	 */
+	public int countWithPerformancePointsAtLeast(double minimum)
+	{
+		return scan(columns -> 
+		{
+			double[] pp = columns.performancePoints;
+			int count = 0;
+			for(int i = 0; i < columns.size; i++)
+			{
+				count += pp[i] >= minimum ? 1 : 0;
+			}
+			return count;
+		});
+	}
+	
+	/**
+	 * @return mean performance points of stored users, 0 if store is empty
+	 */
+	public double averagePerformancePoints()
+	{
+		return scan(columns -> 
+		{
+			double[] pp = columns.performancePoints;
+			double sum = 0;
+			for(int i = 0; i < columns.size; i++)
+			{
+				sum += pp[i];
+			}
+			return columns.size == 0 ? 0 : sum / columns.size;
+		});
+	}
+	
+	/**
+	 * @return ids of up to <code>count</code> users with highest performance points, in descending order
+	 */
+	public long[] topByPerformancePoints(int count)
+	{
+		return scan(columns -> 
+		{
+			int limit = Math.min(count, columns.size);
+			// Min-heap of row indices of best rows seen so far
+			int[] heap = new int[limit];
+			double[] pp = columns.performancePoints;
+			int heapSize = 0;
+			for(int i = 0; i < columns.size && limit > 0; i++)
+			{
+				if(heapSize < limit)
+				{
+					heap[heapSize] = i;
+					siftUp(heap, heapSize++, pp);
+				}
+				else if(pp[i] > pp[heap[0]])
+				{
+					heap[0] = i;
+					siftDown(heap, heapSize, pp);
+				}
+			}
+			long[] ids = new long[heapSize];
+			for(int i = heapSize - 1; i >= 0; i--)
+			{
+				ids[i] = columns.userIds[heap[0]];
+				heap[0] = heap[i];
+				siftDown(heap, i, pp);
+			}
+			return ids;
+		});
+	}
+	
+	/**
+	 * Called under write lock.
+	 */
+	private void store(long userId, ProfileStatistics statistics)
+	{
+		int row = index.get(userId);
+		if(row < 0)
+		{
+			ensureCapacity(size + 1);
+			row = size++;
+			index.put(userId, row);
+		}
+		ProfileStatisticsRank rank = statistics.getRank();
+		ProfileStatisticsGrades grades = statistics.getGrades();
+		userIds[row] = userId;
+		performancePoints[row] = statistics.getPerformancePoints();
+		globalRanks[row] = toInt(statistics.getGlobalRank() > 0 ? statistics.getGlobalRank() : rank != null ? rank.getGlobal() : 0);
+		countryRanks[row] = toInt(rank != null ? rank.getCountry() : 0);
+		rankedScores[row] = statistics.getRankedScore();
+		playCounts[row] = statistics.getPlaycount();
+		accuracies[row] = statistics.getHitAccuracy();
+		ssCounts[row] = toInt(grades != null ? grades.getSsRanks() : 0);
+		sshCounts[row] = toInt(grades != null ? grades.getSshRanks() : 0);
+		sCounts[row] = toInt(grades != null ? grades.getSRanks() : 0);
+		shCounts[row] = toInt(grades != null ? grades.getShRanks() : 0);
+		aCounts[row] = toInt(grades != null ? grades.getARanks() : 0);
+	}
+	
+	private void copyRow(int from, int to)
+	{
+		userIds[to] = userIds[from];
+		performancePoints[to] = performancePoints[from];
+		globalRanks[to] = globalRanks[from];
+		countryRanks[to] = countryRanks[from];
+		rankedScores[to] = rankedScores[from];
+		playCounts[to] = playCounts[from];
+		accuracies[to] = accuracies[from];
+		ssCounts[to] = ssCounts[from];
+		sshCounts[to] = sshCounts[from];
+		sCounts[to] = sCounts[from];
+		shCounts[to] = shCounts[from];
+		aCounts[to] = aCounts[from];
+	}
+	
+	private void ensureCapacity(int required)
+	{
+		if(required > userIds.length)
+		{
+			int capacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, userIds.length + (long) userIds.length / 2));
+			userIds = Arrays.copyOf(userIds, capacity);
+			performancePoints = Arrays.copyOf(performancePoints, capacity);
+			globalRanks = Arrays.copyOf(globalRanks, capacity);
+			countryRanks = Arrays.copyOf(countryRanks, capacity);
+			rankedScores = Arrays.copyOf(rankedScores, capacity);
+			playCounts = Arrays.copyOf(playCounts, capacity);
+			accuracies = Arrays.copyOf(accuracies, capacity);
+			ssCounts = Arrays.copyOf(ssCounts, capacity);
+			sshCounts = Arrays.copyOf(sshCounts, capacity);
+			sCounts = Arrays.copyOf(sCounts, capacity);
+			shCounts = Arrays.copyOf(shCounts, capacity);
+			aCounts = Arrays.copyOf(aCounts, capacity);
+		}
+		index.ensureCapacity(required);
+	}
+	
+	private void allocate(int capacity)
+	{
+		userIds = new long[capacity];
+		performancePoints = new double[capacity];
+		globalRanks = new int[capacity];
+		countryRanks = new int[capacity];
+		rankedScores = new long[capacity];
+		playCounts = new long[capacity];
+		accuracies = new double[capacity];
+		ssCounts = new int[capacity];
+		sshCounts = new int[capacity];
+		sCounts = new int[capacity];
+		shCounts = new int[capacity];
+		aCounts = new int[capacity];
+	}
+	
+	private static int toInt(long value)
+	{
+		return (int) Math.min(Math.max(value, 0), Integer.MAX_VALUE);
+	}
+	
+	private static void siftUp(int[] heap, int position, double[] pp)
+	{
+		while(position > 0)
+		{
+			int parent = (position - 1) / 2;
+			if(pp[heap[parent]] <= pp[heap[position]])
+			{
+				return;
+			}
+			swap(heap, parent, position);
+			position = parent;
+		}
+	}
+	
+	private static void siftDown(int[] heap, int heapSize, double[] pp)
+	{
+		int position = 0;
+		while(true)
+		{
+			int smallest = position;
+			int left = position * 2 + 1;
+			int right = left + 1;
+			if(left < heapSize && pp[heap[left]] < pp[heap[smallest]])
+			{
+				smallest = left;
+			}
+			if(right < heapSize && pp[heap[right]] < pp[heap[smallest]])
+			{
+				smallest = right;
+			}
+			if(smallest == position)
+			{
+				return;
+			}
+			swap(heap, position, smallest);
+			position = smallest;
+		}
+	}
+	
+	private static void swap(int[] heap, int i, int j)
+	{
+		int tmp = heap[i];
+		heap[i] = heap[j];
+		heap[j] = tmp;
+	}
+	
+	/**
+	 * Read-only view of store columns for {@link UserStatisticsStore#scan(Function) scans}. 
+	 * Arrays may be longer than store, only first {@link #size size} elements are valid.
+	 */
+	@Getter
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	public static class Columns
+	{
+		private final int size;
+		private final long[] userIds;
+		private final double[] performancePoints;
+		private final int[] globalRanks;
+		private final int[] countryRanks;
+		private final long[] rankedScores;
+		private final long[] playCounts;
+		private final double[] accuracies;
+		private final int[] ssCounts;
+		private final int[] sshCounts;
+		private final int[] sCounts;
+		private final int[] shCounts;
+		private final int[] aCounts;
+	}
+	
+	/**
+	 * Copy of single user's stored statistics.
+	 */
+	@Getter
+	@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+	public static class Row
+	{
+		private final long userId;
+		private final double performancePoints;
+		private final int globalRank;
+		private final int countryRank;
+		private final long rankedScore;
+		private final long playCount;
+		private final double accuracy;
+		private final int ssCount;
+		private final int sshCount;
+		private final int sCount;
+		private final int shCount;
+		private final int aCount;
+	}
+	
+}
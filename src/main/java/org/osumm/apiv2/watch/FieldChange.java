@@ -0,0 +1,24 @@
+package org.osumm.apiv2.watch;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Single field difference between consecutive user snapshots.
+ * @author Master-chan
+ *
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@RequiredArgsConstructor
+public class FieldChange
+{
+	
+	private final WatchedField field;
+	private final Object previous;
+	private final Object current;
+	
+}
@@ -0,0 +1,42 @@
+package org.osumm.apiv2.watch;
+
+import java.util.List;
+
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Emitted by {@link UserWatcher} when watched user's fields changed since previous poll.
+ * @author Master-chan
+ *
+ */
+@Getter
+@ToString(of = {"userId", "changes"})
+@RequiredArgsConstructor
+public class UserChangeEvent
+{
+	
+	private final long userId;
+	private final GetUserResponse previous;
+	private final GetUserResponse current;
+	private final List<FieldChange> changes;
+	
+	/**
+	 * @return change of provided field, null if it didn't change
+	 */
+	public FieldChange getChange(WatchedField field)
+	{
+		for(FieldChange change : changes)
+		{
+			if(change.getField() == field)
+			{
+				return change;
+			}
+		}
+		return null;
+	}
+	
+}
@@ -0,0 +1,22 @@
+package org.osumm.apiv2.watch;
+
+import java.util.Collection;
+
+/**
+ * Receives {@link UserWatcher} events. Called on request completion threads, so implementations should hand off heavy work.
+ * @author Master-chan
+ *
+ */
+public interface UserChangeListener
+{
+	
+	public void onChange(UserChangeEvent event);
+	
+	/**
+	 * Called when poll of provided users failed, they are polled again after their current interval.
+	 */
+	public default void onError(Collection<Long> userIds, Throwable error)
+	{
+	}
+	
+}
@@ -0,0 +1,375 @@
+package org.osumm.apiv2.watch;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.osumm.apiv2.OsuApi;
+import org.osumm.apiv2.concurrent.DaemonScheduler;
+import org.osumm.apiv2.concurrent.Futures;
+import org.osumm.apiv2.concurrent.IoExecutor;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GameMode;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.CompactUser;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersRequest;
+import org.osumm.apiv2.endpoints.impl.GetUsersEndpoint.GetUsersResponse;
+import org.osumm.apiv2.ratelimit.RequestPriority;
+
+import lombok.Builder;
+import lombok.Getter;
+
+/**
+ * Polls watched users and emits {@link UserChangeEvent} when their {@link WatchedField fields} change between polls.
+ * <br/><br/>
+ * Polls are sent as {@link GetUsersEndpoint} calls of up to {@link GetUsersEndpoint#MAX_IDS} users, 
+ * at most {@link #requestsPerMinute requestsPerMinute} of them, most overdue users first. 
+ * Users due soon are added into calls which have free room, so spare budget shortens detection time instead of being lost.
+ * Polls are made with {@link org.osumm.apiv2.ratelimit.RequestPriority#BULK BULK} priority, so they yield to interactive requests of the same API instance.
+ * <br/><br/>
+ * Polling interval of each user adapts to its activity, between {@link #minIntervalMillis minIntervalMillis} and {@link #maxIntervalMillis maxIntervalMillis}:
+ * <ul>
+ * <li>play count changed - user is playing, interval drops to minimum</li>
+ * <li>user is online - interval grows by half, up to 4 minimum intervals</li>
+ * <li>user is offline - interval doubles</li>
+ * <li>user's last visit is older than {@link #inactiveAfterMillis inactiveAfterMillis} or user is missing - maximum interval</li>
+ * </ul>
+ * First poll of every user is baseline and emits no event. {@link GetUsersEndpoint} should be registered in API.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * UserWatcher watcher = UserWatcher.builder()
+ * 		.api(api)
+ * 		.mode(GameMode.OSU)
+ * 		.requestsPerMinute(120)
+ * 		.listener(event -> System.out.println(event))
+ * 		.build();
+ * watcher.watchAll(userIds);
+ * watcher.start();
+ * }
+ * </pre>
+ * @author Master-chan
+ *
+ */
+@Builder
+public class UserWatcher implements Closeable
+{
+	
+	private final OsuApi api;
+	private final UserChangeListener listener;
+	/**
+	 * Game mode of compared statistics, user's default mode if null.
+	 */
+	@Getter private final GameMode mode;
+	@Builder.Default @Getter private final long minIntervalMillis = TimeUnit.MINUTES.toMillis(1);
+	@Builder.Default @Getter private final long maxIntervalMillis = TimeUnit.HOURS.toMillis(1);
+	@Builder.Default @Getter private final long inactiveAfterMillis = TimeUnit.DAYS.toMillis(7);
+	@Builder.Default @Getter private final int requestsPerMinute = 60;
+	
+	private final Lock lock = new ReentrantLock();
+	private final AtomicReference<ScheduledFuture<?>> ticker = new AtomicReference<>();
+	
+	// Guarded by lock
+	private final Map<Long, WatchedUser> users = new HashMap<>();
+	private final PriorityQueue<WatchedUser> queue = new PriorityQueue<>(Comparator.comparingLong(user -> user.nextPollAt));
+	
+	/**
+	 * Starts watching user, its first poll is due immediately. Does nothing if user is already watched.
+	 */
+	public void watch(long userId)
+	{
+		watchAll(Collections.singleton(userId));
+	}
+	
+	public void watchAll(Collection<Long> userIds)
+	{
+		long now = System.currentTimeMillis();
+		lock.lock();
+		try
+		{
+			for(long userId : userIds)
+			{
+				if(!users.containsKey(userId))
+				{
+					WatchedUser user = new WatchedUser(userId, minIntervalMillis, now);
+					users.put(userId, user);
+					queue.add(user);
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Stops watching user, events of its poll in progress are dropped.
+	 */
+	public void unwatch(long userId)
+	{
+		lock.lock();
+		try
+		{
+			WatchedUser user = users.remove(userId);
+			if(user != null)
+			{
+				// Lazily dropped from queue
+				user.removed = true;
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	public int size()
+	{
+		lock.lock();
+		try
+		{
+			return users.size();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * @return current polling interval of user, -1 if it isn't watched
+	 */
+	public long getIntervalMillis(long userId)
+	{
+		lock.lock();
+		try
+		{
+			WatchedUser user = users.get(userId);
+			return user != null ? user.intervalMillis : -1;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Starts polling, calls are spread evenly over each minute.
+	 */
+	public void start()
+	{
+		if(api == null || listener == null || requestsPerMinute < 1)
+		{
+			throw new IllegalStateException("Watcher requires api, listener and positive requests per minute");
+		}
+		long period = Math.max(1, TimeUnit.MINUTES.toMillis(1) / requestsPerMinute);
+		// Poll might block on synchronous http providers, so it is not run on scheduler thread
+		ScheduledFuture<?> started = DaemonScheduler.get().scheduleAtFixedRate(() -> CompletableFuture.runAsync(this::poll, IoExecutor.get()), 0, period, TimeUnit.MILLISECONDS);
+		if(!ticker.compareAndSet(null, started))
+		{
+			started.cancel(false);
+			throw new IllegalStateException("Watcher is already started");
+		}
+	}
+	
+	/**
+	 * Stops polling, polls in progress still complete.
+	 */
+	@Override
+	public void close()
+	{
+		ScheduledFuture<?> current = ticker.getAndSet(null);
+		if(current != null)
+		{
+			current.cancel(false);
+		}
+	}
+	
+	/**
+	 * Sends single call with due users, topped up with users due within half of their interval.
+	 */
+	private void poll()
+	{
+		long now = System.currentTimeMillis();
+		Map<Long, WatchedUser> batch = new LinkedHashMap<>();
+		lock.lock();
+		try
+		{
+			while(batch.size() < GetUsersEndpoint.MAX_IDS && !queue.isEmpty())
+			{
+				WatchedUser user = queue.peek();
+				boolean due = user.nextPollAt <= now;
+				if(!user.removed && !due && (batch.isEmpty() || user.nextPollAt - now > user.intervalMillis / 2))
+				{
+					break;
+				}
+				queue.poll();
+				if(!user.removed)
+				{
+					batch.put(user.userId, user);
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		if(batch.isEmpty())
+		{
+			return;
+		}
+		GetUsersRequest request = GetUsersRequest.builder().ids(batch.keySet()).mode(mode).build();
+		api.requestAsync(GetUsersEndpoint.class, request, RequestPriority.BULK).whenComplete((response, e) -> complete(batch, response, e));
+	}
+	
+	private void complete(Map<Long, WatchedUser> batch, GetUsersResponse response, Throwable e)
+	{
+		long now = System.currentTimeMillis();
+		if(e != null)
+		{
+			reschedule(batch.values(), now);
+			notifyError(batch.keySet(), Futures.unwrap(e));
+			return;
+		}
+		Map<Long, CompactUser> received = new HashMap<>();
+		if(response.getUsers() != null)
+		{
+			for(CompactUser user : response.getUsers())
+			{
+				received.put(user.getId(), user);
+			}
+		}
+		List<UserChangeEvent> events = new ArrayList<>();
+		for(WatchedUser watched : batch.values())
+		{
+			GetUserResponse current = received.get(watched.userId);
+			GetUserResponse previous = watched.snapshot;
+			List<FieldChange> changes = previous != null && current != null ? compare(previous, current) : Collections.emptyList();
+			watched.intervalMillis = nextInterval(watched.intervalMillis, current, changes, now);
+			if(current != null)
+			{
+				watched.snapshot = current;
+			}
+			if(!changes.isEmpty())
+			{
+				events.add(new UserChangeEvent(watched.userId, previous, current, Collections.unmodifiableList(changes)));
+			}
+		}
+		reschedule(batch.values(), now);
+		for(UserChangeEvent event : events)
+		{
+			try
+			{
+				listener.onChange(event);
+			}
+			catch(RuntimeException listenerError)
+			{
+				// Listener failure shouldn't stop watching
+			}
+		}
+	}
+	
+	private long nextInterval(long interval, GetUserResponse user, List<FieldChange> changes, long now)
+	{
+		if(user == null || (user.getLastVisitDate() != null && now - user.getLastVisitDate().getTime() > inactiveAfterMillis))
+		{
+			return maxIntervalMillis;
+		}
+		for(FieldChange change : changes)
+		{
+			if(change.getField() == WatchedField.PLAY_COUNT)
+			{
+				return minIntervalMillis;
+			}
+		}
+		if(user.isOnline())
+		{
+			return Math.max(minIntervalMillis, Math.min(interval + interval / 2, minIntervalMillis * 4));
+		}
+		return Math.min(maxIntervalMillis, interval * 2);
+	}
+	
+	private static List<FieldChange> compare(GetUserResponse previous, GetUserResponse current)
+	{
+		List<FieldChange> changes = new ArrayList<>(2);
+		for(WatchedField field : WatchedField.values())
+		{
+			Object before = field.get(previous);
+			Object after = field.get(current);
+			if(!Objects.equals(before, after))
+			{
+				changes.add(new FieldChange(field, before, after));
+			}
+		}
+		return changes;
+	}
+	
+	private void reschedule(Collection<WatchedUser> batch, long now)
+	{
+		lock.lock();
+		try
+		{
+			for(WatchedUser user : batch)
+			{
+				if(!user.removed)
+				{
+					user.nextPollAt = now + user.intervalMillis;
+					queue.add(user);
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+	
+	private void notifyError(Collection<Long> userIds, Throwable error)
+	{
+		try
+		{
+			listener.onError(Collections.unmodifiableCollection(userIds), error);
+		}
+		catch(RuntimeException listenerError)
+		{
+			// Listener failure shouldn't stop watching
+		}
+	}
+	
+	private static class WatchedUser
+	{
+		
+		private final long userId;
+		
+		// Guarded by watcher lock while queued, owned by poll while in flight
+		private long intervalMillis;
+		private long nextPollAt;
+		private boolean removed;
+		private GetUserResponse snapshot;
+		
+		private WatchedUser(long userId, long intervalMillis, long nextPollAt)
+		{
+			this.userId = userId;
+			this.intervalMillis = intervalMillis;
+			this.nextPollAt = nextPollAt;
+		}
+		
+	}
+	
+}
@@ -0,0 +1,43 @@
+package org.osumm.apiv2.watch;
+
+import java.util.function.Function;
+
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse;
+import org.osumm.apiv2.endpoints.impl.GetUserEndpoint.GetUserResponse.ProfileStatistics;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * User fields compared by {@link UserWatcher} between consecutive snapshots.
+ * @author Master-chan
+ *
+ */
+@RequiredArgsConstructor
+public enum WatchedField
+{
+	
+	PERFORMANCE_POINTS(user -> statistics(user, ProfileStatistics::getPerformancePoints)),
+	GLOBAL_RANK(user -> statistics(user, ProfileStatistics::getGlobalRank)),
+	COUNTRY_RANK(user -> statistics(user, statistics -> statistics.getRank() != null ? statistics.getRank().getCountry() : null)),
+	RANKED_SCORE(user -> statistics(user, ProfileStatistics::getRankedScore)),
+	PLAY_COUNT(user -> statistics(user, ProfileStatistics::getPlaycount)),
+	ACCURACY(user -> statistics(user, ProfileStatistics::getHitAccuracy)),
+	ONLINE(GetUserResponse::isOnline),
+	USERNAME(GetUserResponse::getUsername);
+	
+	private final Function<GetUserResponse, Object> extractor;
+	
+	/**
+	 * @return value of this field in provided user, null if it isn't present
+	 */
+	public Object get(GetUserResponse user)
+	{
+		return extractor.apply(user);
+	}
+	
+	private static Object statistics(GetUserResponse user, Function<ProfileStatistics, Object> extractor)
+	{
+		return user.getStatistics() != null ? extractor.apply(user.getStatistics()) : null;
+	}
+	
+}
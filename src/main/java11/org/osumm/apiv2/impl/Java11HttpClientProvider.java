@@ -0,0 +1,341 @@
+package org.osumm.apiv2.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ProxySelector;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.zip.GZIPInputStream;
+
+import org.osumm.apiv2.HttpClientProviderBase;
+import org.osumm.apiv2.HttpResponseListener;
+import org.osumm.apiv2.HttpStatusException;
+import org.osumm.apiv2.ResponseReader;
+import org.osumm.apiv2.cache.HttpDiskCache;
+import org.osumm.apiv2.cache.HttpDiskCache.CachedResponse;
+
+import lombok.Builder;
+
+/**
+ * Http provider using java.net.http client introduced in Java 11. 
+ * Async calls are fully non-blocking, response is read by client's own executor.
+ * <br/><br/>
+ * By default client negotiates HTTP/2, so all concurrent requests to osu.ppy.sh are multiplexed over single persistent connection 
+ * instead of paying TCP+TLS handshake per request. HTTP/1.1 connections are kept alive and pooled by the client, 
+ * pool limits are controlled with <code>jdk.httpclient.connectionPoolSize</code> and <code>jdk.httpclient.keepalive.timeout</code> system properties. 
+ * Per-call timeout is applied to each request. GET responses can be persisted and revalidated with {@link HttpDiskCache}.
+ * <br/>
+ * <b>Example:</b>
+ * <pre>
+ * {@code
+ * HttpClientProviderBase provider = Java11HttpClientProvider.builder()
+ * 		.executor(Executors.newFixedThreadPool(4))
+ * 		.connectTimeout(Duration.ofSeconds(3))
+ * 		.build();
+ * }
+ * </pre>
+ * Shipped in <code>META-INF/versions/11</code> of multi-release jar, so it is only available on Java 11+ runtimes.
+ * @author Master-chan
+ *
+ */
+public class Java11HttpClientProvider implements HttpClientProviderBase
+{
+	
+	private final HttpClient client;
+	private final List<HttpResponseListener> listeners = new CopyOnWriteArrayList<>();
+	private final HttpDiskCache diskCache;
+	
+	/**
+	 * Wraps preconfigured client. Provided client is used as is, so it should be shared between providers instead of created per provider.
+	 */
+	public Java11HttpClientProvider(HttpClient client)
+	{
+		this(client, null);
+	}
+	
+	/**
+	 * @param client - preconfigured client
+	 * @param diskCache - persistent cache revalidating GET responses, null to disable
+	 */
+	public Java11HttpClientProvider(HttpClient client, HttpDiskCache diskCache)
+	{
+		this.client = client;
+		this.diskCache = diskCache;
+	}
+	
+	public Java11HttpClientProvider()
+	{
+		this(null, null, null, null, null);
+	}
+	
+	/**
+	 * @param version - preferred HTTP version, HTTP/2 by default (client falls back to HTTP/1.1 if server doesn't support it)
+	 * @param executor - executor shared by client for async tasks and response handling, client creates own cached pool if null
+	 * @param connectTimeout - connection establishing timeout, unlimited if null
+	 * @param proxy - proxy selector, system default if null
+	 * @param diskCache - persistent cache revalidating GET responses, null to disable
+	 */
+	@Builder
+	private Java11HttpClientProvider(HttpClient.Version version, Executor executor, Duration connectTimeout, ProxySelector proxy, HttpDiskCache diskCache)
+	{
+		HttpClient.Builder builder = HttpClient.newBuilder()
+				.version(version != null ? version : HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL);
+		if(executor != null)
+		{
+			builder.executor(executor);
+		}
+		if(connectTimeout != null)
+		{
+			builder.connectTimeout(connectTimeout);
+		}
+		if(proxy != null)
+		{
+			builder.proxy(proxy);
+		}
+		this.client = builder.build();
+		this.diskCache = diskCache;
+	}
+
+	@Override
+	public void addResponseListener(HttpResponseListener listener)
+	{
+		listeners.add(listener);
+	}
+
+	@Override
+	public String post(URL url, String params, int timeout) throws IOException
+	{
+		return post(url, params, timeout, null);
+	}
+
+	@Override
+	public String post(URL url, String params, int timeout, String authToken) throws IOException
+	{
+		return post(url, params, timeout, authToken, ResponseReader.utf8String());
+	}
+
+	@Override
+	public String get(URL url, int timeout) throws IOException
+	{
+		return get(url, timeout, null);
+	}
+
+	@Override
+	public String get(URL url, int timeout, String authToken) throws IOException
+	{
+		return get(url, timeout, authToken, ResponseReader.utf8String());
+	}
+	
+	@Override
+	public <T> T post(URL url, String params, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		return send(url, newPost(url, params, timeout, authToken), reader, null, false);
+	}
+	
+	@Override
+	public <T> T get(URL url, int timeout, String authToken, ResponseReader<T> reader) throws IOException
+	{
+		CachedResponse cached = diskCache != null ? diskCache.get(url.toString()) : null;
+		return send(url, newGet(url, timeout, authToken, cached), reader, cached, diskCache != null);
+	}
+	
+	@Override
+	public <T> CompletableFuture<T> postAsync(URL url, String params, int timeout, String authToken, ResponseReader<T> reader)
+	{
+		try
+		{
+			return sendAsync(url, newPost(url, params, timeout, authToken), reader, null, false);
+		}
+		catch(IOException e)
+		{
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+	
+	@Override
+	public <T> CompletableFuture<T> getAsync(URL url, int timeout, String authToken, ResponseReader<T> reader)
+	{
+		try
+		{
+			CachedResponse cached = diskCache != null ? diskCache.get(url.toString()) : null;
+			return sendAsync(url, newGet(url, timeout, authToken, cached), reader, cached, diskCache != null);
+		}
+		catch(IOException e)
+		{
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+	
+	/**
+	 * Blocking call, body is streamed from socket straight into reader.
+	 * @param cached - response request is revalidating, if any
+	 * @param store - store response in disk cache
+	 */
+	private <T> T send(URL url, HttpRequest request, ResponseReader<T> reader, CachedResponse cached, boolean store) throws IOException
+	{
+		long start = System.nanoTime();
+		HttpResponse<InputStream> response;
+		try
+		{
+			response = client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for response");
+		}
+		long received = System.nanoTime();
+		try(CountingInputStream body = new CountingInputStream(response.body(), store))
+		{
+			checkResponse(url, response, received - start, cached != null);
+			if(response.statusCode() == 304)
+			{
+				return readCached(url, cached, reader, received - start);
+			}
+			InputStream wrapper = isGzip(response) ? new GZIPInputStream(body, 8192) : body;
+			T value = reader.read(wrapper);
+			if(store)
+			{
+				CountingInputStream.skipRemaining(wrapper);
+				diskCache.put(url.toString(), headers(response), body.getCopy());
+			}
+			notifyComplete(url, 200, body.getCount(), received - start, System.nanoTime() - received);
+			return value;
+		}
+	}
+	
+	/**
+	 * Non-blocking call. Body is collected by client without occupying any thread and parsed once fully received, 
+	 * since reading stream from client executor would block it.
+	 * @param cached - response request is revalidating, if any
+	 * @param store - store response in disk cache
+	 */
+	private <T> CompletableFuture<T> sendAsync(URL url, HttpRequest request, ResponseReader<T> reader, CachedResponse cached, boolean store)
+	{
+		long start = System.nanoTime();
+		return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> 
+		{
+			long received = System.nanoTime();
+			try
+			{
+				checkResponse(url, response, received - start, cached != null);
+				if(response.statusCode() == 304)
+				{
+					return readCached(url, cached, reader, received - start);
+				}
+				InputStream body = new ByteArrayInputStream(response.body());
+				T value = reader.read(isGzip(response) ? new GZIPInputStream(body, 8192) : body);
+				if(store)
+				{
+					diskCache.put(url.toString(), headers(response), response.body());
+				}
+				notifyComplete(url, 200, response.body().length, received - start, System.nanoTime() - received);
+				return value;
+			}
+			catch(IOException e)
+			{
+				throw new CompletionException(e);
+			}
+		});
+	}
+	
+	/**
+	 * @param revalidating - request was conditional, so 304 response is expected
+	 */
+	private void checkResponse(URL url, HttpResponse<?> response, long networkNanos, boolean revalidating) throws IOException
+	{
+		for(HttpResponseListener listener : listeners)
+		{
+			listener.onResponse(url, response.statusCode(), headers(response));
+		}
+		// Mimic default HTTP client provide behavior
+		if(response.statusCode() != 200 && !(revalidating && response.statusCode() == 304))
+		{
+			notifyComplete(url, response.statusCode(), 0, networkNanos, 0);
+			throw new HttpStatusException(response.statusCode(), HttpStatusException.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)));
+		}
+	}
+	
+	private void notifyComplete(URL url, int code, long bytes, long networkNanos, long readNanos)
+	{
+		for(HttpResponseListener listener : listeners)
+		{
+			listener.onResponseComplete(url, code, bytes, networkNanos, readNanos);
+		}
+	}
+	
+	private <T> T readCached(URL url, CachedResponse cached, ResponseReader<T> reader, long networkNanos) throws IOException
+	{
+		long start = System.nanoTime();
+		try(InputStream body = cached.openBody())
+		{
+			T value = reader.read(body);
+			notifyComplete(url, 304, 0, networkNanos, System.nanoTime() - start);
+			return value;
+		}
+	}
+	
+	private static Function<String, String> headers(HttpResponse<?> response)
+	{
+		return name -> response.headers().firstValue(name).orElse(null);
+	}
+	
+	private static boolean isGzip(HttpResponse<?> response)
+	{
+		return response.headers().firstValue("Content-Encoding").map("gzip"::equalsIgnoreCase).orElse(false);
+	}
+	
+	private HttpRequest newPost(URL url, String params, int timeout, String authToken) throws IOException
+	{
+		return newRequest(url, timeout, authToken)
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(params, StandardCharsets.UTF_8))
+				.build();
+	}
+	
+	private HttpRequest newGet(URL url, int timeout, String authToken, CachedResponse cached) throws IOException
+	{
+		HttpRequest.Builder builder = newRequest(url, timeout, authToken).GET();
+		if(cached != null)
+		{
+			cached.addValidators(builder::header);
+		}
+		return builder.build();
+	}
+	
+	private HttpRequest.Builder newRequest(URL url, int timeout, String authToken) throws IOException
+	{
+		HttpRequest.Builder builder;
+		try
+		{
+			builder = HttpRequest.newBuilder(url.toURI());
+		}
+		catch(URISyntaxException e)
+		{
+			throw new IOException(e);
+		}
+		builder.header("Accept", "application/json")
+				.header("Accept-Encoding", "gzip")
+				.timeout(Duration.ofMillis(timeout));
+		if(authToken != null && authToken.length() > 0)
+		{
+			builder.header("Authorization", String.format("Bearer %s", authToken));
+		}
+		return builder;
+	}
+
+}
@@ -0,0 +1,46 @@
+package org.osumm.apiv2.concurrent;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Threads of {@link BulkExecutor} and {@link IoExecutor} on Java 21+: virtual thread per call. 
+ * Request path only blocks on java.util.concurrent locks, sleeps and socket reads (HttpURLConnection doesn't hold monitors 
+ * while reading since JDK 19), so blocked calls unmount from carrier threads instead of pinning them.
+ * @author Master-chan
+ *
+ */
+final class BulkThreads
+{
+	
+	private static final ThreadFactory FACTORY = Thread.ofVirtual().name("osu-api-bulk-", 0).factory();
+	
+	private BulkThreads()
+	{
+	}
+	
+	static boolean isVirtual()
+	{
+		return true;
+	}
+	
+	/**
+	 * @param threads - ignored, virtual threads are started per call
+	 * @return executor starting calls right away, owned and shut down by caller
+	 */
+	static ExecutorService newExecutor(int threads)
+	{
+		return Executors.newThreadPerTaskExecutor(FACTORY);
+	}
+	
+	/**
+	 * @param namePrefix - prefix of thread names
+	 * @return executor starting every call on new virtual thread
+	 */
+	static ExecutorService newUnboundedExecutor(String namePrefix)
+	{
+		return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(namePrefix, 0).factory());
+	}
+	
+}